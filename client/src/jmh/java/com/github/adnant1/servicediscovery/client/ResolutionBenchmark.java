@@ -0,0 +1,100 @@
+package com.github.adnant1.servicediscovery.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.github.adnant1.servicediscovery.registry.DiscoverRequest;
+import com.github.adnant1.servicediscovery.registry.DiscoverResponse;
+import com.github.adnant1.servicediscovery.registry.RegistryServiceGrpc;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Measures how long DiscoveryClient takes to resolve a service. "warm" lookups are answered
+ * from the cache; "cold" lookups evict the service first, so each one is a Discover call
+ * to an in-process registry, including the serialization of every instance. Over a real
+ * network a cold lookup also pays at least one round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResolutionBenchmark {
+
+    private static final String SERVICE = "payment";
+
+    @Param({"10", "100", "1000"})
+    private int instanceCount;
+
+    @Param({"warm", "cold"})
+    private String cache;
+
+    private Server server;
+    private ManagedChannel channel;
+    private DiscoveryClient client;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < instanceCount; i++) {
+            instances.add(ServiceInstance.newBuilder()
+                    .setInstanceId("instance-" + i)
+                    .setIp("10.0." + (i / 256) + "." + (i % 256))
+                    .setPort(8080)
+                    .build());
+        }
+        DiscoverResponse response = DiscoverResponse.newBuilder()
+                .addAllInstances(instances)
+                .setTotalSize(instances.size())
+                .setRevision(1)
+                .build();
+
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(new RegistryServiceGrpc.RegistryServiceImplBase() {
+                    @Override
+                    public void discover(DiscoverRequest request, StreamObserver<DiscoverResponse> responseObserver) {
+                        responseObserver.onNext(response);
+                        responseObserver.onCompleted();
+                    }
+                })
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+
+        // No background refresh during the measurement
+        client = new DiscoveryClient(channel, 3_600_000, DiscoveryClient.DEFAULT_HEARTBEAT_MILLIS);
+        client.getInstances(SERVICE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Benchmark
+    public List<ServiceInstance> resolve() {
+        if ("cold".equals(cache)) {
+            client.evict(SERVICE);
+        }
+        return client.getInstances(SERVICE);
+    }
+}
@@ -0,0 +1,386 @@
+package com.github.adnant1.servicediscovery.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.adnant1.servicediscovery.registry.DiscoverRequest;
+import com.github.adnant1.servicediscovery.registry.DiscoverResponse;
+import com.github.adnant1.servicediscovery.registry.RegisterRequest;
+import com.github.adnant1.servicediscovery.registry.RegistryServiceGrpc;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.grpc.Channel;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+/**
+ * Client for the service registry that keeps discovered instances in a local cache.
+ * The first lookup of a service fetches all of its instances, following Discover pages;
+ * later lookups are answered from the cache without a call. Every refreshMillis, each cached
+ * service is refreshed in the background with a Discover carrying the last revision seen,
+ * which the registry answers with an empty not-modified response while nothing changed.
+ * Listeners are told whenever a service's instances change. A service without listeners is
+ * dropped from the cache once it has not been looked up for idleMillis, and a service whose
+ * first fetch fails is not cached at all, so lookups of unused or unknown names do not pile up.
+ *
+ * Instances registered through the client are kept alive with heartbeats, and registered
+ * again if the registry lost them, until their Registration or the client is closed.
+ */
+public class DiscoveryClient implements AutoCloseable {
+
+    /**
+     * Receives the instances of a service. Called on gRPC and refresh threads, so it must not block.
+     */
+    public interface Listener {
+        void onInstances(List<ServiceInstance> instances);
+
+        /**
+         * Called if the service could not be fetched and no instances of it are cached.
+         */
+        default void onError(Status status) {}
+    }
+
+    /**
+     * Stops a listener from receiving updates.
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public static final long DEFAULT_REFRESH_MILLIS = 5000;
+    public static final long DEFAULT_HEARTBEAT_MILLIS = 10000;
+    public static final long DEFAULT_IDLE_MILLIS = 300000;
+    static final long DEADLINE_MILLIS = 5000;
+
+    private static final Logger logger = Logger.getLogger(DiscoveryClient.class.getName());
+
+    private final Map<String, CachedService> services = new ConcurrentHashMap<>();
+    private final Set<Registration> registrations = ConcurrentHashMap.newKeySet();
+    private final RegistryServiceGrpc.RegistryServiceFutureStub futureStub;
+    private final RegistryServiceGrpc.RegistryServiceBlockingStub blockingStub;
+    private final ScheduledExecutorService scheduler;
+    private final ManagedChannel ownedChannel;
+    private final long heartbeatMillis;
+    private final long idleMillis;
+
+    /**
+     * Creates a client on a channel the caller owns and shuts down, dropping services idle for DEFAULT_IDLE_MILLIS.
+     *
+     * @param channel a channel to any registry node
+     * @param refreshMillis how often cached services are refreshed
+     * @param heartbeatMillis how often registered instances send a heartbeat; well below the registry's TTL
+     */
+    public DiscoveryClient(Channel channel, long refreshMillis, long heartbeatMillis) {
+        this(channel, refreshMillis, heartbeatMillis, DEFAULT_IDLE_MILLIS);
+    }
+
+    /**
+     * Creates a client on a channel the caller owns and shuts down.
+     *
+     * @param channel a channel to any registry node
+     * @param refreshMillis how often cached services are refreshed
+     * @param heartbeatMillis how often registered instances send a heartbeat; well below the registry's TTL
+     * @param idleMillis how long a service without listeners stays cached after its last lookup
+     */
+    public DiscoveryClient(Channel channel, long refreshMillis, long heartbeatMillis, long idleMillis) {
+        this(channel, null, refreshMillis, heartbeatMillis, idleMillis);
+    }
+
+    private DiscoveryClient(Channel channel, ManagedChannel ownedChannel, long refreshMillis, long heartbeatMillis,
+                            long idleMillis) {
+        this.futureStub = RegistryServiceGrpc.newFutureStub(channel);
+        this.blockingStub = RegistryServiceGrpc.newBlockingStub(channel);
+        this.ownedChannel = ownedChannel;
+        this.heartbeatMillis = heartbeatMillis;
+        this.idleMillis = idleMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "discovery-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::refreshAll, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a client with its own plaintext channel and the default intervals.
+     *
+     * @param target the registry's address, e.g. "localhost:50051"
+     * @return a client that shuts the channel down when closed
+     */
+    public static DiscoveryClient forTarget(String target) {
+        return forTarget(target, DEFAULT_REFRESH_MILLIS, DEFAULT_HEARTBEAT_MILLIS);
+    }
+
+    /**
+     * Creates a client with its own plaintext channel.
+     *
+     * @param target the registry's address, e.g. "localhost:50051"
+     * @param refreshMillis how often cached services are refreshed
+     * @param heartbeatMillis how often registered instances send a heartbeat
+     * @return a client that shuts the channel down when closed
+     */
+    public static DiscoveryClient forTarget(String target, long refreshMillis, long heartbeatMillis) {
+        ManagedChannel channel = ManagedChannelBuilder.forTarget(target).usePlaintext().build();
+        return new DiscoveryClient(channel, channel, refreshMillis, heartbeatMillis, DEFAULT_IDLE_MILLIS);
+    }
+
+    /**
+     * Returns the instances of a service, from the cache if it holds the service.
+     * Otherwise the instances are fetched, and the service is cached and refreshed from then on.
+     *
+     * @param serviceName the name of the service
+     * @return an immutable list of instances
+     * @throws StatusRuntimeException if the service is not cached and cannot be fetched
+     */
+    public List<ServiceInstance> getInstances(String serviceName) {
+        CachedService service = services.computeIfAbsent(serviceName, CachedService::new);
+        service.lastAccess = System.currentTimeMillis();
+        List<ServiceInstance> instances = service.instances;
+        if (instances != null) {
+            return instances;
+        }
+
+        try {
+            return refresh(service).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof StatusRuntimeException status
+                ? status
+                : Status.UNAVAILABLE.withCause(e.getCause()).asRuntimeException();
+        }
+    }
+
+    /**
+     * Registers a listener for a service. It receives the cached instances right away if there are
+     * any, otherwise once they are fetched, and then every changed list of instances.
+     *
+     * @param serviceName the name of the service
+     * @param listener the listener to register
+     * @return a subscription that removes the listener when closed
+     */
+    public Subscription subscribe(String serviceName, Listener listener) {
+        // Added inside compute, so the service cannot be dropped as unused in between
+        CachedService service = services.compute(serviceName, (name, cached) -> {
+            CachedService subscribed = cached != null ? cached : new CachedService(name);
+            subscribed.listeners.add(listener);
+            return subscribed;
+        });
+
+        List<ServiceInstance> instances = service.instances;
+        if (instances != null) {
+            listener.onInstances(instances);
+        } else {
+            refresh(service);
+        }
+        return () -> service.listeners.remove(listener);
+    }
+
+    /**
+     * Refreshes a service now instead of waiting for the next background refresh.
+     *
+     * @param serviceName the name of the service
+     * @return a future completed with the service's instances
+     */
+    public CompletableFuture<List<ServiceInstance>> refresh(String serviceName) {
+        CachedService service = services.computeIfAbsent(serviceName, CachedService::new);
+        service.lastAccess = System.currentTimeMillis();
+        return refresh(service);
+    }
+
+    /**
+     * Registers an instance and keeps it alive with heartbeats until the registration is closed.
+     *
+     * @param serviceName the name of the service
+     * @param instanceId the ID of the instance, unique within the service
+     * @param ip the instance's IP address
+     * @param port the instance's port
+     * @return the registration, which deregisters the instance when closed
+     * @throws StatusRuntimeException if the registry rejects the instance or cannot be reached
+     */
+    public Registration register(String serviceName, String instanceId, String ip, int port) {
+        RegisterRequest request = RegisterRequest.newBuilder()
+                .setServiceName(serviceName)
+                .setInstanceId(instanceId)
+                .setIp(ip)
+                .setPort(port)
+                .build();
+
+        blockingStub.withDeadlineAfter(DEADLINE_MILLIS, TimeUnit.MILLISECONDS).register(request);
+
+        Registration registration = new Registration(futureStub, blockingStub, request, registrations::remove);
+        registrations.add(registration);
+        registration.start(scheduler, heartbeatMillis);
+        return registration;
+    }
+
+    /**
+     * Deregisters every open registration and stops refreshing. A channel created by
+     * forTarget is shut down as well.
+     */
+    @Override
+    public void close() {
+        List.copyOf(registrations).forEach(Registration::close);
+        scheduler.shutdownNow();
+        if (ownedChannel != null) {
+            ownedChannel.shutdown();
+        }
+    }
+
+    /**
+     * Drops a service from the cache, so the next lookup fetches it again.
+     * Its listeners stop receiving updates.
+     *
+     * @param serviceName the name of the service
+     */
+    public void evict(String serviceName) {
+        services.remove(serviceName);
+    }
+
+    /**
+     * Refreshes every cached service, after dropping those without listeners that have been idle for idleMillis.
+     */
+    private void refreshAll() {
+        long idleSince = System.currentTimeMillis() - idleMillis;
+        for (CachedService service : services.values()) {
+            if (service.lastAccess < idleSince && dropIfUnused(service)) {
+                continue;
+            }
+            refresh(service);
+        }
+    }
+
+    /**
+     * Drops a service from the cache unless it has listeners.
+     *
+     * @return true if the service was dropped
+     */
+    private boolean dropIfUnused(CachedService service) {
+        return services.computeIfPresent(service.name,
+            (name, cached) -> cached == service && cached.listeners.isEmpty() ? null : cached) != service;
+    }
+
+    /**
+     * Fetches a service unless a fetch of it is already in flight, in which case that one is shared.
+     */
+    private CompletableFuture<List<ServiceInstance>> refresh(CachedService service) {
+        CompletableFuture<List<ServiceInstance>> pending;
+        synchronized (service) {
+            if (service.pending != null) {
+                return service.pending;
+            }
+            pending = new CompletableFuture<>();
+            service.pending = pending;
+        }
+
+        pending.whenComplete((instances, error) -> {
+            synchronized (service) {
+                service.pending = null;
+            }
+            if (error != null && service.instances == null) {
+                dropIfUnused(service); // Unknown or unreachable; looked up again from scratch next time
+            }
+        });
+
+        DiscoverRequest request = DiscoverRequest.newBuilder()
+                .setServiceName(service.name)
+                .setIfRevisionNot(service.revision)
+                .build();
+        fetch(service, request, new ArrayList<>(), 0, pending);
+        return pending;
+    }
+
+    /**
+     * Fetches one page, then the next until the last one. The revision of the first page is kept,
+     * so a change made while paging shows up as a new revision on the next refresh.
+     */
+    private void fetch(CachedService service, DiscoverRequest request, List<ServiceInstance> collected,
+                       long revision, CompletableFuture<List<ServiceInstance>> result) {
+        Futures.addCallback(
+            futureStub.withDeadlineAfter(DEADLINE_MILLIS, TimeUnit.MILLISECONDS).discover(request),
+            new FutureCallback<DiscoverResponse>() {
+                @Override
+                public void onSuccess(DiscoverResponse response) {
+                    if (response.getNotModified()) {
+                        result.complete(service.instances);
+                        return;
+                    }
+
+                    collected.addAll(response.getInstancesList());
+                    long firstRevision = revision != 0 ? revision : response.getRevision();
+                    if (!response.getNextPageToken().isEmpty()) {
+                        DiscoverRequest next = DiscoverRequest.newBuilder()
+                                .setServiceName(service.name)
+                                .setPageToken(response.getNextPageToken())
+                                .build();
+                        fetch(service, next, collected, firstRevision, result);
+                        return;
+                    }
+
+                    result.complete(service.update(List.copyOf(collected), firstRevision));
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    logger.log(Level.FINE, "Failed to refresh " + service.name, t);
+                    service.fail(Status.fromThrowable(t));
+                    result.completeExceptionally(t);
+                }
+            },
+            MoreExecutors.directExecutor()
+        );
+    }
+
+    /**
+     * Cached instances of one service. Fetches of a service never overlap, so updates are ordered.
+     */
+    private static final class CachedService {
+
+        private final String name;
+        private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
+        private volatile List<ServiceInstance> instances; // Null until the first fetch succeeds
+        private volatile long revision;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private CompletableFuture<List<ServiceInstance>> pending; // Guarded by this
+
+        CachedService(String name) {
+            this.name = name;
+        }
+
+        List<ServiceInstance> update(List<ServiceInstance> fetched, long fetchedRevision) {
+            boolean changed = !fetched.equals(instances);
+            instances = fetched;
+            revision = fetchedRevision;
+            if (changed) {
+                for (Listener listener : listeners) {
+                    listener.onInstances(fetched);
+                }
+            }
+            return fetched;
+        }
+
+        void fail(Status status) {
+            if (instances != null) {
+                return; // Keep serving the last known instances
+            }
+            for (Listener listener : listeners) {
+                listener.onError(status);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.adnant1.servicediscovery.client;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.Status;
+import io.grpc.SynchronizationContext;
+
+/**
+ * Resolves a service name to the addresses of its instances from a DiscoveryClient's cache.
+ * The channel is given a new address list whenever the client's background refresh sees the
+ * instances change, so calls on the channel never wait on a lookup.
+ */
+final class DiscoveryNameResolver extends NameResolver {
+
+    private final DiscoveryClient client;
+    private final String serviceName;
+    private final SynchronizationContext syncContext;
+
+    // Only touched in the synchronization context
+    private Listener2 listener;
+    private DiscoveryClient.Subscription subscription;
+    private boolean shutdown;
+
+    DiscoveryNameResolver(DiscoveryClient client, String serviceName, SynchronizationContext syncContext) {
+        this.client = client;
+        this.serviceName = serviceName;
+        this.syncContext = syncContext;
+    }
+
+    @Override
+    public String getServiceAuthority() {
+        return serviceName;
+    }
+
+    @Override
+    public void start(Listener2 listener) {
+        this.listener = listener;
+        this.subscription = client.subscribe(serviceName, new DiscoveryClient.Listener() {
+            @Override
+            public void onInstances(List<ServiceInstance> instances) {
+                syncContext.execute(() -> publish(instances));
+            }
+
+            @Override
+            public void onError(Status status) {
+                syncContext.execute(() -> {
+                    if (!shutdown) {
+                        DiscoveryNameResolver.this.listener.onError(status);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Called by the channel when connections fail, in case the instances moved.
+     */
+    @Override
+    public void refresh() {
+        client.refresh(serviceName);
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    private void publish(List<ServiceInstance> instances) {
+        if (shutdown) {
+            return;
+        }
+
+        if (instances.isEmpty()) {
+            listener.onError(Status.UNAVAILABLE.withDescription("No instances of " + serviceName));
+            return;
+        }
+
+        List<EquivalentAddressGroup> addresses = instances.stream()
+                .map(instance -> new EquivalentAddressGroup(new InetSocketAddress(instance.getIp(), instance.getPort())))
+                .toList();
+        listener.onResult(ResolutionResult.newBuilder()
+                .setAddresses(addresses)
+                .build());
+    }
+}
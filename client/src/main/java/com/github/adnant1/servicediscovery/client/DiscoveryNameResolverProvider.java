@@ -0,0 +1,70 @@
+package com.github.adnant1.servicediscovery.client;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+
+/**
+ * Lets gRPC channels resolve "discovery:///service-name" targets through a DiscoveryClient.
+ * The provider wraps a client instance, so it is registered in code rather than through
+ * the service loader:
+ *
+ * <pre>
+ * NameResolverRegistry.getDefaultRegistry().register(new DiscoveryNameResolverProvider(client));
+ * ManagedChannel channel = ManagedChannelBuilder.forTarget("discovery:///payment")
+ *         .defaultLoadBalancingPolicy("round_robin")
+ *         .usePlaintext()
+ *         .build();
+ * </pre>
+ *
+ * The resolver hands the channel every instance of the service; the channel's load balancing
+ * policy picks among them per call.
+ */
+public class DiscoveryNameResolverProvider extends NameResolverProvider {
+
+    public static final String SCHEME = "discovery";
+
+    private final DiscoveryClient client;
+
+    public DiscoveryNameResolverProvider(DiscoveryClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+        if (!SCHEME.equals(targetUri.getScheme())) {
+            return null;
+        }
+
+        String path = targetUri.getPath();
+        if (path == null || path.length() <= 1) {
+            throw new IllegalArgumentException("Expected discovery:///<service-name>, got " + targetUri);
+        }
+        return new DiscoveryNameResolver(client, path.substring(1), args.getSynchronizationContext());
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    protected boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    protected int priority() {
+        return 4; // Below DNS, so targets without a scheme keep resolving through DNS
+    }
+
+    @Override
+    protected Collection<Class<? extends SocketAddress>> getProducedSocketAddressTypes() {
+        return List.of(InetSocketAddress.class);
+    }
+}
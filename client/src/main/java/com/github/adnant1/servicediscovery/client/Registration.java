@@ -0,0 +1,130 @@
+package com.github.adnant1.servicediscovery.client;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.adnant1.servicediscovery.registry.DeregisterRequest;
+import com.github.adnant1.servicediscovery.registry.HeartbeatRequest;
+import com.github.adnant1.servicediscovery.registry.HeartbeatResponse;
+import com.github.adnant1.servicediscovery.registry.RegisterRequest;
+import com.github.adnant1.servicediscovery.registry.RegistryServiceGrpc;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.grpc.StatusRuntimeException;
+
+/**
+ * An instance registered through a DiscoveryClient. It sends a heartbeat every heartbeatMillis,
+ * registers the instance again if the registry reports it gone (for example after it expired
+ * during a network partition), and deregisters it when closed.
+ */
+public final class Registration implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(Registration.class.getName());
+
+    private final RegistryServiceGrpc.RegistryServiceFutureStub futureStub;
+    private final RegistryServiceGrpc.RegistryServiceBlockingStub blockingStub;
+    private final RegisterRequest request;
+    private final Consumer<Registration> onClose;
+
+    private volatile ScheduledFuture<?> heartbeats;
+    private volatile boolean closed;
+
+    Registration(RegistryServiceGrpc.RegistryServiceFutureStub futureStub,
+                 RegistryServiceGrpc.RegistryServiceBlockingStub blockingStub,
+                 RegisterRequest request, Consumer<Registration> onClose) {
+        this.futureStub = futureStub;
+        this.blockingStub = blockingStub;
+        this.request = request;
+        this.onClose = onClose;
+    }
+
+    public String serviceName() {
+        return request.getServiceName();
+    }
+
+    public String instanceId() {
+        return request.getInstanceId();
+    }
+
+    void start(ScheduledExecutorService scheduler, long heartbeatMillis) {
+        heartbeats = scheduler.scheduleAtFixedRate(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the heartbeats and deregisters the instance. If the registry cannot be reached,
+     * the instance expires with its TTL instead.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        onClose.accept(this);
+
+        ScheduledFuture<?> scheduled = heartbeats;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+
+        try {
+            blockingStub.withDeadlineAfter(DiscoveryClient.DEADLINE_MILLIS, TimeUnit.MILLISECONDS)
+                    .deregister(DeregisterRequest.newBuilder()
+                            .setServiceName(request.getServiceName())
+                            .setInstanceId(request.getInstanceId())
+                            .build());
+        } catch (StatusRuntimeException e) {
+            logger.log(Level.WARNING, "Failed to deregister " + request.getServiceName() + ":" + request.getInstanceId()
+                + ", leaving it to expire: " + e.getStatus());
+        }
+    }
+
+    private void heartbeat() {
+        HeartbeatRequest heartbeat = HeartbeatRequest.newBuilder()
+                .setServiceName(request.getServiceName())
+                .setInstanceId(request.getInstanceId())
+                .build();
+
+        Futures.addCallback(
+            futureStub.withDeadlineAfter(DiscoveryClient.DEADLINE_MILLIS, TimeUnit.MILLISECONDS).heartbeat(heartbeat),
+            new FutureCallback<HeartbeatResponse>() {
+                @Override
+                public void onSuccess(HeartbeatResponse response) {
+                    if (!response.getSuccess() && !closed) {
+                        logger.info("Registering " + request.getServiceName() + ":" + request.getInstanceId() + " again");
+                        reregister();
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    // The next heartbeat retries; the instance survives misses within its TTL
+                    logger.log(Level.FINE, "Heartbeat failed for " + request.getInstanceId(), t);
+                }
+            },
+            MoreExecutors.directExecutor()
+        );
+    }
+
+    private void reregister() {
+        Futures.addCallback(
+            futureStub.withDeadlineAfter(DiscoveryClient.DEADLINE_MILLIS, TimeUnit.MILLISECONDS).register(request),
+            new FutureCallback<Object>() {
+                @Override
+                public void onSuccess(Object response) {}
+
+                @Override
+                public void onFailure(Throwable t) {
+                    logger.log(Level.FINE, "Registering again failed for " + request.getInstanceId(), t);
+                }
+            },
+            MoreExecutors.directExecutor()
+        );
+    }
+}
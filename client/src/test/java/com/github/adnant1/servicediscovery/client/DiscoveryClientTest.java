@@ -0,0 +1,307 @@
+package com.github.adnant1.servicediscovery.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.adnant1.servicediscovery.registry.DeregisterRequest;
+import com.github.adnant1.servicediscovery.registry.DeregisterResponse;
+import com.github.adnant1.servicediscovery.registry.DiscoverRequest;
+import com.github.adnant1.servicediscovery.registry.DiscoverResponse;
+import com.github.adnant1.servicediscovery.registry.HeartbeatRequest;
+import com.github.adnant1.servicediscovery.registry.HeartbeatResponse;
+import com.github.adnant1.servicediscovery.registry.RegisterRequest;
+import com.github.adnant1.servicediscovery.registry.RegisterResponse;
+import com.github.adnant1.servicediscovery.registry.RegistryServiceGrpc;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+import io.grpc.ManagedChannel;
+import io.grpc.NameResolver;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.SynchronizationContext;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Tests the client against an in-process registry that keeps instances in a map.
+ */
+public class DiscoveryClientTest {
+
+    private FakeRegistry registry;
+    private Server server;
+    private ManagedChannel channel;
+    private DiscoveryClient client;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        this.registry = new FakeRegistry(2);
+        this.server = InProcessServerBuilder.forName(name).directExecutor().addService(registry).build().start();
+        this.channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        // Refreshes are triggered by the tests
+        this.client = new DiscoveryClient(channel, 3_600_000, 20);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.close();
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testWarmLookupsAreServedFromTheCache() {
+        // Arrange
+        registry.put("payment", "instance-1", 8080);
+
+        // Act
+        List<ServiceInstance> first = client.getInstances("payment");
+        List<ServiceInstance> second = client.getInstances("payment");
+
+        // Assert
+        assertEquals(1, first.size());
+        assertEquals(first, second);
+        assertEquals(1, registry.discoverCalls.get());
+    }
+
+    @Test
+    void testColdLookupFollowsEveryPage() {
+        // Arrange: the fake registry returns two instances per page
+        for (int i = 0; i < 5; i++) {
+            registry.put("payment", "instance-" + i, 8080 + i);
+        }
+
+        // Act
+        List<ServiceInstance> instances = client.getInstances("payment");
+
+        // Assert
+        assertEquals(5, instances.size());
+        assertEquals(3, registry.discoverCalls.get());
+    }
+
+    @Test
+    void testRefreshNotifiesListenersOnlyOnChange() throws Exception {
+        // Arrange
+        registry.put("payment", "instance-1", 8080);
+        List<List<ServiceInstance>> updates = new CopyOnWriteArrayList<>();
+        client.subscribe("payment", updates::add);
+        await(() -> !updates.isEmpty());
+
+        // Act
+        client.refresh("payment").join(); // Not modified
+        registry.put("payment", "instance-2", 8081);
+        client.refresh("payment").join();
+
+        // Assert
+        assertEquals(2, updates.size());
+        assertEquals(2, updates.get(1).size());
+        assertEquals(1, registry.notModified.get());
+    }
+
+    @Test
+    void testFailedFirstLookupIsNotCached() throws Exception {
+        // Arrange: refreshes every 20 ms
+        DiscoveryClient refreshing = new DiscoveryClient(channel, 20, 20);
+        registry.failure = Status.UNAVAILABLE;
+
+        // Act
+        assertThrows(StatusRuntimeException.class, () -> refreshing.getInstances("payment"));
+        Thread.sleep(200);
+        refreshing.close();
+
+        // Assert
+        assertEquals(1, registry.discoverCalls.get(), "Not refreshed in the background");
+    }
+
+    @Test
+    void testIdleServicesStopBeingRefreshed() throws Exception {
+        // Arrange: refreshes every 20 ms, drops services not looked up for 50 ms
+        DiscoveryClient refreshing = new DiscoveryClient(channel, 20, 20, 50);
+        registry.put("payment", "instance-1", 8080);
+        registry.put("billing", "instance-1", 8080);
+        refreshing.subscribe("billing", instances -> {});
+
+        // Act
+        refreshing.getInstances("payment");
+        Thread.sleep(300);
+        int paymentCalls = registry.calls("payment");
+        int billingCalls = registry.calls("billing");
+        Thread.sleep(200);
+        refreshing.close();
+
+        // Assert
+        assertEquals(paymentCalls, registry.calls("payment"), "Idle and unsubscribed");
+        assertTrue(registry.calls("billing") > billingCalls, "Still refreshed for its listener");
+    }
+
+    @Test
+    void testRegistrationHeartbeatsAndRegistersAgain() throws Exception {
+        // Act
+        Registration registration = client.register("payment", "instance-1", "10.0.0.1", 8080);
+        await(() -> registry.heartbeats.get() >= 2);
+        registry.instances.clear(); // Lost by the registry, e.g. expired
+        await(() -> registry.instances.containsKey("payment:instance-1"));
+        registration.close();
+
+        // Assert
+        assertTrue(registry.instances.isEmpty(), "Deregistered on close");
+    }
+
+    @Test
+    void testNameResolverPublishesInstanceAddresses() throws Exception {
+        // Arrange
+        registry.put("payment", "instance-1", 8080);
+        List<NameResolver.ResolutionResult> results = new CopyOnWriteArrayList<>();
+        NameResolver.Args args = NameResolver.Args.newBuilder()
+                .setDefaultPort(443)
+                .setProxyDetector(address -> null)
+                .setSynchronizationContext(new SynchronizationContext((thread, error) -> {}))
+                .setServiceConfigParser(new NameResolver.ServiceConfigParser() {
+                    @Override
+                    public NameResolver.ConfigOrError parseServiceConfig(Map<String, ?> rawServiceConfig) {
+                        return null;
+                    }
+                })
+                .build();
+
+        NameResolver resolver = new DiscoveryNameResolverProvider(client)
+                .newNameResolver(URI.create("discovery:///payment"), args);
+
+        // Act
+        resolver.start(new NameResolver.Listener2() {
+            @Override
+            public void onResult(NameResolver.ResolutionResult result) {
+                results.add(result);
+            }
+
+            @Override
+            public void onError(Status error) {}
+        });
+        await(() -> !results.isEmpty());
+        resolver.shutdown();
+
+        // Assert
+        assertEquals("payment", resolver.getServiceAuthority());
+        InetSocketAddress address = (InetSocketAddress) results.get(0).getAddresses().get(0).getAddresses().get(0);
+        assertEquals(8080, address.getPort());
+    }
+
+    /**
+     * Registry with revisions and pages, holding instances keyed by "service:instanceId".
+     */
+    private static final class FakeRegistry extends RegistryServiceGrpc.RegistryServiceImplBase {
+
+        private final Map<String, ServiceInstance> instances = new ConcurrentHashMap<>();
+        private final AtomicLong revision = new AtomicLong(1);
+        private final AtomicInteger discoverCalls = new AtomicInteger();
+        private final Map<String, AtomicInteger> callsByService = new ConcurrentHashMap<>();
+        private final AtomicInteger notModified = new AtomicInteger();
+        private final AtomicInteger heartbeats = new AtomicInteger();
+        private final int pageSize;
+        private volatile Status failure;
+
+        FakeRegistry(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        void put(String serviceName, String instanceId, int port) {
+            instances.put(serviceName + ":" + instanceId, ServiceInstance.newBuilder()
+                    .setInstanceId(instanceId)
+                    .setIp("127.0.0.1")
+                    .setPort(port)
+                    .build());
+            revision.incrementAndGet();
+        }
+
+        int calls(String serviceName) {
+            AtomicInteger calls = callsByService.get(serviceName);
+            return calls != null ? calls.get() : 0;
+        }
+
+        @Override
+        public void discover(DiscoverRequest request, StreamObserver<DiscoverResponse> responseObserver) {
+            discoverCalls.incrementAndGet();
+            callsByService.computeIfAbsent(request.getServiceName(), name -> new AtomicInteger()).incrementAndGet();
+            if (failure != null) {
+                responseObserver.onError(failure.asRuntimeException());
+                return;
+            }
+
+            long current = revision.get();
+            if (request.getIfRevisionNot() == current) {
+                notModified.incrementAndGet();
+                responseObserver.onNext(DiscoverResponse.newBuilder().setRevision(current).setNotModified(true).build());
+                responseObserver.onCompleted();
+                return;
+            }
+
+            List<ServiceInstance> all = new ArrayList<>();
+            instances.forEach((key, instance) -> {
+                if (key.startsWith(request.getServiceName() + ":")) {
+                    all.add(instance);
+                }
+            });
+            all.sort((a, b) -> a.getInstanceId().compareTo(b.getInstanceId()));
+
+            int start = request.getPageToken().isEmpty() ? 0 : Integer.parseInt(request.getPageToken());
+            int end = Math.min(start + pageSize, all.size());
+            DiscoverResponse.Builder response = DiscoverResponse.newBuilder()
+                    .addAllInstances(all.subList(start, end))
+                    .setTotalSize(all.size())
+                    .setRevision(current);
+            if (end < all.size()) {
+                response.setNextPageToken(String.valueOf(end));
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void register(RegisterRequest request, StreamObserver<RegisterResponse> responseObserver) {
+            put(request.getServiceName(), request.getInstanceId(), request.getPort());
+            responseObserver.onNext(RegisterResponse.newBuilder().setSuccess(true).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void heartbeat(HeartbeatRequest request, StreamObserver<HeartbeatResponse> responseObserver) {
+            heartbeats.incrementAndGet();
+            boolean known = instances.containsKey(request.getServiceName() + ":" + request.getInstanceId());
+            responseObserver.onNext(HeartbeatResponse.newBuilder().setSuccess(known).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void deregister(DeregisterRequest request, StreamObserver<DeregisterResponse> responseObserver) {
+            instances.remove(request.getServiceName() + ":" + request.getInstanceId());
+            responseObserver.onNext(DeregisterResponse.newBuilder().setSuccess(true).build());
+            responseObserver.onCompleted();
+        }
+    }
+}
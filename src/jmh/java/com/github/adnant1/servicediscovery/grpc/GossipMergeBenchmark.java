@@ -0,0 +1,115 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.adnant1.servicediscovery.gossip.LocalStateProvider;
+import com.github.adnant1.servicediscovery.gossip.Membership;
+import com.github.adnant1.servicediscovery.identity.NodeIdentityProvider;
+import com.github.adnant1.servicediscovery.metrics.GossipMetrics;
+import com.github.adnant1.servicediscovery.partition.PartitionRouter;
+import com.github.adnant1.servicediscovery.registry.GossipRequest;
+import com.github.adnant1.servicediscovery.registry.GossipResponse;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.store.InMemoryRegistryStore;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Measures how fast GossipService.sync merges a peer's state into registries of different sizes.
+ * In "newer" mode every instance in the request is newer than the local copy and is written;
+ * the request is rebuilt with a fresh timestamp for each call, which is included in the time.
+ * In "stale" mode the same request is replayed, so every instance is compared and skipped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GossipMergeBenchmark {
+
+    private static final int SERVICES = 100;
+    private static final int TTL_SECONDS = 3600;
+
+    @Param({"1000", "10000", "100000"})
+    private int registrySize;
+
+    @Param({"500"})
+    private int requestSize;
+
+    @Param({"newer", "stale"})
+    private String mode;
+
+    private GossipServiceImpl gossipService;
+    private Map<String, ServiceInstance> incoming;
+    private GossipRequest staleRequest;
+    private long timestamp;
+
+    @Setup
+    public void setUp() {
+        RegistryStore registryStore = new InMemoryRegistryStore(new ChangeNotifier(0), TTL_SECONDS, 100);
+        Membership membership = new Membership(new NodeIdentityProvider(50051), 5000, 60000, 3, 8);
+        // The gossip client is only used to relay SWIM probes, which this benchmark does not send
+        gossipService = new GossipServiceImpl(
+            registryStore, new LocalStateProvider(registryStore, 0), membership, null,
+            new PartitionRouter(membership, false, 128, 3), new GossipMetrics(new SimpleMeterRegistry()), 5000, 5000
+        );
+
+        for (int i = 0; i < registrySize; i++) {
+            registryStore.saveInstance("service-" + (i % SERVICES), "instance-" + i, "10.0.0.1", 8080);
+        }
+
+        // The peer's copies of the first requestSize instances
+        timestamp = System.currentTimeMillis();
+        incoming = new HashMap<>();
+        for (int i = 0; i < requestSize; i++) {
+            incoming.put("service-" + (i % SERVICES) + ":instance-" + i, ServiceInstance.newBuilder()
+                    .setInstanceId("instance-" + i)
+                    .setIp("10.0.0.2")
+                    .setPort(8080)
+                    .setLastUpdated(timestamp)
+                    .setTtl(TTL_SECONDS)
+                    .build());
+        }
+        staleRequest = GossipRequest.newBuilder().putAllInstances(incoming).build();
+    }
+
+    @Benchmark
+    public void sync(Blackhole blackhole) {
+        GossipRequest request = staleRequest;
+        if (mode.equals("newer")) {
+            long updated = ++timestamp;
+            GossipRequest.Builder builder = GossipRequest.newBuilder();
+            incoming.forEach((key, instance) -> builder.putInstances(key, instance.toBuilder().setLastUpdated(updated).build()));
+            request = builder.build();
+        }
+
+        gossipService.sync(request, new StreamObserver<GossipResponse>() {
+            @Override
+            public void onNext(GossipResponse response) {
+                blackhole.consume(response);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                blackhole.consume(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.adnant1.servicediscovery.redis;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.github.adnant1.servicediscovery.cache.DiscoveryCache;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * A RedisRepository for benchmarks, connected to the server named by REDIS_TEST_HOST
+ * (and REDIS_TEST_PORT, default 6379), like the Redis tests. It uses database 15, which is
+ * flushed when it connects and when it closes, and has the discovery cache disabled so every
+ * read reaches Redis.
+ */
+final class BenchmarkRedis implements AutoCloseable {
+
+    private static final int DATABASE = 15;
+
+    private final LettuceConnectionFactory connectionFactory;
+    private final RedisAsyncExecutor asyncExecutor;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisRepository repository;
+
+    BenchmarkRedis(int ttlSeconds) {
+        String host = System.getenv("REDIS_TEST_HOST");
+        if (host == null || host.isEmpty()) {
+            throw new IllegalStateException("REDIS_TEST_HOST must name the Redis server to benchmark against");
+        }
+
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+            host, Integer.parseInt(System.getenv().getOrDefault("REDIS_TEST_PORT", "6379"))
+        );
+        config.setDatabase(DATABASE);
+        connectionFactory = new LettuceConnectionFactory(config);
+        connectionFactory.afterPropertiesSet();
+        asyncExecutor = new RedisAsyncExecutor(connectionFactory);
+
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        flush();
+
+        RegistryScripts scripts = new RegistryScripts(redisTemplate);
+        scripts.preload();
+        repository = new RedisRepository(redisTemplate, scripts, new RegistryIndex(redisTemplate), asyncExecutor,
+            new DiscoveryCache(0, 0), new ChangeNotifier(0), new SimpleMeterRegistry(), ttlSeconds, false);
+    }
+
+    RedisRepository repository() {
+        return repository;
+    }
+
+    StringRedisTemplate redisTemplate() {
+        return redisTemplate;
+    }
+
+    @Override
+    public void close() {
+        flush();
+        asyncExecutor.close();
+        connectionFactory.destroy();
+    }
+
+    private void flush() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+    }
+}
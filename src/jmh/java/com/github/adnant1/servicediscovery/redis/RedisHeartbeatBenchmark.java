@@ -0,0 +1,158 @@
+package com.github.adnant1.servicediscovery.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.github.adnant1.servicediscovery.gossip.Membership;
+import com.github.adnant1.servicediscovery.grpc.RegistryServiceImpl;
+import com.github.adnant1.servicediscovery.heartbeat.HeartbeatBatcher;
+import com.github.adnant1.servicediscovery.identity.NodeIdentityProvider;
+import com.github.adnant1.servicediscovery.partition.PartitionRouter;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
+import com.github.adnant1.servicediscovery.registry.HeartbeatAck;
+import com.github.adnant1.servicediscovery.registry.HeartbeatRequest;
+import com.github.adnant1.servicediscovery.registry.HeartbeatResponse;
+import com.github.adnant1.servicediscovery.registry.RegistryServiceGrpc;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Measures the time to deliver one heartbeat for each of a number of instances against a real Redis:
+ * as that many unary Heartbeat calls in flight at once, as one HeartbeatStream carrying them all,
+ * and as a direct RedisRepository.refreshTtls call, the batched write the stream is flushed with.
+ * The RPCs go through an in-process gRPC server, so they include the per-call overhead of gRPC
+ * but no network. The stream is flushed as soon as its heartbeats are sent, rather than after
+ * the server's spring.heartbeat.flush-millis delay.
+ * Needs REDIS_TEST_HOST; see BenchmarkRedis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RedisHeartbeatBenchmark {
+
+    private static final String SERVICE = "bench-service";
+
+    // Long enough that nothing expires while a run is in progress
+    private static final int TTL_SECONDS = 3600;
+
+    @Param({"100", "1000", "10000"})
+    private int heartbeats;
+
+    private BenchmarkRedis redis;
+    private HeartbeatBatcher heartbeatBatcher;
+    private Server server;
+    private ManagedChannel channel;
+    private RegistryServiceGrpc.RegistryServiceStub asyncStub;
+    private List<HeartbeatRequest> requests;
+    private List<String> keys;
+
+    @Setup
+    public void setUp() throws Exception {
+        redis = new BenchmarkRedis(TTL_SECONDS);
+        RedisRepository repository = redis.repository();
+
+        requests = new ArrayList<>(heartbeats);
+        keys = new ArrayList<>(heartbeats);
+        for (int i = 0; i < heartbeats; i++) {
+            repository.saveInstance(SERVICE, "instance-" + i, "10.0.0." + (i % 250), 8080);
+            requests.add(HeartbeatRequest.newBuilder().setServiceName(SERVICE).setInstanceId("instance-" + i).build());
+            keys.add(SERVICE + ":instance-" + i);
+        }
+
+        // Partitioning is off, so nothing is forwarded
+        Membership membership = new Membership(new NodeIdentityProvider(50051), 5000, 60000, 3, 8);
+        RegistryForwarder registryForwarder = new RegistryForwarder(new PartitionRouter(membership, false, 128, 3), 2000);
+        heartbeatBatcher = new HeartbeatBatcher(repository, 1000, 100_000);
+        RegistryServiceImpl registryService = new RegistryServiceImpl(
+            repository, new ChangeNotifier(0), heartbeatBatcher, registryForwarder, 1000, 100_000, 1000
+        );
+
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(registryService).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        asyncStub = RegistryServiceGrpc.newStub(channel);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        redis.close();
+    }
+
+    @Benchmark
+    public void unaryHeartbeat() {
+        List<CompletableFuture<HeartbeatResponse>> responses = new ArrayList<>(heartbeats);
+        for (HeartbeatRequest request : requests) {
+            CompletableFuture<HeartbeatResponse> response = new CompletableFuture<>();
+            asyncStub.heartbeat(request, new StreamObserver<HeartbeatResponse>() {
+                @Override
+                public void onNext(HeartbeatResponse value) {
+                    response.complete(value);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    response.completeExceptionally(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                }
+            });
+            responses.add(response);
+        }
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+    }
+
+    @Benchmark
+    public void heartbeatStream() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        StreamObserver<HeartbeatRequest> stream = asyncStub.heartbeatStream(new StreamObserver<HeartbeatAck>() {
+            @Override
+            public void onNext(HeartbeatAck ack) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                done.countDown();
+            }
+        });
+
+        requests.forEach(stream::onNext);
+        stream.onCompleted();
+
+        // Flush the way the server's fixed-delay task would, until the stream has been acknowledged
+        do {
+            heartbeatBatcher.flush();
+        } while (!done.await(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Benchmark
+    public int refreshTtls() {
+        return redis.repository().refreshTtls(keys).size();
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.adnant1.servicediscovery.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+/**
+ * Measures RedisRepository's hot paths against a real Redis, against the number of instances of
+ * the service read: the get_instances script behind Discover, blocking and async, next to the per-key
+ * read it replaced (SMEMBERS, then one HGETALL per member and one SREM per expired member), and
+ * registration and heartbeat refreshes. The "pruning" variants first add instances/10 set members
+ * whose hash has expired, which each read path then removes.
+ * Needs REDIS_TEST_HOST; see BenchmarkRedis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RedisReadBenchmark {
+
+    private static final String SERVICE = "bench-service";
+
+    // Long enough that nothing expires while a run is in progress
+    private static final int TTL_SECONDS = 3600;
+
+    @Param({"10", "100", "1000"})
+    private int instances;
+
+    private BenchmarkRedis redis;
+    private RedisRepository repository;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        redis = new BenchmarkRedis(TTL_SECONDS);
+        repository = redis.repository();
+        for (int i = 0; i < instances; i++) {
+            repository.saveInstance(SERVICE, "instance-" + i, "10.0.0." + (i % 250), 8080);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        redis.close();
+    }
+
+    /**
+     * Adds members whose instance hash has expired to the service set before each call.
+     */
+    @State(Scope.Thread)
+    public static class StaleMembers {
+
+        @Setup(Level.Invocation)
+        public void addStaleMembers(RedisReadBenchmark benchmark) {
+            String[] stale = new String[Math.max(1, benchmark.instances / 10)];
+            for (int i = 0; i < stale.length; i++) {
+                stale[i] = SERVICE + ":expired-" + i;
+            }
+            benchmark.redis.redisTemplate().opsForSet().add("service:" + SERVICE, stale);
+        }
+    }
+
+    @Benchmark
+    public List<ServiceInstance> getInstances() {
+        return repository.getInstances(SERVICE);
+    }
+
+    @Benchmark
+    public List<ServiceInstance> getInstancesAsync() {
+        return repository.getInstancesAsync(SERVICE).join();
+    }
+
+    @Benchmark
+    public List<ServiceInstance> getInstancesPerKey() {
+        return perKeyRead(redis.redisTemplate(), SERVICE);
+    }
+
+    @Benchmark
+    public List<ServiceInstance> getInstancesPruning(StaleMembers stale) {
+        return repository.getInstances(SERVICE);
+    }
+
+    @Benchmark
+    public List<ServiceInstance> getInstancesPerKeyPruning(StaleMembers stale) {
+        return perKeyRead(redis.redisTemplate(), SERVICE);
+    }
+
+    @Benchmark
+    public void saveInstance() {
+        // Overwrites an existing instance, so the service size stays fixed
+        int i = nextIndex();
+        repository.saveInstance(SERVICE, "instance-" + i, "10.0.0.1", 8080);
+    }
+
+    @Benchmark
+    public boolean refreshTtl() {
+        return repository.refreshTtl(SERVICE, "instance-" + nextIndex());
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) % instances;
+        return i;
+    }
+
+    /**
+     * The read path the get_instances script replaced: SMEMBERS, then one HGETALL per member,
+     * removing members whose hash has expired one SREM at a time.
+     */
+    private static List<ServiceInstance> perKeyRead(StringRedisTemplate redisTemplate, String serviceName) {
+        Set<String> keys = redisTemplate.opsForSet().members("service:" + serviceName);
+        if (keys == null || keys.isEmpty()) {
+            return List.of();
+        }
+
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (String key : keys) {
+            Map<Object, Object> fields = redisTemplate.opsForHash().entries(key);
+            String ip = (String) fields.get("ip");
+            String port = (String) fields.get("port");
+            if (ip != null && port != null) {
+                instances.add(ServiceInstance.newBuilder()
+                        .setInstanceId(key.split(":", 2)[1])
+                        .setIp(ip)
+                        .setPort(Integer.parseInt(port))
+                        .build());
+            } else {
+                redisTemplate.opsForSet().remove("service:" + serviceName, key);
+            }
+        }
+        return instances;
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.adnant1.servicediscovery.registry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * Measures protobuf encoding and decoding of the two largest messages on the wire:
+ * a full-state GossipRequest and a DiscoverResponse for a large service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageCodecBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int instances;
+
+    private GossipRequest gossipRequest;
+    private DiscoverResponse discoverResponse;
+    private byte[] gossipBytes;
+    private byte[] discoverBytes;
+
+    @Setup
+    public void setUp() {
+        GossipRequest.Builder gossip = GossipRequest.newBuilder();
+        DiscoverResponse.Builder discover = DiscoverResponse.newBuilder();
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < instances; i++) {
+            ServiceInstance instance = ServiceInstance.newBuilder()
+                    .setInstanceId("instance-" + i)
+                    .setIp("10.0." + (i / 250 % 250) + "." + (i % 250))
+                    .setPort(8080)
+                    .setLastUpdated(now)
+                    .setTtl(30)
+                    .build();
+            gossip.putInstances("service-" + (i % 100) + ":instance-" + i, instance);
+            discover.addInstances(instance);
+        }
+
+        gossipRequest = gossip.build();
+        discoverResponse = discover.build();
+        gossipBytes = gossipRequest.toByteArray();
+        discoverBytes = discoverResponse.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeGossipRequest() {
+        return gossipRequest.toByteArray();
+    }
+
+    @Benchmark
+    public GossipRequest decodeGossipRequest() throws InvalidProtocolBufferException {
+        return GossipRequest.parseFrom(gossipBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeDiscoverResponse() {
+        return discoverResponse.toByteArray();
+    }
+
+    @Benchmark
+    public DiscoverResponse decodeDiscoverResponse() throws InvalidProtocolBufferException {
+        return DiscoverResponse.parseFrom(discoverBytes);
+    }
+}
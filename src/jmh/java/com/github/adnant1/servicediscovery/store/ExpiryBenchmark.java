@@ -0,0 +1,108 @@
+package com.github.adnant1.servicediscovery.store;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the timing wheel with a DelayQueue for instance expiry under heartbeat load:
+ * every instance is registered, refreshed several times, then left to expire. The DelayQueue
+ * cannot move an element in place, so each refresh offers a new element and stale ones are
+ * skipped when polled, the usual way to use it for renewable deadlines. Each operation is
+ * one whole run over a simulated clock, so no run waits in real time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExpiryBenchmark {
+
+    private static final int REFRESHES = 5;
+    private static final long TTL_MILLIS = 30_000;
+    private static final long HEARTBEAT_MILLIS = 5_000;
+    private static final long TICK_MILLIS = 100;
+
+    private record Deadline(String key, long expiresAt) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAt - now, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAt, ((Deadline) other).expiresAt);
+        }
+    }
+
+    // Simulated clock shared with the DelayQueue elements
+    private static long now;
+
+    @Param({"10000", "100000", "1000000"})
+    private int instanceCount;
+
+    @Benchmark
+    public int timingWheel() {
+        now = 0;
+
+        TimingWheel<String> wheel = new TimingWheel<>(TICK_MILLIS, now);
+        for (int round = 0; round <= REFRESHES; round++) {
+            for (int i = 0; i < instanceCount; i++) {
+                wheel.schedule("instance-" + i, now + TTL_MILLIS);
+            }
+            now += HEARTBEAT_MILLIS;
+            wheel.advance(now);
+        }
+
+        int expired = 0;
+        while (expired < instanceCount) {
+            now += TICK_MILLIS;
+            expired += wheel.advance(now).size();
+        }
+        return expired;
+    }
+
+    @Benchmark
+    public int delayQueue() {
+        now = 0;
+
+        DelayQueue<Deadline> queue = new DelayQueue<>();
+        Map<String, Long> deadlines = new HashMap<>();
+        int expired = 0;
+        for (int round = 0; round <= REFRESHES; round++) {
+            for (int i = 0; i < instanceCount; i++) {
+                String key = "instance-" + i;
+                deadlines.put(key, now + TTL_MILLIS);
+                queue.offer(new Deadline(key, now + TTL_MILLIS));
+            }
+            now += HEARTBEAT_MILLIS;
+            expired += drain(queue, deadlines);
+        }
+
+        while (expired < instanceCount) {
+            now += TICK_MILLIS;
+            expired += drain(queue, deadlines);
+        }
+        return expired;
+    }
+
+    private static int drain(DelayQueue<Deadline> queue, Map<String, Long> deadlines) {
+        int expired = 0;
+        Deadline deadline;
+        while ((deadline = queue.poll()) != null) {
+            // Skip elements superseded by a later refresh
+            if (deadlines.remove(deadline.key(), deadline.expiresAt())) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.adnant1.servicediscovery.store;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.adnant1.servicediscovery.gossip.LocalStateProvider;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+/**
+ * Measures the registry's hot paths against registry size: Discover reads, registration,
+ * heartbeat refreshes and the full dump behind anti-entropy. Instances are spread evenly
+ * over a fixed number of services, so a Discover read returns registrySize / SERVICES instances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegistryStoreBenchmark {
+
+    private static final int SERVICES = 100;
+
+    // Long enough that nothing expires while a run is in progress
+    private static final int TTL_SECONDS = 3600;
+
+    @Param({"1000", "10000", "100000"})
+    private int registrySize;
+
+    private RegistryStore registryStore;
+    private LocalStateProvider localStateProvider;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        registryStore = new InMemoryRegistryStore(new ChangeNotifier(0), TTL_SECONDS, 100);
+        localStateProvider = new LocalStateProvider(registryStore, 0);
+
+        for (int i = 0; i < registrySize; i++) {
+            registryStore.saveInstance(service(i), "instance-" + i, "10.0." + (i / 250 % 250) + "." + (i % 250), 8080);
+        }
+    }
+
+    @Benchmark
+    public List<ServiceInstance> getInstances() {
+        return registryStore.getInstances(service(nextIndex()));
+    }
+
+    @Benchmark
+    public void saveInstance() {
+        // Overwrites an existing instance, so the registry size stays fixed
+        int i = nextIndex();
+        registryStore.saveInstance(service(i), "instance-" + i, "10.0.0.1", 8080);
+    }
+
+    @Benchmark
+    public boolean refreshTtl() {
+        int i = nextIndex();
+        return registryStore.refreshTtl(service(i), "instance-" + i);
+    }
+
+    @Benchmark
+    public Map<String, ServiceInstance> dumpServices() {
+        return localStateProvider.dumpServices();
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) % registrySize;
+        return i;
+    }
+
+    private static String service(int i) {
+        return "service-" + (i % SERVICES);
+    }
+}
@@ -0,0 +1,257 @@
+package com.github.adnant1.servicediscovery.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+/**
+ * Bounded in-process cache of discovered instance lists, keyed by service name.
+ * Entries expire after a fixed TTL and the oldest entry is evicted once the cache is full.
+ * Writers invalidate a service whenever its membership changes, so a hit never serves
+ * data older than the last local write. Invalidations are counted per service while a load
+ * of it is in flight, so writes to one service never stop another from being cached, and
+ * services nobody is loading take no space beyond their cached entry.
+ */
+@Component
+public class DiscoveryCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Service name -> loads in flight and invalidations since the first of them; removed when the last load ends
+    private final Map<String, Loads> loading = new ConcurrentHashMap<>();
+    // Number of invalidateAll calls
+    private final AtomicLong epoch = new AtomicLong();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public DiscoveryCache(@Value("${spring.discover-cache.max-size:1000}") int maxSize,
+                          @Value("${spring.discover-cache.ttl-millis:5000}") long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the cached instances of a service, loading them on a miss.
+     * A loaded value is only stored if the service was not invalidated while it was being loaded.
+     *
+     * @param serviceName the name of the service
+     * @param loader function that reads the instances from the backing store
+     * @return the list of instances for the service
+     */
+    public List<ServiceInstance> get(String serviceName, Function<String, List<ServiceInstance>> loader) {
+        if (maxSize <= 0) {
+            return loader.apply(serviceName); // Cache disabled
+        }
+
+        long now = System.currentTimeMillis();
+        List<ServiceInstance> cached = lookup(serviceName, now);
+        if (cached != null) {
+            return cached;
+        }
+
+        Generation observed = beginLoad(serviceName);
+        try {
+            return store(serviceName, loader.apply(serviceName), observed, now);
+        } finally {
+            endLoad(serviceName);
+        }
+    }
+
+    /**
+     * Returns the cached instances of a service, loading them asynchronously on a miss.
+     * Follows the same rules as {@link #get}, with the loaded value stored when the load completes.
+     *
+     * @param serviceName the name of the service
+     * @param loader function that starts reading the instances from the backing store
+     * @return a future completed with the list of instances for the service
+     */
+    public CompletableFuture<List<ServiceInstance>> getAsync(String serviceName,
+            Function<String, CompletableFuture<List<ServiceInstance>>> loader) {
+        if (maxSize <= 0) {
+            return loader.apply(serviceName); // Cache disabled
+        }
+
+        long now = System.currentTimeMillis();
+        List<ServiceInstance> cached = lookup(serviceName, now);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        Generation observed = beginLoad(serviceName);
+        CompletableFuture<List<ServiceInstance>> loaded;
+        try {
+            loaded = loader.apply(serviceName);
+        } catch (RuntimeException e) {
+            endLoad(serviceName);
+            throw e;
+        }
+        return loaded
+                .thenApply(instances -> store(serviceName, instances, observed, now))
+                .whenComplete((instances, error) -> endLoad(serviceName));
+    }
+
+    /**
+     * Drops the cached instances of a service.
+     *
+     * @param serviceName the name of the service whose membership changed
+     */
+    public void invalidate(String serviceName) {
+        // Only a load in flight can store stale instances, so nothing needs counting otherwise
+        loading.computeIfPresent(serviceName, (name, loads) -> new Loads(loads.inFlight(), loads.invalidations() + 1));
+        if (entries.remove(serviceName) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Drops every cached service.
+     */
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        int size = entries.size();
+        entries.clear();
+        invalidations.add(size);
+    }
+
+    /**
+     * Returns a point-in-time view of the cache counters.
+     *
+     * @return the current cache statistics
+     */
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entries.size());
+    }
+
+    /**
+     * Returns a live cached entry and counts the hit, or counts a miss and drops an expired entry.
+     *
+     * @return the cached instances, or null on a miss
+     */
+    private List<ServiceInstance> lookup(String serviceName, long now) {
+        Entry entry = entries.get(serviceName);
+        if (entry != null) {
+            if (entry.expiresAt() > now) {
+                hits.increment();
+                return entry.instances();
+            }
+
+            // Expired, drop it so the next caller does not see it either
+            if (entries.remove(serviceName, entry)) {
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Registers a load of a service and returns the generation it starts from.
+     */
+    private Generation beginLoad(String serviceName) {
+        Loads loads = loading.compute(serviceName,
+            (name, current) -> current == null ? new Loads(1, 0) : new Loads(current.inFlight() + 1, current.invalidations()));
+        return new Generation(epoch.get(), loads.invalidations());
+    }
+
+    /**
+     * Unregisters a load of a service, dropping its counter once no load of it is in flight.
+     */
+    private void endLoad(String serviceName) {
+        loading.computeIfPresent(serviceName,
+            (name, loads) -> loads.inFlight() > 1 ? new Loads(loads.inFlight() - 1, loads.invalidations()) : null);
+    }
+
+    private Generation generation(String serviceName) {
+        Loads loads = loading.get(serviceName);
+        return new Generation(epoch.get(), loads != null ? loads.invalidations() : 0L);
+    }
+
+    /**
+     * Caches loaded instances unless the service was invalidated since the load started.
+     *
+     * @return an immutable copy of the loaded instances
+     */
+    private List<ServiceInstance> store(String serviceName, List<ServiceInstance> loaded, Generation observed,
+                                        long now) {
+        List<ServiceInstance> instances = List.copyOf(loaded);
+
+        if (generation(serviceName).equals(observed)) {
+            if (!entries.containsKey(serviceName)) {
+                makeRoom(now);
+            }
+            Entry entry = new Entry(instances, now + ttlMillis);
+            entries.put(serviceName, entry);
+
+            // An invalidation between the check and the put would otherwise miss this entry
+            if (!generation(serviceName).equals(observed)) {
+                entries.remove(serviceName, entry);
+            }
+        }
+
+        return instances;
+    }
+
+    /**
+     * Evicts expired entries and, if the cache is still full, the entry closest to expiry.
+     * Only runs on a miss that would grow the cache past its bound.
+     *
+     * @param now the current time in milliseconds
+     */
+    private void makeRoom(long now) {
+        if (entries.size() < maxSize) {
+            return;
+        }
+
+        entries.entrySet().removeIf(e -> {
+            boolean expired = e.getValue().expiresAt() <= now;
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+
+        while (entries.size() >= maxSize) {
+            String oldest = null;
+            long oldestExpiry = Long.MAX_VALUE;
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (e.getValue().expiresAt() < oldestExpiry) {
+                    oldest = e.getKey();
+                    oldestExpiry = e.getValue().expiresAt();
+                }
+            }
+
+            if (oldest == null) {
+                return;
+            }
+
+            if (entries.remove(oldest) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private record Entry(List<ServiceInstance> instances, long expiresAt) {}
+
+    private record Generation(long epoch, long service) {}
+
+    private record Loads(int inFlight, long invalidations) {}
+
+    /**
+     * Cache counters since startup.
+     */
+    public record Stats(long hits, long misses, long evictions, long invalidations, int size) {}
+}
@@ -0,0 +1,230 @@
+package com.github.adnant1.servicediscovery.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.registry.DiscoverResponse;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Immutable, versioned read model of the whole registry, enabled with spring.discover-snapshot.enabled.
+ * Each service maps to its instance list and to the serialized DiscoverResponse for it, so a Discover
+ * read is one volatile read and no store access, parsing or serialization.
+ *
+ * Writers never touch the snapshot. Every change published to the ChangeNotifier (register, deregister,
+ * heartbeat, gossip merge, expiry) marks its service dirty, and every spring.discover-snapshot.apply-millis
+ * the dirty services are reloaded into a copy of the snapshot, which then replaces it atomically.
+ * The whole snapshot is also rebuilt every spring.discover-snapshot.rebuild-millis, which bounds the
+ * staleness of changes no event is published for, such as Redis expiries without keyspace notifications.
+ * Every read is checked with ChangeNotifier.observe, so such a change also raises the service's revision.
+ * Both run on the snapshot's own thread rather than the shared scheduling pool, so a slow store read
+ * every few milliseconds never holds up gossip rounds or heartbeat flushes.
+ */
+@Component
+public class DiscoverySnapshot implements ChangeNotifier.Watcher {
+
+    private final Logger logger = LoggerFactory.getLogger(DiscoverySnapshot.class);
+
+    private final RegistryStore registryStore;
+    private final ChangeNotifier changeNotifier;
+    private final boolean enabled;
+    private final long applyMillis;
+    private final long rebuildMillis;
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService executor;
+
+    // Null until the first rebuild
+    private volatile Snapshot current;
+
+    public DiscoverySnapshot(RegistryStore registryStore, ChangeNotifier changeNotifier,
+                             @Value("${spring.discover-snapshot.enabled:false}") boolean enabled,
+                             @Value("${spring.discover-snapshot.apply-millis:10}") long applyMillis,
+                             @Value("${spring.discover-snapshot.rebuild-millis:5000}") long rebuildMillis) {
+        this.registryStore = registryStore;
+        this.changeNotifier = changeNotifier;
+        this.enabled = enabled;
+        this.applyMillis = applyMillis;
+        this.rebuildMillis = rebuildMillis;
+        if (enabled) {
+            changeNotifier.listen(this);
+        }
+    }
+
+    /**
+     * Starts rebuilding the snapshot, first right away, and applying changes to it.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("discover-snapshot").daemon().factory());
+        executor.scheduleWithFixedDelay(this::rebuild, 0, rebuildMillis, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::applyChanges, applyMillis, applyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns a service's entry in the current snapshot.
+     *
+     * @param serviceName the name of the service
+     * @return the service's instances and response, or null if the snapshot is not built yet
+     */
+    public ServiceView view(String serviceName) {
+        Snapshot snapshot = current;
+        if (snapshot == null) {
+            return null;
+        }
+
+        ServiceView view = snapshot.services().get(serviceName);
+        return view != null ? view : ServiceView.of(List.of(), changeNotifier.serviceRevision(serviceName));
+    }
+
+    /**
+     * Returns the version of the current snapshot, raised on every swap.
+     *
+     * @return the snapshot version, or 0 if it is not built yet
+     */
+    public long version() {
+        Snapshot snapshot = current;
+        return snapshot != null ? snapshot.version() : 0;
+    }
+
+    /**
+     * Marks the service of a change dirty. Called under the notifier's lock, so it only records the name.
+     */
+    @Override
+    public void onEvent(WatchEvent event) {
+        dirty.add(event.getServiceName());
+    }
+
+    /**
+     * Reloads the dirty services and swaps in the new snapshot.
+     * Runs every spring.discover-snapshot.apply-millis.
+     */
+    public synchronized void applyChanges() {
+        Snapshot snapshot = current;
+        if (!enabled || snapshot == null || dirty.isEmpty()) {
+            return;
+        }
+
+        List<String> changed = new ArrayList<>(dirty);
+        dirty.removeAll(changed);
+
+        try {
+            Map<String, ServiceView> services = new HashMap<>(snapshot.services());
+            for (String serviceName : changed) {
+                // Read before the instances, so a change made meanwhile is never reported as not modified
+                long revision = changeNotifier.serviceRevision(serviceName);
+                List<ServiceInstance> instances = registryStore.getInstances(serviceName);
+                revision = changeNotifier.observe(serviceName, revision, instances);
+                if (instances.isEmpty()) {
+                    services.remove(serviceName);
+                } else {
+                    services.put(serviceName, ServiceView.of(instances, revision));
+                }
+            }
+            current = new Snapshot(snapshot.version() + 1, Map.copyOf(services));
+        } catch (Exception e) {
+            dirty.addAll(changed); // Retried on the next run
+            logger.warn("Failed to apply {} changed services to the discovery snapshot: {}", changed.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the whole snapshot from one store dump.
+     * Runs every spring.discover-snapshot.rebuild-millis, and first at startup.
+     */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            // Changes from here on are applied on top of the dump
+            dirty.clear();
+
+            Map<String, List<ServiceInstance>> grouped = new HashMap<>();
+            registryStore.dumpServices().forEach((key, instance) -> {
+                int colon = key.indexOf(':');
+                String serviceName = colon >= 0 ? key.substring(0, colon) : key;
+                grouped.computeIfAbsent(serviceName, name -> new ArrayList<>()).add(instance);
+            });
+
+            Map<String, ServiceView> services = new HashMap<>();
+            grouped.forEach((serviceName, instances) -> {
+                // A service changed during the dump may hold older instances than its revision says.
+                // It is dirty already, so it gets revision 0, which no request matches, until it is applied.
+                long revision = changeNotifier.serviceRevision(serviceName);
+                if (dirty.contains(serviceName)) {
+                    services.put(serviceName, ServiceView.of(instances, 0));
+                } else {
+                    services.put(serviceName, ServiceView.of(instances, changeNotifier.observe(serviceName, revision, instances)));
+                }
+            });
+
+            Snapshot snapshot = current;
+            if (snapshot != null) {
+                // Services gone from the dump without an event, e.g. expired, still need a new revision
+                for (String serviceName : snapshot.services().keySet()) {
+                    if (!services.containsKey(serviceName) && !dirty.contains(serviceName)) {
+                        changeNotifier.observe(serviceName, changeNotifier.serviceRevision(serviceName), List.of());
+                    }
+                }
+            }
+            current = new Snapshot(snapshot != null ? snapshot.version() + 1 : 1, Map.copyOf(services));
+        } catch (Exception e) {
+            logger.warn("Failed to rebuild the discovery snapshot: {}", e.getMessage());
+        }
+    }
+
+    private record Snapshot(long version, Map<String, ServiceView> services) {}
+
+    /**
+     * A service's instances ordered by instance ID, the revision they were read at,
+     * and the serialized DiscoverResponse holding all of them.
+     */
+    public record ServiceView(List<ServiceInstance> instances, long revision, byte[] responseBytes) {
+        static ServiceView of(List<ServiceInstance> instances, long revision) {
+            List<ServiceInstance> sorted = instances.stream()
+                    .sorted(Comparator.comparing(ServiceInstance::getInstanceId))
+                    .toList();
+            byte[] response = DiscoverResponse.newBuilder()
+                    .addAllInstances(sorted)
+                    .setTotalSize(sorted.size())
+                    .setRevision(revision)
+                    .build()
+                    .toByteArray();
+            return new ServiceView(sorted, revision, response);
+        }
+    }
+}
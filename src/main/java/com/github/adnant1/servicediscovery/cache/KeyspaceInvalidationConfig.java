@@ -0,0 +1,133 @@
+package com.github.adnant1.servicediscovery.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+/**
+ * Subscribes to Redis keyspace notifications and invalidates the discovery cache
+ * for every service whose keys change outside of this node's write path
+ * (TTL expiry, other writers sharing the same Redis).
+ * Expired instance hashes are also published to watchers as removals, since
+ * expiry is the one change that never goes through the repository, and any other
+ * change raises the service's revision, in case another writer made it.
+ */
+@Configuration
+@ConditionalOnExpression(
+    "${spring.discover-cache.keyspace-notifications:false} and '${spring.registry.store:redis}' == 'redis'"
+)
+public class KeyspaceInvalidationConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyspaceInvalidationConfig.class);
+
+    // E = keyevent channels, g = DEL/EXPIRE, h = hash, s = set, x = expired
+    private static final String NOTIFY_FLAGS = "Eghsx";
+
+    private static final List<PatternTopic> TOPICS = List.of(
+            new PatternTopic("__keyevent@*__:expired"),
+            new PatternTopic("__keyevent@*__:del"),
+            new PatternTopic("__keyevent@*__:hset"),
+            new PatternTopic("__keyevent@*__:sadd"),
+            new PatternTopic("__keyevent@*__:srem")
+    );
+
+    @Bean
+    public RedisMessageListenerContainer keyspaceListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                   StringRedisTemplate redisTemplate,
+                                                                   DiscoveryCache discoveryCache,
+                                                                   ChangeNotifier changeNotifier) {
+        enableNotifications(redisTemplate);
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(new InvalidatingListener(discoveryCache, changeNotifier), TOPICS);
+        return container;
+    }
+
+    /**
+     * Turns on keyspace notifications in Redis. Managed Redis offerings often
+     * disallow CONFIG, in which case the flags have to be set by the operator.
+     *
+     * @param redisTemplate the template used to issue CONFIG SET
+     */
+    private void enableNotifications(StringRedisTemplate redisTemplate) {
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                connection.serverCommands().setConfig("notify-keyspace-events", NOTIFY_FLAGS);
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Could not enable Redis keyspace notifications: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Maps a changed Redis key back to its service name and invalidates it.
+     */
+    static class InvalidatingListener implements MessageListener {
+
+        private final DiscoveryCache discoveryCache;
+        private final ChangeNotifier changeNotifier;
+
+        InvalidatingListener(DiscoveryCache discoveryCache, ChangeNotifier changeNotifier) {
+            this.discoveryCache = discoveryCache;
+            this.changeNotifier = changeNotifier;
+        }
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            String key = new String(message.getBody(), StandardCharsets.UTF_8);
+            String serviceName = serviceNameOf(key);
+            if (serviceName == null) {
+                return;
+            }
+
+            discoveryCache.invalidate(serviceName);
+
+            String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+            if (channel.endsWith(":expired") && !key.startsWith("service:")) {
+                String instanceId = key.substring(serviceName.length() + 1);
+                changeNotifier.publish(
+                    WatchEvent.Type.REMOVED, serviceName, ServiceInstance.newBuilder().setInstanceId(instanceId).build()
+                );
+            } else {
+                changeNotifier.touch(serviceName);
+            }
+        }
+
+        /**
+         * Extracts the service name from a "service:name" set key or a "name:instanceId" hash key.
+         *
+         * @param key the Redis key that changed
+         * @return the service name, or null if the key is not registry data
+         */
+        static String serviceNameOf(String key) {
+            if (key.startsWith("service:")) {
+                return key.substring("service:".length());
+            }
+
+            if (key.startsWith("registry:") || key.startsWith("node:") || key.startsWith("lease:")) {
+                return null;
+            }
+
+            int colon = key.indexOf(':');
+            return colon > 0 ? key.substring(0, colon) : null;
+        }
+    }
+}
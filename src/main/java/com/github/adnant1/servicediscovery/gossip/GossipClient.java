@@ -1,56 +1,362 @@
 package com.github.adnant1.servicediscovery.gossip;
 
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import com.github.adnant1.servicediscovery.metrics.GossipMetrics;
+import com.github.adnant1.servicediscovery.registry.DigestRequest;
+import com.github.adnant1.servicediscovery.registry.DigestResponse;
+import com.github.adnant1.servicediscovery.registry.FetchRequest;
+import com.github.adnant1.servicediscovery.registry.FetchResponse;
 import com.github.adnant1.servicediscovery.registry.GossipRequest;
 import com.github.adnant1.servicediscovery.registry.GossipResponse;
 import com.github.adnant1.servicediscovery.registry.GossipServiceGrpc;
-import com.github.adnant1.servicediscovery.registry.NodeInfo;
+import com.github.adnant1.servicediscovery.registry.MemberUpdate;
+import com.github.adnant1.servicediscovery.registry.PingReqRequest;
+import com.github.adnant1.servicediscovery.registry.PingRequest;
+import com.github.adnant1.servicediscovery.registry.PingResponse;
 import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.MessageLite;
 
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import jakarta.annotation.PreDestroy;
 
 /**
  * Client for communicating with peer nodes in the gossip protocol.
- * Opens channels to a given peer, builds a GossipRequest, and invokes 
- * that peer's sync gRPC method.
+ * Keeps one long-lived channel per peer address and invokes that peer's
+ * gossip RPCs through future stubs with a deadline, so a slow or dead peer
+ * never blocks the scheduling thread. Channels are evicted once their peer
+ * leaves the PeerRegistry or they have not been used for a while.
+ * The size of every request sent and response received is recorded in GossipMetrics.
+ * Large pushes can be streamed in chunks of spring.gossip.stream.chunk-size instances, sent only
+ * as fast as the peer takes them, and every message is compressed with spring.gossip.compression.
+ * SWIM probes use the shorter spring.gossip.swim.probe-timeout-millis deadline; an indirect probe
+ * gets twice that, so the relaying member has time to probe the target itself.
  */
 @Component
 public class GossipClient {
 
+    private final Logger logger = LoggerFactory.getLogger(GossipClient.class);
+
+    private final Map<String, PooledChannel> channels = new ConcurrentHashMap<>();
+    private final PeerRegistry peerRegistry;
+    private final GossipMetrics gossipMetrics;
+    private final long deadlineMillis;
+    private final long idleTimeoutSeconds;
+    private final long keepAliveSeconds;
+    private final int chunkSize;
+    private final long streamDeadlineMillis;
+    private final String compression;
+    private final long probeTimeoutMillis;
+
+    public GossipClient(PeerRegistry peerRegistry, GossipMetrics gossipMetrics,
+                        @Value("${spring.gossip.deadline-millis:3000}") long deadlineMillis,
+                        @Value("${spring.gossip.channel.idle-timeout-seconds:300}") long idleTimeoutSeconds,
+                        @Value("${spring.gossip.channel.keepalive-seconds:30}") long keepAliveSeconds,
+                        @Value("${spring.gossip.stream.chunk-size:500}") int chunkSize,
+                        @Value("${spring.gossip.stream.deadline-millis:30000}") long streamDeadlineMillis,
+                        @Value("${spring.gossip.compression:gzip}") String compression,
+                        @Value("${spring.gossip.swim.probe-timeout-millis:500}") long probeTimeoutMillis) {
+        this.peerRegistry = peerRegistry;
+        this.gossipMetrics = gossipMetrics;
+        this.deadlineMillis = deadlineMillis;
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+        this.keepAliveSeconds = keepAliveSeconds;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.streamDeadlineMillis = streamDeadlineMillis;
+        this.compression = compression;
+        this.probeTimeoutMillis = probeTimeoutMillis;
+    }
+
     /**
      * Sends local state to a peer node using the GossipService sync RPC.
-     * 
+     *
      * @param peerAddress the hostname:port of the peer node
      * @param localState a map of instanceId -> ServiceInstance representing local state
-     * @return GossipResponse from the peer node
+     * @param members the membership updates to piggyback
+     * @return a future completed with the GossipResponse from the peer node
+     */
+    public CompletableFuture<GossipResponse> sync(String peerAddress, Map<String, ServiceInstance> localState,
+                                                  List<MemberUpdate> members) {
+        // Build the request and call the RPC
+        GossipRequest request = GossipRequest.newBuilder()
+                .putAllInstances(localState)
+                .addAllMembers(members)
+                .build();
+
+        return sync(peerAddress, request);
+    }
+
+    /**
+     * Sends a prepared gossip request to a peer node using the GossipService sync RPC.
+     *
+     * @param peerAddress the hostname:port of the peer node
+     * @param request the request, which may also ask the peer to return its newer entries
+     * @return a future completed with the GossipResponse from the peer node
+     */
+    public CompletableFuture<GossipResponse> sync(String peerAddress, GossipRequest request) {
+        return call(peerAddress, "sync", request, stub -> stub.sync(request));
+    }
+
+    /**
+     * Streams local state to a peer node using the GossipService syncStream RPC.
+     * Instances are sent in chunks, with the membership updates in the first one. The next chunk is only built
+     * once the transport is ready for it, so at most one chunk is buffered regardless of the state size.
+     *
+     * @param peerAddress the hostname:port of the peer node
+     * @param localState a map of instance keys to instances to push
+     * @param members the membership updates to piggyback
+     * @return a future completed with the GossipResponse from the peer node once every chunk was merged
+     */
+    public CompletableFuture<GossipResponse> syncStream(String peerAddress, Map<String, ServiceInstance> localState,
+                                                        List<MemberUpdate> members) {
+        GossipServiceGrpc.GossipServiceStub stub;
+        try {
+            stub = withCompression(GossipServiceGrpc.newStub(channelFor(peerAddress))
+                    .withDeadlineAfter(streamDeadlineMillis, TimeUnit.MILLISECONDS));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e); // Malformed peer address
+        }
+
+        CompletableFuture<GossipResponse> result = new CompletableFuture<>();
+        Iterator<Map.Entry<String, ServiceInstance>> entries = localState.entrySet().iterator();
+
+        stub.syncStream(new ClientResponseObserver<GossipRequest, GossipResponse>() {
+            private ClientCallStreamObserver<GossipRequest> requests;
+            private boolean firstChunk = true;
+            private boolean done;
+
+            @Override
+            public void beforeStart(ClientCallStreamObserver<GossipRequest> requestStream) {
+                this.requests = requestStream;
+                requestStream.setOnReadyHandler(this::sendChunks);
+            }
+
+            // Runs whenever the transport can take more; calls are serialized by gRPC
+            private void sendChunks() {
+                while (!done && requests.isReady()) {
+                    GossipRequest.Builder chunk = GossipRequest.newBuilder();
+                    if (firstChunk) {
+                        chunk.addAllMembers(members);
+                        firstChunk = false;
+                    }
+                    for (int i = 0; i < chunkSize && entries.hasNext(); i++) {
+                        Map.Entry<String, ServiceInstance> entry = entries.next();
+                        chunk.putInstances(entry.getKey(), entry.getValue());
+                    }
+
+                    GossipRequest request = chunk.build();
+                    gossipMetrics.recordPayload("syncStream", "sent", request.getSerializedSize());
+                    requests.onNext(request);
+
+                    if (!entries.hasNext()) {
+                        done = true;
+                        requests.onCompleted();
+                    }
+                }
+            }
+
+            @Override
+            public void onNext(GossipResponse response) {
+                gossipMetrics.recordPayload("syncStream", "received", response.getSerializedSize());
+                result.complete(response);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done = true;
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Sends the local service bucket hashes to a peer node using the GossipService digest RPC.
+     *
+     * @param peerAddress the hostname:port of the peer node
+     * @param request the local service bucket hashes
+     * @return a future completed with the differing service buckets and the peer's leaf hashes under them
+     */
+    public CompletableFuture<DigestResponse> digest(String peerAddress, DigestRequest request) {
+        return call(peerAddress, "digest", request, stub -> stub.digest(request));
+    }
+
+    /**
+     * Fetches the peer's instances in the given hash tree leaves using the GossipService fetch RPC.
+     *
+     * @param peerAddress the hostname:port of the peer node
+     * @param request the leaves to fetch
+     * @return a future completed with the peer's instances in those leaves
+     */
+    public CompletableFuture<FetchResponse> fetch(String peerAddress, FetchRequest request) {
+        return call(peerAddress, "fetch", request, stub -> stub.fetch(request));
+    }
+
+    /**
+     * Probes a member directly using the GossipService ping RPC.
+     *
+     * @param peerAddress the hostname:port of the member
+     * @param request the ping, naming the member expected to acknowledge it
+     * @return a future completed with the member's acknowledgement
+     */
+    public CompletableFuture<PingResponse> ping(String peerAddress, PingRequest request) {
+        return call(peerAddress, "ping", request, probeTimeoutMillis, stub -> stub.ping(request));
+    }
+
+    /**
+     * Asks another member to probe the target on this node's behalf using the GossipService pingReq RPC.
+     *
+     * @param peerAddress the hostname:port of the relaying member
+     * @param request the member to probe
+     * @return a future completed with the relayed acknowledgement
+     */
+    public CompletableFuture<PingResponse> pingReq(String peerAddress, PingReqRequest request) {
+        return call(peerAddress, "pingReq", request, 2 * probeTimeoutMillis, stub -> stub.pingReq(request));
+    }
+
+    /**
+     * Shuts down channels to peers that are no longer known, or that have been idle
+     * longer than the idle timeout. Scheduled to run every 30 seconds.
+     */
+    @Scheduled(fixedRate = 30000)
+    public void evictChannels() {
+        Set<String> known = new HashSet<>(peerRegistry.knownPeers());
+        long idleCutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+
+        channels.entrySet().removeIf(entry -> {
+            boolean evict = !known.contains(entry.getKey()) || entry.getValue().lastUsed() < idleCutoff;
+            if (evict) {
+                logger.info("Closing gossip channel to {}", entry.getKey());
+                entry.getValue().channel().shutdown();
+            }
+            return evict;
+        });
+    }
+
+    /**
+     * Shuts down every pooled channel.
+     */
+    @PreDestroy
+    public void shutdown() {
+        channels.values().forEach(pooled -> pooled.channel().shutdown());
+        channels.clear();
+    }
+
+    /**
+     * Invokes an RPC on the peer's pooled channel with the configured deadline.
+     */
+    private <T extends MessageLite> CompletableFuture<T> call(String peerAddress, String rpcName, MessageLite request,
+                                                              Function<GossipServiceGrpc.GossipServiceFutureStub, ListenableFuture<T>> rpc) {
+        return call(peerAddress, rpcName, request, deadlineMillis, rpc);
+    }
+
+    /**
+     * Invokes an RPC on the peer's pooled channel with the given deadline.
+     *
+     * @param peerAddress the hostname:port of the peer node
+     * @param rpcName the name of the RPC, for metrics
+     * @param request the request the call sends
+     * @param deadline the deadline of the call, in milliseconds
+     * @param rpc the call to make
+     * @return a future completed with the response of the call
+     */
+    private <T extends MessageLite> CompletableFuture<T> call(String peerAddress, String rpcName, MessageLite request,
+                                                              long deadline,
+                                                              Function<GossipServiceGrpc.GossipServiceFutureStub, ListenableFuture<T>> rpc) {
+        GossipServiceGrpc.GossipServiceFutureStub stub;
+        try {
+            stub = withCompression(GossipServiceGrpc.newFutureStub(channelFor(peerAddress))
+                    .withDeadlineAfter(deadline, TimeUnit.MILLISECONDS));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e); // Malformed peer address
+        }
+
+        gossipMetrics.recordPayload(rpcName, "sent", request.getSerializedSize());
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Futures.addCallback(rpc.apply(stub), new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T response) {
+                gossipMetrics.recordPayload(rpcName, "received", response.getSerializedSize());
+                result.complete(response);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+
+        return result;
+    }
+
+    /**
+     * Applies the configured message compression to a stub; "none" sends messages uncompressed.
+     */
+    private <S extends AbstractStub<S>> S withCompression(S stub) {
+        return "none".equalsIgnoreCase(compression) ? stub : stub.withCompression(compression);
+    }
+
+    /**
+     * Returns the pooled channel for a peer, creating it on first use.
+     *
+     * @param peerAddress the hostname:port of the peer node
+     * @return the channel to the peer
      */
-    public GossipResponse sync(String peerAddress, Map<String, ServiceInstance> localState, Map<String, NodeInfo> nodes) {
+    private ManagedChannel channelFor(String peerAddress) {
+        PooledChannel pooled = channels.compute(peerAddress, (address, existing) -> {
+            if (existing != null && !existing.channel().isShutdown()) {
+                return existing.touch();
+            }
+            return new PooledChannel(newChannel(address), System.currentTimeMillis());
+        });
+        return pooled.channel();
+    }
+
+    private ManagedChannel newChannel(String peerAddress) {
         String[] parts = peerAddress.split(":");
         String host = parts[0];
         int port = Integer.parseInt(parts[1]);
 
-        // Build the gRPC channel + stub
-        ManagedChannel channel = ManagedChannelBuilder.forAddress(host, port)
+        return ManagedChannelBuilder.forAddress(host, port)
                 .usePlaintext()
+                .keepAliveTime(keepAliveSeconds, TimeUnit.SECONDS)
+                .keepAliveTimeout(10, TimeUnit.SECONDS)
+                .idleTimeout(idleTimeoutSeconds, TimeUnit.SECONDS)
                 .build();
-        GossipServiceGrpc.GossipServiceBlockingStub stub = GossipServiceGrpc.newBlockingStub(channel);
-
-        // Build the request and call the RPC
-        GossipRequest request = GossipRequest.newBuilder()
-                .putAllInstances(localState)
-                .putAllNodes(nodes)
-                .build();
-        
-        GossipResponse response = stub.sync(request);
-
-        // Shutdown the channel
-        channel.shutdown();
+    }
 
-        return response;
+    private record PooledChannel(ManagedChannel channel, long lastUsed) {
+        PooledChannel touch() {
+            return new PooledChannel(channel, System.currentTimeMillis());
+        }
     }
-    
+
 }
@@ -1,57 +1,442 @@
 package com.github.adnant1.servicediscovery.gossip;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import com.github.adnant1.servicediscovery.metrics.GossipMetrics;
+import com.github.adnant1.servicediscovery.partition.PartitionRouter;
+import com.github.adnant1.servicediscovery.registry.DigestRequest;
+import com.github.adnant1.servicediscovery.registry.FetchRequest;
+import com.github.adnant1.servicediscovery.registry.GossipRequest;
 import com.github.adnant1.servicediscovery.registry.GossipResponse;
-import com.github.adnant1.servicediscovery.registry.NodeInfo;
 import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.store.StateDelta;
 
 /**
  * Scheduler that runs gossip rounds periodically for eventual consistency.
+ * Each round contacts up to spring.gossip.fanout random peers concurrently. Every exchange
+ * carries its own deadline, so a slow or dead peer does not hold up the others.
+ * In delta mode each round only carries instances written since the last version
+ * the peer acknowledged. Every few rounds an anti-entropy round reconciles the whole
+ * registry, either by comparing hash tree digests or by sending a full dump.
+ * In push-pull exchange mode a sync also asks the peer for its newer entries and merges
+ * them, so both sides converge in one exchange instead of waiting for the peer's own round.
+ * Full dumps and anti-entropy pushes above spring.gossip.stream.threshold instances are streamed
+ * to the peer in chunks, and pulled state larger than one page is pulled page by page.
+ * Every exchange carries SWIM membership updates both ways.
+ * With partitioning enabled, each peer is only sent, and only asked for, the instances of
+ * services both nodes replicate, so gossip cost follows the partitions rather than the whole registry.
+ * Peer calls are asynchronous; the scheduling thread only reads local state.
+ * Each round's duration, up to the end of its last peer exchange, is recorded in GossipMetrics.
  */
 @Component
 public class GossipScheduler {
 
+    private static final long ROUND_MILLIS = 5000;
+
     private final Logger logger = LoggerFactory.getLogger(GossipScheduler.class);
 
     private final PeerRegistry peerRegistry;
     private final LocalStateProvider localStateProvider;
     private final GossipClient gossipClient;
+    private final Membership membership;
+    private final PartitionRouter partitionRouter;
+    private final RegistryStore registryStore;
+    private final GossipMetrics gossipMetrics;
+    private final boolean deltaMode;
+    private final boolean digestAntiEntropy;
+    private final int fullSyncRounds;
+    private final int maxDeltaSize;
+    private final int serviceBuckets;
+    private final int instanceBuckets;
+    private final int fanout;
+    private final boolean pushPull;
+    private final int streamThreshold;
+
+    // Peer address -> highest local version that peer has acknowledged
+    private final Map<String, Long> acknowledgedVersions = new ConcurrentHashMap<>();
+    // Peer address -> version of the peer's own changes to pull from next
+    private final Map<String, Long> pulledVersions = new ConcurrentHashMap<>();
+    private long round = 0;
 
-    public GossipScheduler(PeerRegistry peerRegistry, LocalStateProvider localStateProvider, GossipClient gossipClient) {
+    public GossipScheduler(PeerRegistry peerRegistry, LocalStateProvider localStateProvider, GossipClient gossipClient,
+                           Membership membership, PartitionRouter partitionRouter, RegistryStore registryStore, GossipMetrics gossipMetrics,
+                           @Value("${spring.gossip.mode:delta}") String mode,
+                           @Value("${spring.gossip.anti-entropy:digest}") String antiEntropy,
+                           @Value("${spring.gossip.full-sync-rounds:12}") int fullSyncRounds,
+                           @Value("${spring.gossip.max-delta-size:5000}") int maxDeltaSize,
+                           @Value("${spring.gossip.digest.service-buckets:256}") int serviceBuckets,
+                           @Value("${spring.gossip.digest.instance-buckets:64}") int instanceBuckets,
+                           @Value("${spring.gossip.fanout:3}") int fanout,
+                           @Value("${spring.gossip.exchange:push-pull}") String exchange,
+                           @Value("${spring.gossip.stream.threshold:1000}") int streamThreshold) {
         this.peerRegistry = peerRegistry;
         this.localStateProvider = localStateProvider;
         this.gossipClient = gossipClient;
+        this.membership = membership;
+        this.partitionRouter = partitionRouter;
+        this.registryStore = registryStore;
+        this.gossipMetrics = gossipMetrics;
+        this.deltaMode = "delta".equalsIgnoreCase(mode);
+        this.digestAntiEntropy = "digest".equalsIgnoreCase(antiEntropy);
+        this.fullSyncRounds = Math.max(1, fullSyncRounds);
+        this.maxDeltaSize = maxDeltaSize;
+        this.serviceBuckets = serviceBuckets;
+        this.instanceBuckets = instanceBuckets;
+        this.fanout = Math.max(1, fanout);
+        this.pushPull = "push-pull".equalsIgnoreCase(exchange);
+        this.streamThreshold = streamThreshold;
     }
 
     /**
-     * Runs a gossip round by picking a random peer, dumping local state,
-     * and invoking the gossip client to sync state with the peer.
-     * Scheduled to run every 5 seconds.
+     * Runs a gossip round by picking random peers, dumping local state,
+     * and invoking the gossip client to sync state with each peer concurrently.
+     * Scheduled to run every ROUND_MILLIS.
      */
-    @Scheduled(fixedRate = 5000)
+    @Scheduled(fixedRate = ROUND_MILLIS)
     public void runGossipRound() {
-        String peer = peerRegistry.pickRandomPeer();
-        if (peer == null) {
+        List<String> peers = peerRegistry.pickRandomPeers(fanout);
+        if (peers.isEmpty()) {
             logger.info("No peers available for gossiping");
             return; // No peers available
         }
 
-        Map<String, ServiceInstance> localState = localStateProvider.dumpServices();
-        Map<String, NodeInfo> localNodes = localStateProvider.dumpNodes();
+        boolean antiEntropyRound = !deltaMode || round++ % fullSyncRounds == 0;
+        String type = !antiEntropyRound ? "delta" : deltaMode && digestAntiEntropy ? "digest" : "full";
+        long start = System.nanoTime();
+
+        // Local state is read once per round and shared by every peer
+        LocalSnapshot snapshot;
+        try {
+            snapshot = snapshot(type);
+        } catch (Exception e) {
+            logger.warn("Gossip round failed to read local state: {}", e.getMessage());
+            gossipMetrics.recordRound(type, false, System.nanoTime() - start);
+            return;
+        }
+
+        CompletableFuture<?>[] exchanges = peers.stream()
+                .map(peer -> exchange(peer, type, snapshot))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(exchanges).whenComplete((ignored, error) ->
+            gossipMetrics.recordRound(type, error == null, System.nanoTime() - start)
+        );
+    }
 
+    /**
+     * Runs one peer's part of a round.
+     *
+     * @param peer the address of the peer
+     * @param type the kind of round: "delta", "digest" or "full"
+     * @param snapshot the local state read for this round
+     * @return a future completed once the exchange with the peer has finished
+     */
+    private CompletableFuture<Void> exchange(String peer, String type, LocalSnapshot snapshot) {
+        CompletableFuture<Void> exchange;
         try {
-            GossipResponse response = gossipClient.sync(peer, localState, localNodes);
-            logger.info("Gossip sync with peer {} succeeded: {}", peer, response.getMessage());
+            exchange = switch (type) {
+                case "delta" -> syncDelta(peer, snapshot);
+                case "digest" -> reconcile(peer, snapshot);
+                default -> syncFull(peer, snapshot);
+            };
         } catch (Exception e) {
-            // Log and ignore errors to avoid disrupting future gossip rounds
-            logger.warn("Gossip sync with peer {} failed: {}", peer, e.getMessage());
+            exchange = CompletableFuture.failedFuture(e);
+        }
+
+        return exchange.whenComplete((ignored, error) -> {
+            if (error != null) {
+                // Log and ignore errors to avoid disrupting future gossip rounds
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                logger.warn("Gossip sync with peer {} failed: {}", peer, cause.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reads the local state a round needs. Delta rounds need nothing shared, since each
+     * peer is sent its own delta; anti-entropy rounds need the whole registry.
+     *
+     * @param type the kind of round
+     * @return the local state shared by every peer in the round
+     */
+    private LocalSnapshot snapshot(String type) {
+        if (type.equals("delta")) {
+            return new LocalSnapshot(0, Map.of(), null, null);
+        }
+
+        if (type.equals("digest")) {
+            // Shared with the digests this node answers for its peers
+            LocalStateProvider.Dump dump = localStateProvider.cachedDump();
+            StateDigest digest = partitionRouter.enabled()
+                    ? null // Hashed per peer
+                    : StateDigest.of(dump.instances(), serviceBuckets, instanceBuckets);
+            return new LocalSnapshot(dump.version(), dump.instances(), digest, null);
+        }
+
+        // Capture the version before dumping so writes racing the dump are resent next round
+        long version = localStateProvider.currentVersion();
+        Map<String, ServiceInstance> localState = localStateProvider.dumpServices();
+        if (localState.size() > streamThreshold || partitionRouter.enabled()) {
+            return new LocalSnapshot(version, localState, null, null); // Streamed, or filtered per peer
+        }
+        return new LocalSnapshot(version, localState, null, fullRequest(localState).build());
+    }
+
+    private GossipRequest.Builder fullRequest(Map<String, ServiceInstance> instances) {
+        GossipRequest.Builder request = GossipRequest.newBuilder().putAllInstances(instances);
+        if (pushPull) {
+            request.setPull(true).setFullState(true);
+        }
+        return request;
+    }
+
+    /**
+     * Sends the whole local registry to the peer.
+     *
+     * @param peer the address of the peer
+     * @param snapshot the local state read for this round
+     * @return a future completed once the exchange with the peer has finished
+     */
+    private CompletableFuture<Void> syncFull(String peer, LocalSnapshot snapshot) {
+        Map<String, ServiceInstance> instances = partitionRouter.filterFor(peer, snapshot.instances());
+        if (instances.size() > streamThreshold) {
+            return streamFull(peer, snapshot, instances);
+        }
+
+        // Membership updates are consumed per message, so they are added per peer
+        GossipRequest.Builder request = snapshot.fullRequest() != null
+                ? snapshot.fullRequest().toBuilder()
+                : fullRequest(instances);
+        request.addAllMembers(membership.piggyback()).setSender(partitionRouter.selfAddress());
+
+        return gossipClient.sync(peer, request.build()).thenCompose(response -> {
+            acknowledgedVersions.merge(peer, snapshot.version(), Math::max);
+            return pullPages(peer, response, applyPulled(peer, response, false)).thenAccept(pulled -> logger.info(
+                "Gossip full sync with peer {} succeeded ({} instances, pulled {}): {} in {} us",
+                peer, instances.size(), pulled, response.getMessage(), response.getMergeMicros()
+            ));
+        });
+    }
+
+    /**
+     * Pulls the rest of a full-state pull that the peer cut into pages.
+     *
+     * @param peer the address of the peer
+     * @param response the peer's response holding the previous page
+     * @param pulled the number of instances applied from the pages so far
+     * @return a future completed with the number of instances applied from every page
+     */
+    private CompletableFuture<Integer> pullPages(String peer, GossipResponse response, int pulled) {
+        if (!pushPull || response.getNextPageToken().isEmpty()) {
+            return CompletableFuture.completedFuture(pulled);
+        }
+
+        GossipRequest request = GossipRequest.newBuilder()
+                .setPull(true)
+                .setFullState(true)
+                .setPageToken(response.getNextPageToken())
+                .setSender(partitionRouter.selfAddress())
+                .build();
+        return gossipClient.sync(peer, request)
+                .thenCompose(next -> pullPages(peer, next, pulled + applyPulled(peer, next, false)));
+    }
+
+    /**
+     * Streams the whole local registry to the peer in chunks.
+     * Streams are push only, so in push-pull mode the peer's recent changes are pulled
+     * afterwards with an empty delta sync.
+     *
+     * @param peer the address of the peer
+     * @param snapshot the local state read for this round
+     * @param instances the instances to stream
+     * @return a future completed once the exchange with the peer has finished
+     */
+    private CompletableFuture<Void> streamFull(String peer, LocalSnapshot snapshot, Map<String, ServiceInstance> instances) {
+        return gossipClient.syncStream(peer, instances, membership.piggyback()).thenCompose(response -> {
+            membership.apply(response.getMembersList());
+            acknowledgedVersions.merge(peer, snapshot.version(), Math::max);
+
+            CompletableFuture<Integer> pull = CompletableFuture.completedFuture(0);
+            if (pushPull) {
+                GossipRequest pullRequest = GossipRequest.newBuilder()
+                        .setPull(true)
+                        .setPullSinceVersion(pulledVersions.getOrDefault(peer, 0L))
+                        .setSender(partitionRouter.selfAddress())
+                        .build();
+                pull = gossipClient.sync(peer, pullRequest).thenApply(pulled -> applyPulled(peer, pulled, true));
+            }
+
+            return pull.thenAccept(pulled -> logger.info(
+                "Gossip streamed full sync with peer {} succeeded ({} instances, pulled {}): {} in {} us",
+                peer, instances.size(), pulled, response.getMessage(), response.getMergeMicros()
+            ));
+        });
+    }
+
+    /**
+     * Sends the instances changed since the version the peer last acknowledged.
+     * If the local version counter went backwards (Redis was flushed), the watermark is reset.
+     * In push-pull mode the peer returns its own changes since the version last pulled from it.
+     *
+     * @param peer the address of the peer
+     * @param snapshot the local state read for this round
+     * @return a future completed once the exchange with the peer has finished
+     */
+    private CompletableFuture<Void> syncDelta(String peer, LocalSnapshot snapshot) {
+        long acknowledged = acknowledgedVersions.getOrDefault(peer, 0L);
+        StateDelta delta = localStateProvider.dumpChangesSince(acknowledged, maxDeltaSize);
+
+        if (delta.currentVersion() < acknowledged) {
+            acknowledgedVersions.remove(peer);
+            delta = localStateProvider.dumpChangesSince(0, maxDeltaSize);
         }
 
+        Map<String, ServiceInstance> instances = partitionRouter.filterFor(peer, delta.instances());
+        GossipRequest.Builder request = GossipRequest.newBuilder()
+                .putAllInstances(instances)
+                .addAllMembers(membership.piggyback())
+                .setSender(partitionRouter.selfAddress());
+        if (pushPull) {
+            request.setPull(true).setPullSinceVersion(pulledVersions.getOrDefault(peer, 0L));
+        }
+
+        StateDelta sent = delta;
+        return gossipClient.sync(peer, request.build()).thenAccept(response -> {
+            acknowledgedVersions.merge(peer, sent.lastVersion(), Math::max);
+            int pulled = applyPulled(peer, response, true);
+            logger.info("Gossip delta sync with peer {} succeeded ({} instances, pulled {}): {} in {} us",
+                    peer, instances.size(), pulled, response.getMessage(), response.getMergeMicros());
+        });
     }
+
+    /**
+     * Applies the membership updates a peer piggybacked on its response, and merges
+     * the entries it returned for a pull.
+     * A delta pull also moves the version to pull from next; it is replaced rather than
+     * raised, since the peer restarts from 0 if its own version counter went backwards.
+     *
+     * @param peer the address of the peer
+     * @param response the peer's sync response
+     * @param delta whether the pull was a delta pull
+     * @return the number of pulled instances inserted or overwritten
+     */
+    private int applyPulled(String peer, GossipResponse response, boolean delta) {
+        membership.apply(response.getMembersList());
+        if (!pushPull) {
+            return 0;
+        }
+
+        int applied = gossipMetrics.timeStore(
+            "mergeInstances", () -> registryStore.mergeInstances(response.getInstancesMap())
+        );
+        gossipMetrics.recordMerge("pull", applied);
+
+        if (delta) {
+            pulledVersions.put(peer, response.getVersion());
+        }
+        return applied;
+    }
+
+    /**
+     * Reconciles the whole registry with the peer by comparing hash tree digests.
+     * Only instances in leaves that differ are exchanged, in both directions,
+     * so the cost follows the amount of divergence rather than the registry size.
+     * A large push is streamed in chunks, and the peer's side is fetched page by page.
+     *
+     * @param peer the address of the peer
+     * @param snapshot the local state read for this round
+     * @return a future completed once the exchange with the peer has finished
+     */
+    private CompletableFuture<Void> reconcile(String peer, LocalSnapshot snapshot) {
+        // With partitioning, both sides hash only the partitions they share
+        Map<String, ServiceInstance> shared = partitionRouter.filterFor(peer, snapshot.instances());
+        StateDigest digest = partitionRouter.enabled()
+                ? StateDigest.of(shared, serviceBuckets, instanceBuckets)
+                : snapshot.digest();
+        String self = partitionRouter.selfAddress();
+
+        DigestRequest digestRequest = DigestRequest.newBuilder()
+                .setServiceBuckets(serviceBuckets)
+                .setInstanceBuckets(instanceBuckets)
+                .putAllServiceHashes(digest.serviceHashes())
+                .setSender(self)
+                .build();
+
+        return gossipClient.digest(peer, digestRequest).thenCompose(digestResponse -> {
+            Set<Integer> leaves = digest.differingLeaves(
+                digestResponse.getDifferingServiceBucketsList(), digestResponse.getLeafHashesMap()
+            );
+
+            // Push our side of the differing leaves, read fresh, along with membership
+            Map<String, ServiceInstance> pushed = partitionRouter.filterFor(
+                peer, localStateProvider.dumpLeaves(leaves, serviceBuckets, instanceBuckets)
+            );
+            CompletableFuture<GossipResponse> push = pushed.size() > streamThreshold
+                    ? gossipClient.syncStream(peer, pushed, membership.piggyback())
+                    : gossipClient.sync(peer, pushed, membership.piggyback());
+
+            // Pull the peer's side of the differing leaves
+            CompletableFuture<Integer> pull = leaves.isEmpty()
+                    ? CompletableFuture.completedFuture(0)
+                    : fetchPages(peer, FetchRequest.newBuilder()
+                            .setServiceBuckets(serviceBuckets)
+                            .setInstanceBuckets(instanceBuckets)
+                            .addAllLeaves(leaves)
+                            .setSender(self)
+                            .build());
+
+            return push.thenCombine(pull, (response, pulled) -> {
+                membership.apply(response.getMembersList());
+                acknowledgedVersions.merge(peer, snapshot.version(), Math::max);
+                logger.info("Gossip anti-entropy with peer {} succeeded: {} differing leaves, pushed {}, applied {}",
+                        peer, leaves.size(), pushed.size(), pulled);
+                return null;
+            });
+        });
+    }
+
+    /**
+     * Fetches the peer's instances in the differing leaves and merges them, one page at a time.
+     *
+     * @param peer the address of the peer
+     * @param request the request for the first page
+     * @return a future completed with the number of instances applied from every page
+     */
+    private CompletableFuture<Integer> fetchPages(String peer, FetchRequest request) {
+        return gossipClient.fetch(peer, request).thenCompose(response -> {
+            int applied = gossipMetrics.timeStore(
+                "mergeInstances", () -> registryStore.mergeInstances(response.getInstancesMap())
+            );
+            gossipMetrics.recordMerge("fetch", applied);
+
+            if (response.getNextPageToken().isEmpty()) {
+                return CompletableFuture.completedFuture(applied);
+            }
+            FetchRequest next = request.toBuilder().setPageToken(response.getNextPageToken()).build();
+            return fetchPages(peer, next).thenApply(rest -> applied + rest);
+        });
+    }
+
+    /**
+     * Local state read once per round.
+     *
+     * @param version the local version captured before the registry was dumped
+     * @param instances the whole local registry, empty for delta rounds
+     * @param digest the hash tree of the registry, for digest rounds without partitioning
+     * @param fullRequest the prepared full-state request, for full rounds that are neither streamed nor partitioned
+     */
+    private record LocalSnapshot(long version, Map<String, ServiceInstance> instances, StateDigest digest,
+                                 GossipRequest fullRequest) {}
 }
@@ -1,111 +1,152 @@
 package com.github.adnant1.servicediscovery.gossip;
 
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import com.github.adnant1.servicediscovery.registry.NodeInfo;
 import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.store.StateDelta;
 
 /**
- * Provider for dumping local service state from Redis.
+ * Provider for dumping local service state from the registry store.
+ * Anti-entropy hashes the whole registry, so the dump it hashes is shared: it is read at most once
+ * per spring.gossip.digest.cache-millis, however many peers ask for a digest in that time.
+ * Instances that are actually sent are read fresh, and only from the leaves that differ.
  */
 @Component
 public class LocalStateProvider {
- 
-    private final StringRedisTemplate redisTemplate;
 
-    public LocalStateProvider(StringRedisTemplate redisTemplate) {
-        this.redisTemplate = redisTemplate;
+    private final RegistryStore registryStore;
+    private final long cacheMillis;
+
+    // A lock rather than synchronized, so virtual threads waiting on the store do not pin their carrier
+    private final ReentrantLock dumpLock = new ReentrantLock();
+    private volatile Dump cached;
+
+    public LocalStateProvider(RegistryStore registryStore,
+                              @Value("${spring.gossip.digest.cache-millis:4000}") long cacheMillis) {
+        this.registryStore = registryStore;
+        this.cacheMillis = cacheMillis;
+    }
+
+    /**
+     * Returns the current value of the local version counter.
+     *
+     * @return the version of the most recent local write, or 0 if nothing was written yet
+     */
+    public long currentVersion() {
+        return registryStore.currentVersion();
     }
 
     /**
-     * Dumps all service instances stored in local Redis.
-     * 
+     * Dumps the service instances written locally after the given version, oldest first.
+     *
+     * @param sinceVersion the exclusive lower version bound
+     * @param limit the maximum number of instances to return
+     * @return the changed instances together with the version range they cover
+     */
+    public StateDelta dumpChangesSince(long sinceVersion, int limit) {
+        return registryStore.dumpChangesSince(sinceVersion, limit);
+    }
+
+    /**
+     * Dumps all service instances stored locally.
+     *
      * @return a map of service IDs to their corresponding ServiceInstance objects
      */
     public Map<String, ServiceInstance> dumpServices() {
-        Map<String, ServiceInstance> services = new HashMap<>();
+        return registryStore.dumpServices();
+    }
 
-        // Retrieve all service sets
-        Set<String> serviceKeys = redisTemplate.keys("service:*");
-        if (serviceKeys == null || serviceKeys.isEmpty()) {
-            return services;
-        }
+    /**
+     * Dumps the service instances stored locally that pass both filters, without reading the others.
+     *
+     * @param serviceFilter selects the services to read, by name
+     * @param keyFilter selects the instances to read within those services, by instance key
+     * @return a map of instance keys to instances
+     */
+    public Map<String, ServiceInstance> dumpServices(Predicate<String> serviceFilter, Predicate<String> keyFilter) {
+        return registryStore.dumpServices(serviceFilter, keyFilter);
+    }
 
-        for (String serviceKey: serviceKeys) {
-            // For each service set, get its instance keys
-            Set<String> keys = redisTemplate.opsForSet().members(serviceKey);
-            if (keys == null || keys.isEmpty()) {
-                continue;
-            }
+    /**
+     * Returns the names of the services stored locally, without reading their instances.
+     *
+     * @return a set of service names
+     */
+    public Set<String> serviceNames() {
+        return registryStore.serviceNames();
+    }
 
-            // For each instance key, retrieve its details
-            for (String key : keys) {
-                Map<Object, Object> fields = redisTemplate.opsForHash().entries(key);
-                if (fields == null || fields.isEmpty()) {
-                    continue;
-                }
-
-                String[] parts = key.split(":", 2);
-                if (parts.length != 2) {
-                    continue; // Invalid key format
-                }
-    
-                String instanceId = parts[1];
-                String ip = (String) fields.get("ip");
-                String portStr = (String) fields.get("port");
-                String tsStr = (String) fields.get("timestamp");
-                int port = Integer.parseInt(portStr);
-                long lastUpdated = Long.parseLong(tsStr);
-    
-                Long ttlRemaining = redisTemplate.getExpire(key, TimeUnit.SECONDS);
-                if (ttlRemaining == null || ttlRemaining <= 0) {
-                    continue; // Skip expired instances
-                }
-    
-                ServiceInstance instance = ServiceInstance.newBuilder()
-                        .setInstanceId(instanceId)
-                        .setIp(ip)
-                        .setPort(port)
-                        .setTtl(ttlRemaining)
-                        .setLastUpdated(lastUpdated)
-                        .build();
-
-                services.put(key, instance);
-            }
+    /**
+     * Dumps the service instances stored locally in the given leaves of a hash tree, without reading the others.
+     *
+     * @param leafIds the leaves to read
+     * @param serviceBuckets the number of first-level buckets of the tree
+     * @param instanceBuckets the number of leaves per service bucket of the tree
+     * @return a map of instance keys to instances in those leaves
+     */
+    public Map<String, ServiceInstance> dumpLeaves(Collection<Integer> leafIds, int serviceBuckets, int instanceBuckets) {
+        if (leafIds.isEmpty()) {
+            return Map.of();
         }
 
-        return services;
+        Set<Integer> leaves = new HashSet<>(leafIds);
+        Set<Integer> buckets = new HashSet<>();
+        for (int leaf : leaves) {
+            buckets.add(leaf / instanceBuckets);
+        }
+        return registryStore.dumpServices(
+            serviceName -> buckets.contains(StateDigest.serviceBucketOf(serviceName, serviceBuckets)),
+            instanceKey -> leaves.contains(StateDigest.leafOf(instanceKey, serviceBuckets, instanceBuckets))
+        );
     }
 
     /**
-     * Dumps all known nodes stored in local Redis.
-     * 
-     * @return a map of node IDs to their corresponding NodeInfo objects
+     * Returns a dump of all local instances for hashing, read again once it is older than
+     * spring.gossip.digest.cache-millis. Concurrent callers wait for one read instead of each dumping.
+     *
+     * @return the dump, along with the local version captured before it was read
      */
-    public Map<String, NodeInfo> dumpNodes() {
-        Map<String, NodeInfo> nodes = new HashMap<>();
-        Set<String> keys = redisTemplate.keys("node:*");
-        if (keys == null || keys.isEmpty()) {
-            return nodes;   
+    public Dump cachedDump() {
+        Dump dump = cached;
+        if (dump != null && fresh(dump)) {
+            return dump;
         }
 
-        for (String key: keys) {
-            String nodeId = key.substring("node:".length());
-
-            NodeInfo info = NodeInfo.newBuilder()
-                    .setNodeId(nodeId)
-                    .setLastUpdated(System.currentTimeMillis())
-                    .build();
-            
-            nodes.put(nodeId, info);
+        dumpLock.lock();
+        try {
+            dump = cached;
+            if (dump == null || !fresh(dump)) {
+                // Capture the version before dumping so writes racing the dump are resent next round
+                long version = registryStore.currentVersion();
+                long dumpedAt = System.currentTimeMillis();
+                dump = new Dump(version, dumpedAt, registryStore.dumpServices());
+                cached = dump;
+            }
+            return dump;
+        } finally {
+            dumpLock.unlock();
         }
+    }
 
-        return nodes;
+    private boolean fresh(Dump dump) {
+        return System.currentTimeMillis() - dump.dumpedAt() < cacheMillis;
     }
+
+    /**
+     * A dump of the local registry.
+     *
+     * @param version the local version captured before the dump was read
+     * @param dumpedAt when the dump was read, in epoch milliseconds
+     * @param instances a map of instance keys to instances
+     */
+    public record Dump(long version, long dumpedAt, Map<String, ServiceInstance> instances) {}
 }
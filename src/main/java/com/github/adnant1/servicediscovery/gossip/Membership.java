@@ -0,0 +1,350 @@
+package com.github.adnant1.servicediscovery.gossip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.identity.NodeIdentityProvider;
+import com.github.adnant1.servicediscovery.registry.MemberUpdate;
+
+/**
+ * SWIM-style membership list.
+ * Each member is ALIVE, SUSPECT or DEAD at an incarnation number that only the member itself
+ * increments, to refute a suspicion about it. Updates about a member are ordered as in SWIM:
+ * - ALIVE(i) overrides any state with an incarnation below i
+ * - SUSPECT(i) overrides ALIVE(j) for j <= i, and SUSPECT(j) for j < i
+ * - DEAD(i) overrides ALIVE(j) and SUSPECT(j) for j <= i
+ *
+ * Every update applied is queued for dissemination and piggybacked on outgoing probes and gossip
+ * messages, retransmit-mult * log2(N + 1) times, so it reaches every node in O(log N) periods.
+ * A suspect that has not refuted within the suspicion timeout is declared dead. Dead members are
+ * remembered for a while, so a stale ALIVE at the same incarnation cannot bring them back.
+ * Probe targets are visited in a shuffled round-robin order: every member is probed within N periods,
+ * while each node sends one probe per period whatever the cluster size.
+ */
+@Component
+public class Membership {
+
+    private static final Logger logger = LoggerFactory.getLogger(Membership.class);
+
+    private final NodeIdentityProvider nodeIdentityProvider;
+    private final long suspicionTimeoutMillis;
+    private final long deadRetentionMillis;
+    private final int retransmitMult;
+    private final int maxPiggyback;
+    private final LongSupplier clock;
+
+    private final Map<String, Member> members = new HashMap<>();
+    private final Map<String, Queued> queue = new HashMap<>();
+    private final List<String> probeOrder = new ArrayList<>();
+    private int probeIndex;
+    private long incarnation;
+
+    @Autowired
+    public Membership(NodeIdentityProvider nodeIdentityProvider,
+                      @Value("${spring.gossip.swim.suspicion-timeout-millis:5000}") long suspicionTimeoutMillis,
+                      @Value("${spring.gossip.swim.dead-retention-millis:60000}") long deadRetentionMillis,
+                      @Value("${spring.gossip.swim.retransmit-mult:3}") int retransmitMult,
+                      @Value("${spring.gossip.swim.max-piggyback:8}") int maxPiggyback) {
+        this(nodeIdentityProvider, suspicionTimeoutMillis, deadRetentionMillis, retransmitMult, maxPiggyback,
+            System::currentTimeMillis);
+    }
+
+    Membership(NodeIdentityProvider nodeIdentityProvider, long suspicionTimeoutMillis, long deadRetentionMillis,
+               int retransmitMult, int maxPiggyback, LongSupplier clock) {
+        this.nodeIdentityProvider = nodeIdentityProvider;
+        this.suspicionTimeoutMillis = suspicionTimeoutMillis;
+        this.deadRetentionMillis = deadRetentionMillis;
+        this.retransmitMult = Math.max(1, retransmitMult);
+        this.maxPiggyback = maxPiggyback;
+        this.clock = clock;
+    }
+
+    /**
+     * Extracts the address (hostname:port) from a node ID.
+     *
+     * @param nodeId the full node ID
+     * @return the address portion of the node ID
+     */
+    public static String addressOf(String nodeId) {
+        int dashIndex = nodeId.indexOf('-');
+
+        if (dashIndex == -1) {
+            return nodeId;
+        }
+
+        return nodeId.substring(0, dashIndex);
+    }
+
+    public String selfId() {
+        return nodeIdentityProvider.getNodeId();
+    }
+
+    /**
+     * Applies membership updates received from another node.
+     * An update that suspects or declares this node dead is refuted by raising the local incarnation.
+     *
+     * @param updates the updates piggybacked on a probe or gossip message
+     */
+    public synchronized void apply(List<MemberUpdate> updates) {
+        for (MemberUpdate update : updates) {
+            apply(update);
+        }
+    }
+
+    /**
+     * Returns the updates to piggyback on an outgoing message: this node's own ALIVE entry,
+     * followed by the queued updates sent the fewest times so far.
+     *
+     * @return the updates to attach
+     */
+    public synchronized List<MemberUpdate> piggyback() {
+        List<MemberUpdate> updates = new ArrayList<>();
+        updates.add(self());
+
+        int limit = retransmitLimit();
+        List<Queued> next = new ArrayList<>(queue.values());
+        next.sort(Comparator.comparingInt(Queued::transmissions));
+
+        for (Queued queued : next.subList(0, Math.min(maxPiggyback, next.size()))) {
+            updates.add(queued.update());
+            if (++queued.transmissions >= limit) {
+                queue.remove(queued.update().getNodeId());
+            }
+        }
+        return updates;
+    }
+
+    /**
+     * Returns the updates to piggyback on a probe of the given member. A suspected member is always
+     * told about the suspicion, so it can refute it in its reply.
+     *
+     * @param nodeId the member being probed
+     * @return the updates to attach
+     */
+    public synchronized List<MemberUpdate> piggybackFor(String nodeId) {
+        List<MemberUpdate> updates = piggyback();
+        Member member = members.get(nodeId);
+        if (member != null && member.state() == MemberUpdate.State.SUSPECT) {
+            updates.add(update(nodeId, member));
+        }
+        return updates;
+    }
+
+    /**
+     * Returns the next member to probe, in a round-robin order that is reshuffled after every pass.
+     *
+     * @return the node ID to probe, or null if no other member is known
+     */
+    public synchronized String nextProbeTarget() {
+        for (int attempts = 0; attempts <= probeOrder.size(); attempts++) {
+            if (probeIndex >= probeOrder.size()) {
+                Collections.shuffle(probeOrder, ThreadLocalRandom.current());
+                probeIndex = 0;
+                if (probeOrder.isEmpty()) {
+                    return null;
+                }
+            }
+
+            String nodeId = probeOrder.get(probeIndex++);
+            Member member = members.get(nodeId);
+            if (member != null && member.state() != MemberUpdate.State.DEAD) {
+                return nodeId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Marks a member as suspect after it failed both the direct and the indirect probes.
+     *
+     * @param nodeId the member that did not answer
+     */
+    public synchronized void suspect(String nodeId) {
+        Member member = members.get(nodeId);
+        if (member != null && member.state() == MemberUpdate.State.ALIVE) {
+            apply(update(nodeId, new Member(MemberUpdate.State.SUSPECT, member.incarnation(), 0)));
+        }
+    }
+
+    /**
+     * Declares suspects that did not refute in time dead, and forgets members dead for longer
+     * than the retention period.
+     */
+    public synchronized void expire() {
+        long now = clock.getAsLong();
+
+        Iterator<Map.Entry<String, Member>> iterator = members.entrySet().iterator();
+        List<MemberUpdate> confirmed = new ArrayList<>();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Member> entry = iterator.next();
+            Member member = entry.getValue();
+            long age = now - member.since();
+
+            if (member.state() == MemberUpdate.State.SUSPECT && age >= suspicionTimeoutMillis) {
+                confirmed.add(update(entry.getKey(), new Member(MemberUpdate.State.DEAD, member.incarnation(), 0)));
+            } else if (member.state() == MemberUpdate.State.DEAD && age >= deadRetentionMillis) {
+                iterator.remove();
+                probeOrder.remove(entry.getKey());
+                queue.remove(entry.getKey());
+            }
+        }
+
+        for (MemberUpdate update : confirmed) {
+            logger.info("Node {} did not refute suspicion, declaring it dead", update.getNodeId());
+            apply(update);
+        }
+    }
+
+    /**
+     * Returns the members currently considered alive, excluding this node.
+     *
+     * @return a list of node IDs
+     */
+    public synchronized List<String> aliveMembers() {
+        List<String> alive = new ArrayList<>();
+        members.forEach((nodeId, member) -> {
+            if (member.state() == MemberUpdate.State.ALIVE) {
+                alive.add(nodeId);
+            }
+        });
+        return alive;
+    }
+
+    /**
+     * Picks random alive members to relay an indirect probe.
+     *
+     * @param count the maximum number of members to return
+     * @param exclude the member being probed
+     * @return a list of node IDs
+     */
+    public synchronized List<String> randomMembers(int count, String exclude) {
+        List<String> candidates = aliveMembers();
+        candidates.remove(exclude);
+        Collections.shuffle(candidates, ThreadLocalRandom.current());
+        return candidates.subList(0, Math.min(count, candidates.size()));
+    }
+
+    /**
+     * Counts the known members in a state, excluding this node.
+     *
+     * @param state the state to count
+     * @return the number of members in that state
+     */
+    public synchronized long count(MemberUpdate.State state) {
+        return members.values().stream().filter(member -> member.state() == state).count();
+    }
+
+    public synchronized long incarnation() {
+        return incarnation;
+    }
+
+    private void apply(MemberUpdate update) {
+        String nodeId = update.getNodeId();
+        if (nodeId.isEmpty() || update.getState() == MemberUpdate.State.UNRECOGNIZED) {
+            return;
+        }
+
+        if (nodeId.equals(selfId())) {
+            if (update.getState() != MemberUpdate.State.ALIVE && update.getIncarnation() >= incarnation) {
+                incarnation = update.getIncarnation() + 1;
+                logger.info("Refuting {} about this node with incarnation {}", update.getState(), incarnation);
+                enqueue(self());
+            }
+            return;
+        }
+
+        Member current = members.get(nodeId);
+        if (!overrides(update, current)) {
+            return;
+        }
+
+        members.put(nodeId, new Member(update.getState(), update.getIncarnation(), clock.getAsLong()));
+        if (current == null) {
+            // New members join the probe order at a random position, as in SWIM
+            probeOrder.add(ThreadLocalRandom.current().nextInt(probeOrder.size() + 1), nodeId);
+        }
+        if (current == null || current.state() != update.getState()) {
+            logger.info("Node {} is now {} at incarnation {}", nodeId, update.getState(), update.getIncarnation());
+        }
+        enqueue(update);
+    }
+
+    /**
+     * Decides whether an update supersedes what is known about a member.
+     */
+    private static boolean overrides(MemberUpdate update, Member current) {
+        if (current == null) {
+            return update.getState() != MemberUpdate.State.DEAD; // Nothing to learn from an unknown node's death
+        }
+
+        long incoming = update.getIncarnation();
+        return switch (update.getState()) {
+            case ALIVE -> incoming > current.incarnation();
+            case SUSPECT -> current.state() == MemberUpdate.State.ALIVE
+                    ? incoming >= current.incarnation()
+                    : current.state() == MemberUpdate.State.SUSPECT && incoming > current.incarnation();
+            case DEAD -> current.state() != MemberUpdate.State.DEAD && incoming >= current.incarnation();
+            default -> false;
+        };
+    }
+
+    private void enqueue(MemberUpdate update) {
+        // A newer update about a member replaces the queued one and starts over
+        queue.put(update.getNodeId(), new Queued(update));
+    }
+
+    /**
+     * Number of times each update is piggybacked: retransmit-mult * ceil(log2(N + 2)).
+     */
+    private int retransmitLimit() {
+        return retransmitMult * (32 - Integer.numberOfLeadingZeros(members.size() + 1));
+    }
+
+    private MemberUpdate self() {
+        return MemberUpdate.newBuilder()
+                .setNodeId(selfId())
+                .setState(MemberUpdate.State.ALIVE)
+                .setIncarnation(incarnation)
+                .build();
+    }
+
+    private static MemberUpdate update(String nodeId, Member member) {
+        return MemberUpdate.newBuilder()
+                .setNodeId(nodeId)
+                .setState(member.state())
+                .setIncarnation(member.incarnation())
+                .build();
+    }
+
+    private record Member(MemberUpdate.State state, long incarnation, long since) {}
+
+    private static final class Queued {
+        private final MemberUpdate update;
+        private int transmissions;
+
+        Queued(MemberUpdate update) {
+            this.update = update;
+        }
+
+        MemberUpdate update() {
+            return update;
+        }
+
+        int transmissions() {
+            return transmissions;
+        }
+    }
+}
@@ -1,87 +1,68 @@
 package com.github.adnant1.servicediscovery.gossip;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
-import com.github.adnant1.servicediscovery.identity.NodeIdentityProvider;
-
 /**
  * Registry for managing peer nodes in the gossip protocol.
  */
 @Component
 public class PeerRegistry {
 
-    private final StringRedisTemplate redisTemplate;
-    private final NodeIdentityProvider nodeIdentityProvider;
+    private final Membership membership;
     private final List<String> seedPeers;
 
-    public PeerRegistry(StringRedisTemplate redisTemplate, NodeIdentityProvider nodeIdentityProvider, 
-                        @Value("${spring.cluster.seeds}")List<String> seedPeers) {
-        this.redisTemplate = redisTemplate;
-        this.nodeIdentityProvider = nodeIdentityProvider;
+    public PeerRegistry(Membership membership, @Value("${spring.cluster.seeds}")List<String> seedPeers) {
+        this.membership = membership;
         this.seedPeers = seedPeers;
     }
 
     /**
-     * Return a random peer node ID, excluding the current node's ID.
+     * Returns up to count distinct random peers, excluding the current node.
      * 
-     * @return a random peer node ID, or null if no peers are available
+     * @param count the maximum number of peers to return
+     * @return a list of peer addresses (hostname:port), possibly empty
      */
-    public String pickRandomPeer() {
-        Set<String> nodeIds = redisTemplate.keys("node:*");
-        if (nodeIds == null || nodeIds.isEmpty()) {
-            return null;
+    public List<String> pickRandomPeers(int count) {
+        List<String> peers = knownPeers();
+        if (peers.size() <= count) {
+            return peers;
         }
 
-        String self = nodeIdentityProvider.getNodeId();
-        String selfAddress = extractAddress(self);
+        Collections.shuffle(peers, ThreadLocalRandom.current());
+        return peers.subList(0, count);
+    }
 
-        List<String> peers = nodeIds.stream()
-                .map(key -> key.substring("node:".length()))
-                .map(this::extractAddress) // Remove "node:" prefix
-                .filter(id -> !id.equals(selfAddress))
+    /**
+     * Returns the addresses of all members the SWIM membership considers alive, excluding the current node.
+     * Falls back to the configured seed peers if no other node is known yet.
+     * 
+     * @return a list of peer addresses (hostname:port), possibly empty
+     */
+    public List<String> knownPeers() {
+        String selfAddress = Membership.addressOf(membership.selfId());
+
+        List<String> peers = membership.aliveMembers().stream()
+                .map(Membership::addressOf)
+                .filter(address -> !address.equals(selfAddress))
                 .distinct()
                 .collect(Collectors.toCollection(ArrayList::new));
 
-
         // Fallback to seed peers if no peers found
         if (peers.isEmpty()) {
             for (String seed : seedPeers) {
-                if (!extractAddress(seed).equals(selfAddress)) {
+                if (!Membership.addressOf(seed).equals(selfAddress)) {
                     peers.add(seed);
                 }
             }
         }
 
-        if (peers.isEmpty()) {
-            return null; // No peers available
-        }
-
-        int randomIndex = ThreadLocalRandom.current().nextInt(peers.size());
-        String selectedPeer = peers.get(randomIndex);
-        return selectedPeer;
-    }
-
-    /**
-     * Extracts the address (hostname:port) from a node ID.
-     * 
-     * @param nodeId the full node ID
-     * @return the address portion of the node ID
-     */
-    private String extractAddress(String nodeId) {
-        int dashIndex = nodeId.indexOf('-');
-
-        if (dashIndex == -1) {
-            return nodeId;
-        }
-
-        return nodeId.substring(0, dashIndex);
+        return peers;
     }
 }
@@ -0,0 +1,206 @@
+package com.github.adnant1.servicediscovery.gossip;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+/**
+ * Two-level hash tree over the registry used for anti-entropy.
+ * Instances are bucketed first by service name, then by instance key. Each leaf holds the
+ * sum of its entries' hashes, and each service bucket the sum of its leaves, so two nodes
+ * can find where they diverge by comparing service buckets first and leaves second,
+ * and then only exchange the instances in differing leaves.
+ */
+public final class StateDigest {
+
+    private final int serviceBuckets;
+    private final int instanceBuckets;
+    private final long[] leaves;
+
+    private StateDigest(int serviceBuckets, int instanceBuckets) {
+        this.serviceBuckets = serviceBuckets;
+        this.instanceBuckets = instanceBuckets;
+        this.leaves = new long[serviceBuckets * instanceBuckets];
+    }
+
+    /**
+     * Builds the hash tree for a registry dump.
+     *
+     * @param state a map of instance keys ("service:instanceId") to instances
+     * @param serviceBuckets the number of first-level buckets
+     * @param instanceBuckets the number of leaves per service bucket
+     * @return the digest of the given state
+     */
+    public static StateDigest of(Map<String, ServiceInstance> state, int serviceBuckets, int instanceBuckets) {
+        StateDigest digest = new StateDigest(serviceBuckets, instanceBuckets);
+        for (Map.Entry<String, ServiceInstance> entry : state.entrySet()) {
+            String key = entry.getKey();
+            digest.leaves[digest.leafOf(key)] += entryHash(key, entry.getValue().getLastUpdated());
+        }
+        return digest;
+    }
+
+    /**
+     * Returns the hash of every non-empty service bucket.
+     *
+     * @return a map of service bucket index to hash
+     */
+    public Map<Integer, Long> serviceHashes() {
+        Map<Integer, Long> hashes = new HashMap<>();
+        for (int bucket = 0; bucket < serviceBuckets; bucket++) {
+            long hash = serviceHash(bucket);
+            if (hash != 0) {
+                hashes.put(bucket, hash);
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Compares service bucket hashes with a peer's. A bucket missing from either side counts as empty.
+     *
+     * @param remote the peer's service bucket hashes
+     * @return the indexes of service buckets whose hashes differ
+     */
+    public Set<Integer> differingServiceBuckets(Map<Integer, Long> remote) {
+        Set<Integer> differing = new HashSet<>();
+        for (int bucket = 0; bucket < serviceBuckets; bucket++) {
+            if (serviceHash(bucket) != remote.getOrDefault(bucket, 0L)) {
+                differing.add(bucket);
+            }
+        }
+        return differing;
+    }
+
+    /**
+     * Returns the non-empty leaf hashes under the given service buckets.
+     *
+     * @param serviceBucketIds the service buckets to expand
+     * @return a map of leaf index to hash
+     */
+    public Map<Integer, Long> leafHashes(Collection<Integer> serviceBucketIds) {
+        Map<Integer, Long> hashes = new HashMap<>();
+        for (int bucket : serviceBucketIds) {
+            for (int leaf = bucket * instanceBuckets; leaf < (bucket + 1) * instanceBuckets; leaf++) {
+                if (leaves[leaf] != 0) {
+                    hashes.put(leaf, leaves[leaf]);
+                }
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Compares the leaves under the given service buckets with a peer's leaf hashes.
+     *
+     * @param serviceBucketIds the service buckets that were found to differ
+     * @param remoteLeaves the peer's non-empty leaf hashes under those buckets
+     * @return the indexes of leaves whose hashes differ
+     */
+    public Set<Integer> differingLeaves(Collection<Integer> serviceBucketIds, Map<Integer, Long> remoteLeaves) {
+        Set<Integer> differing = new HashSet<>();
+        for (int bucket : serviceBucketIds) {
+            for (int leaf = bucket * instanceBuckets; leaf < (bucket + 1) * instanceBuckets; leaf++) {
+                if (leaves[leaf] != remoteLeaves.getOrDefault(leaf, 0L)) {
+                    differing.add(leaf);
+                }
+            }
+        }
+        return differing;
+    }
+
+    /**
+     * Selects the instances that fall into the given leaves.
+     *
+     * @param state a map of instance keys to instances
+     * @param leafIds the leaves to select
+     * @return the subset of the state in those leaves
+     */
+    public Map<String, ServiceInstance> select(Map<String, ServiceInstance> state, Collection<Integer> leafIds) {
+        Set<Integer> wanted = new HashSet<>(leafIds);
+        Map<String, ServiceInstance> selected = new HashMap<>();
+        for (Map.Entry<String, ServiceInstance> entry : state.entrySet()) {
+            if (wanted.contains(leafOf(entry.getKey()))) {
+                selected.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the leaf an instance key falls into.
+     *
+     * @param instanceKey the instance key ("service:instanceId")
+     * @return the leaf index
+     */
+    public int leafOf(String instanceKey) {
+        return leafOf(instanceKey, serviceBuckets, instanceBuckets);
+    }
+
+    /**
+     * Returns the leaf an instance key falls into in a tree of the given shape.
+     *
+     * @param instanceKey the instance key ("service:instanceId")
+     * @param serviceBuckets the number of first-level buckets
+     * @param instanceBuckets the number of leaves per service bucket
+     * @return the leaf index
+     */
+    public static int leafOf(String instanceKey, int serviceBuckets, int instanceBuckets) {
+        int colon = instanceKey.indexOf(':');
+        String serviceName = colon >= 0 ? instanceKey.substring(0, colon) : instanceKey;
+
+        int instanceBucket = (int) Long.remainderUnsigned(hash(instanceKey), instanceBuckets);
+        return serviceBucketOf(serviceName, serviceBuckets) * instanceBuckets + instanceBucket;
+    }
+
+    /**
+     * Returns the service bucket a service falls into, so a read can skip services outside the wanted leaves.
+     *
+     * @param serviceName the name of the service
+     * @param serviceBuckets the number of first-level buckets
+     * @return the service bucket index
+     */
+    public static int serviceBucketOf(String serviceName, int serviceBuckets) {
+        return (int) Long.remainderUnsigned(hash(serviceName), serviceBuckets);
+    }
+
+    private long serviceHash(int bucket) {
+        long hash = 0;
+        for (int leaf = bucket * instanceBuckets; leaf < (bucket + 1) * instanceBuckets; leaf++) {
+            hash += leaves[leaf];
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes an entry by key and version so that any update to an instance changes its leaf.
+     */
+    private static long entryHash(String key, long lastUpdated) {
+        return mix(hash(key) ^ mix(lastUpdated));
+    }
+
+    /**
+     * 64-bit FNV-1a over the string's UTF-16 code units. Must be identical on every node.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads bits so sums of entry hashes rarely collide.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
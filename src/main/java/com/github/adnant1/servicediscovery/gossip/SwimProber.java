@@ -0,0 +1,113 @@
+package com.github.adnant1.servicediscovery.gossip;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.registry.PingReqRequest;
+import com.github.adnant1.servicediscovery.registry.PingRequest;
+import com.github.adnant1.servicediscovery.registry.PingResponse;
+
+/**
+ * SWIM failure detector.
+ * Every probe interval one member, taken from the Membership round-robin order, is pinged directly.
+ * If it does not acknowledge within the probe timeout, spring.gossip.swim.indirect-probes other
+ * members are asked to ping it on this node's behalf, which rules out a faulty path between the two.
+ * A member that misses both is marked suspect; it is declared dead only if it does not refute the
+ * suspicion in time. Each node sends one probe per interval, so the probe load per node and the
+ * expected detection time do not grow with the cluster.
+ */
+@Component
+public class SwimProber {
+
+    private final Logger logger = LoggerFactory.getLogger(SwimProber.class);
+
+    private final Membership membership;
+    private final GossipClient gossipClient;
+    private final int indirectProbes;
+
+    public SwimProber(Membership membership, GossipClient gossipClient,
+                      @Value("${spring.gossip.swim.indirect-probes:3}") int indirectProbes) {
+        this.membership = membership;
+        this.gossipClient = gossipClient;
+        this.indirectProbes = indirectProbes;
+    }
+
+    /**
+     * Runs one protocol period: expires suspicions and probes the next member.
+     * Scheduled to run every spring.gossip.swim.probe-interval-millis, 1 second by default.
+     */
+    @Scheduled(fixedRateString = "${spring.gossip.swim.probe-interval-millis:1000}")
+    public void probe() {
+        membership.expire();
+
+        String target = membership.nextProbeTarget();
+        if (target == null) {
+            return; // No other member known yet
+        }
+
+        PingRequest ping = PingRequest.newBuilder()
+                .setTargetNodeId(target)
+                .addAllMembers(membership.piggybackFor(target))
+                .build();
+
+        gossipClient.ping(Membership.addressOf(target), ping)
+                .thenApply(this::acknowledged)
+                .exceptionally(e -> false)
+                .thenCompose(acked -> acked ? CompletableFuture.completedFuture(true) : probeIndirectly(target))
+                .thenAccept(acked -> {
+                    if (!acked) {
+                        logger.info("Node {} missed direct and indirect probes, suspecting it", target);
+                        membership.suspect(target);
+                    }
+                });
+    }
+
+    /**
+     * Asks random members to ping the target.
+     *
+     * @param target the member that missed the direct probe
+     * @return a future completed with true once any relay reports an acknowledgement,
+     *         or with false once all of them failed
+     */
+    private CompletableFuture<Boolean> probeIndirectly(String target) {
+        List<String> relays = membership.randomMembers(indirectProbes, target);
+        if (relays.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(relays.size());
+
+        for (String relay : relays) {
+            PingReqRequest request = PingReqRequest.newBuilder()
+                    .setTargetNodeId(target)
+                    .addAllMembers(membership.piggyback())
+                    .build();
+
+            gossipClient.pingReq(Membership.addressOf(relay), request)
+                    .thenApply(this::acknowledged)
+                    .exceptionally(e -> false)
+                    .thenAccept(acked -> {
+                        if (acked) {
+                            result.complete(true);
+                        } else if (remaining.decrementAndGet() == 0) {
+                            result.complete(false);
+                        }
+                    });
+        }
+
+        return result;
+    }
+
+    private boolean acknowledged(PingResponse response) {
+        membership.apply(response.getMembersList());
+        return response.getAck();
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.cache.DiscoverySnapshot;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
+import com.github.adnant1.servicediscovery.registry.DiscoverRequest;
+import com.github.adnant1.servicediscovery.registry.DiscoverResponse;
+import com.github.adnant1.servicediscovery.registry.RegistryServiceGrpc;
+
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Binds the registry service with Discover answered from the DiscoverySnapshot when it is enabled.
+ * The snapshot's pre-serialized response is written to the call as is, so a Discover served
+ * locally reads no store and builds no messages; paged and subset requests are cut from the
+ * snapshot's instances. Calls to forward, invalid requests and calls arriving before the first
+ * snapshot is built go to RegistryServiceImpl unchanged.
+ */
+@Component
+public class DiscoverSnapshotBinding {
+
+    private static final MethodDescriptor.Marshaller<byte[]> BYTES = new BytesMarshaller();
+
+    private final DiscoverySnapshot discoverySnapshot;
+    private final RegistryForwarder registryForwarder;
+    private final RegistryServiceImpl registryService;
+    private final int maxPageSize;
+
+    public DiscoverSnapshotBinding(DiscoverySnapshot discoverySnapshot, RegistryForwarder registryForwarder,
+                                   RegistryServiceImpl registryService,
+                                   @Value("${spring.discover.max-page-size:1000}") int maxPageSize) {
+        this.discoverySnapshot = discoverySnapshot;
+        this.registryForwarder = registryForwarder;
+        this.registryService = registryService;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Returns the registry service definition to serve.
+     *
+     * @return the service with Discover replaced, or the plain service if the snapshot is disabled
+     */
+    public ServerServiceDefinition bindService() {
+        ServerServiceDefinition definition = registryService.bindService();
+        if (!discoverySnapshot.enabled()) {
+            return definition;
+        }
+
+        MethodDescriptor<DiscoverRequest, DiscoverResponse> discover = RegistryServiceGrpc.getDiscoverMethod();
+        MethodDescriptor<DiscoverRequest, byte[]> rawDiscover =
+            discover.toBuilder(discover.getRequestMarshaller(), BYTES).build();
+
+        // The descriptor must list the very method instances that are bound, so it is rebuilt as well
+        ServiceDescriptor original = definition.getServiceDescriptor();
+        ServiceDescriptor.Builder descriptor = ServiceDescriptor.newBuilder(original.getName())
+                .setSchemaDescriptor(original.getSchemaDescriptor())
+                .addMethod(rawDiscover);
+        for (ServerMethodDefinition<?, ?> method : definition.getMethods()) {
+            if (method.getMethodDescriptor() != discover) {
+                descriptor.addMethod(method.getMethodDescriptor());
+            }
+        }
+
+        ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(descriptor.build())
+                .addMethod(rawDiscover, ServerCalls.asyncUnaryCall(this::discover));
+        for (ServerMethodDefinition<?, ?> method : definition.getMethods()) {
+            if (method.getMethodDescriptor() != discover) {
+                builder.addMethod(method);
+            }
+        }
+        return builder.build();
+    }
+
+    private void discover(DiscoverRequest request, StreamObserver<byte[]> responseObserver) {
+        String serviceName = request.getServiceName();
+        DiscoverySnapshot.ServiceView view = serviceName.isEmpty() || registryForwarder.shouldForward(serviceName)
+            ? null
+            : discoverySnapshot.view(serviceName);
+
+        if (view != null) {
+            if (request.getIfRevisionNot() != 0 && request.getIfRevisionNot() == view.revision()) {
+                responseObserver.onNext(InstanceSelection.notModified(view.revision()).toByteArray());
+                responseObserver.onCompleted();
+                return;
+            }
+            if (InstanceSelection.isPlain(request) && view.instances().size() <= maxPageSize) {
+                responseObserver.onNext(view.responseBytes());
+                responseObserver.onCompleted();
+                return;
+            }
+            if (InstanceSelection.validate(request) == null) {
+                // Pages and subsets are cut from the snapshot's sorted list; only the response is built
+                DiscoverResponse response = InstanceSelection.select(request, view.instances(), maxPageSize, view.revision());
+                responseObserver.onNext(response.toByteArray());
+                responseObserver.onCompleted();
+                return;
+            }
+        }
+
+        registryService.discover(request, new StreamObserver<DiscoverResponse>() {
+            @Override
+            public void onNext(DiscoverResponse value) {
+                responseObserver.onNext(value.toByteArray());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                responseObserver.onError(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onCompleted();
+            }
+        });
+    }
+
+    /**
+     * Marshals messages that are already serialized.
+     */
+    private static final class BytesMarshaller implements MethodDescriptor.Marshaller<byte[]> {
+
+        @Override
+        public InputStream stream(byte[] value) {
+            return new KnownLengthStream(value);
+        }
+
+        @Override
+        public byte[] parse(InputStream stream) {
+            try {
+                return stream.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Lets gRPC size the message frame without copying the bytes first.
+     */
+    private static final class KnownLengthStream extends ByteArrayInputStream implements KnownLength {
+
+        KnownLengthStream(byte[] bytes) {
+            super(bytes);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.partition.PartitionRouter;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+/**
+ * Server interceptor that marks calls forwarded by another node, so that
+ * RegistryForwarder serves them locally instead of forwarding them again.
+ * The forwarded header is only honored on calls from a node on the partition ring,
+ * matched by IP address. From anyone else it is ignored, so a client cannot use it
+ * to write to a node that does not replicate the service.
+ */
+@Component
+public class ForwardedCallInterceptor implements ServerInterceptor {
+
+    private final Logger logger = LoggerFactory.getLogger(ForwardedCallInterceptor.class);
+
+    private final PartitionRouter partitionRouter;
+
+    // The ring's nodes and their IP addresses, resolved again whenever the ring changes
+    private volatile ResolvedNodes resolved = new ResolvedNodes(Set.of(), Set.of());
+
+    public ForwardedCallInterceptor(PartitionRouter partitionRouter) {
+        this.partitionRouter = partitionRouter;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        if (!headers.containsKey(RegistryForwarder.FORWARDED_HEADER)
+                || !fromClusterNode(call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR))) {
+            return next.startCall(call, headers);
+        }
+
+        Context context = Context.current().withValue(RegistryForwarder.FORWARDED, true);
+        return Contexts.interceptCall(context, call, headers, next);
+    }
+
+    /**
+     * Checks whether a call comes from a node on the partition ring.
+     * Nodes only forward with partitioning enabled, so without it no call qualifies.
+     */
+    private boolean fromClusterNode(SocketAddress remote) {
+        if (!partitionRouter.enabled() || !(remote instanceof InetSocketAddress inet) || inet.getAddress() == null) {
+            return false;
+        }
+
+        Set<String> nodes = partitionRouter.nodes();
+        ResolvedNodes current = resolved;
+        if (!current.nodes().equals(nodes)) {
+            current = resolve(nodes);
+            resolved = current;
+        }
+        return current.addresses().contains(inet.getAddress());
+    }
+
+    private ResolvedNodes resolve(Set<String> nodes) {
+        Set<InetAddress> addresses = new HashSet<>();
+        for (String node : nodes) {
+            int colon = node.lastIndexOf(':');
+            String host = colon >= 0 ? node.substring(0, colon) : node;
+            try {
+                addresses.addAll(List.of(InetAddress.getAllByName(host)));
+            } catch (UnknownHostException e) {
+                logger.warn("Failed to resolve cluster node {}: {}", node, e.getMessage());
+            }
+        }
+        return new ResolvedNodes(nodes, addresses);
+    }
+
+    private record ResolvedNodes(Set<String> nodes, Set<InetAddress> addresses) {}
+}
@@ -1,121 +1,420 @@
 package com.github.adnant1.servicediscovery.grpc;
 
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.github.adnant1.servicediscovery.identity.NodeIdentityProvider;
+import com.github.adnant1.servicediscovery.gossip.GossipClient;
+import com.github.adnant1.servicediscovery.gossip.LocalStateProvider;
+import com.github.adnant1.servicediscovery.gossip.Membership;
+import com.github.adnant1.servicediscovery.gossip.StateDigest;
+import com.github.adnant1.servicediscovery.metrics.GossipMetrics;
+import com.github.adnant1.servicediscovery.partition.PartitionRouter;
+import com.github.adnant1.servicediscovery.registry.DigestRequest;
+import com.github.adnant1.servicediscovery.registry.DigestResponse;
+import com.github.adnant1.servicediscovery.registry.FetchRequest;
+import com.github.adnant1.servicediscovery.registry.FetchResponse;
 import com.github.adnant1.servicediscovery.registry.GossipRequest;
 import com.github.adnant1.servicediscovery.registry.GossipResponse;
 import com.github.adnant1.servicediscovery.registry.GossipServiceGrpc;
-import com.github.adnant1.servicediscovery.registry.NodeInfo;
+import com.github.adnant1.servicediscovery.registry.PingReqRequest;
+import com.github.adnant1.servicediscovery.registry.PingRequest;
+import com.github.adnant1.servicediscovery.registry.PingResponse;
 import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.store.StateDelta;
 
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 
 /**
  * gRPC service implementation for handling gossip synchronization requests.
- * It processes incoming service instance data, updates the local Redis store,
- * and responds with the number of changes applied.
+ * It processes incoming service instance data, updates the local registry store,
+ * and responds with the number of changes applied and the time the merge took. A sync that asks to pull is answered
+ * with the local entries the sender lacks as well, so both sides converge in one exchange.
+ * Message sizes, merge results and the time spent in the registry store are recorded in GossipMetrics.
+ * It also answers SWIM probes, directly or relayed for another member, and every message
+ * exchanged carries membership updates both ways.
+ * With partitioning enabled, the state returned to a sender only covers the partitions it replicates.
+ * Full-state pulls and fetches return at most spring.gossip.max-pull-size instances per response, with a
+ * page token the sender passes back for the rest. Full-state pulls are ordered by service, then instance key,
+ * and read from the store page by page; fetches are ordered by instance key.
  */
 @Service
 public class GossipServiceImpl extends GossipServiceGrpc.GossipServiceImplBase {
 
-    private final StringRedisTemplate redisTemplate;
-    private final NodeIdentityProvider nodeIdentityProvider;
+    // Upper bound on leaves a peer may ask us to hash, to keep digest memory bounded
+    private static final int MAX_LEAVES = 1 << 20;
+    // Services read by the first batch of a full-state page; each further batch doubles
+    private static final int FIRST_PAGE_BATCH = 16;
+    // Pages are ordered by service, then by instance key, so a page token names the service to resume from
+    private static final Comparator<String> PAGE_ORDER =
+            Comparator.comparing(GossipServiceImpl::serviceOf).thenComparing(Comparator.naturalOrder());
 
-    public GossipServiceImpl(StringRedisTemplate redisTemplate, NodeIdentityProvider nodeIdentityProvider) {
-        this.redisTemplate = redisTemplate;
-        this.nodeIdentityProvider = nodeIdentityProvider;
+    private final RegistryStore registryStore;
+    private final LocalStateProvider localStateProvider;
+    private final Membership membership;
+    private final GossipClient gossipClient;
+    private final PartitionRouter partitionRouter;
+    private final GossipMetrics gossipMetrics;
+    private final int maxDeltaSize;
+    private final int maxPullSize;
+
+    public GossipServiceImpl(RegistryStore registryStore, LocalStateProvider localStateProvider, Membership membership,
+                             GossipClient gossipClient, PartitionRouter partitionRouter, GossipMetrics gossipMetrics,
+                             @Value("${spring.gossip.max-delta-size:5000}") int maxDeltaSize,
+                             @Value("${spring.gossip.max-pull-size:5000}") int maxPullSize) {
+        this.registryStore = registryStore;
+        this.localStateProvider = localStateProvider;
+        this.membership = membership;
+        this.gossipClient = gossipClient;
+        this.partitionRouter = partitionRouter;
+        this.gossipMetrics = gossipMetrics;
+        this.maxDeltaSize = maxDeltaSize;
+        this.maxPullSize = Math.max(1, maxPullSize);
     }
     
     /**
      * Handles incoming gossip synchronization requests.
-     * It updates the local Redis store with the received service instances,
+     * It updates the local registry store with the received service instances,
      * applying TTL and last-updated logic to determine whether to insert, overwrite, or ignore
-     * each instance.
+     * each instance. If the request asks to pull, the response carries the local entries
+     * that are newer than the sender's copy or missing from it.
      * 
      * @param request the incoming gossip request containing service instances
      * @param responseObserver the observer to send the response back to the client
      */
     @Override
     public void sync(GossipRequest request, StreamObserver<GossipResponse> responseObserver) {
-        int changes = 0;
-        long now = System.currentTimeMillis();
+        gossipMetrics.recordPayload("sync", "received", request.getSerializedSize());
 
         // Service merge
-        for (Map.Entry<String, ServiceInstance> entry: request.getInstancesMap().entrySet()) {
-            String serviceKey = entry.getKey();
-            ServiceInstance incomingInstance = entry.getValue();
-            
-            // Check if the incoming instance has expired (TTL is in seconds, convert to millis)
-            if (now - incomingInstance.getLastUpdated() > (incomingInstance.getTtl() * 1000)) {
-                redisTemplate.delete(serviceKey);
-                continue;
-            }
+        long mergeStart = System.nanoTime();
+        int changes = gossipMetrics.timeStore("mergeInstances", () -> registryStore.mergeInstances(request.getInstancesMap()));
+        long mergeNanos = System.nanoTime() - mergeStart;
+        gossipMetrics.recordMerge("sync", changes);
+
+        // Membership merge
+        membership.apply(request.getMembersList());
+
+        GossipResponse.Builder builder = GossipResponse.newBuilder()
+                .setSuccess(true)
+                .setMessage("Applied " + changes + " updates")
+                .setMergeMicros(TimeUnit.NANOSECONDS.toMicros(mergeNanos))
+                .addAllMembers(membership.piggyback());
+        if (request.getPull()) {
+            addPulledState(request, builder);
+        }
+        GossipResponse response = builder.build();
 
-            // Fetch local instance from Redis hash
-            Map<Object, Object> localFields = redisTemplate.opsForHash().entries(serviceKey);
-            
-            // Decide whether to insert/overwrite/ignore
-            boolean shouldUpdate = false;
-            if (localFields == null || localFields.isEmpty()) {
-                shouldUpdate = true; // New instance
-            } else {
-                String localTsStr = (String) localFields.get("timestamp");
-                if (localTsStr != null) {
-                    long localTimestamp = Long.parseLong(localTsStr);
-                    if (incomingInstance.getLastUpdated() > localTimestamp) {
-                        shouldUpdate = true; // Incoming is newer
-                    }
+        gossipMetrics.recordPayload("sync", "sent", response.getSerializedSize());
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Handles a streamed gossip push.
+     * Each chunk is merged as soon as it arrives and then dropped, and gRPC only reads the next
+     * chunk once this one has been handled, so memory stays flat however large the sender's registry is.
+     * Chunks merged before a stream fails stay applied. Streams are push only; pull fields are ignored.
+     * 
+     * @param responseObserver the observer to send the response back to the client
+     * @return the observer receiving the chunks
+     */
+    @Override
+    public StreamObserver<GossipRequest> syncStream(StreamObserver<GossipResponse> responseObserver) {
+        return new StreamObserver<>() {
+            private int chunks;
+            private int changes;
+            private long mergeNanos;
+
+            @Override
+            public void onNext(GossipRequest chunk) {
+                gossipMetrics.recordPayload("syncStream", "received", chunk.getSerializedSize());
+
+                chunks++;
+                long mergeStart = System.nanoTime();
+                changes += gossipMetrics.timeStore("mergeInstances", () -> registryStore.mergeInstances(chunk.getInstancesMap()));
+                mergeNanos += System.nanoTime() - mergeStart;
+                if (chunk.getMembersCount() > 0) {
+                    membership.apply(chunk.getMembersList());
                 }
             }
 
-            if (shouldUpdate) {
-                // Extract service name for the set
-                String[] parts = serviceKey.split(":", 2);
-                String serviceName = parts.length == 2 ? parts[0] : serviceKey;
-
-                // Store as hash
-                Map<String, String> fields = new HashMap<>();
-                fields.put("ip", incomingInstance.getIp());
-                fields.put("port", String.valueOf(incomingInstance.getPort()));
-                fields.put("timestamp", String.valueOf(incomingInstance.getLastUpdated()));
-
-                redisTemplate.opsForHash().putAll(serviceKey, fields);
-                redisTemplate.expire(serviceKey, incomingInstance.getTtl(), TimeUnit.SECONDS);
-                
-                // Add to service set
-                redisTemplate.opsForSet().add("service:" + serviceName, serviceKey);
-                
-                changes++;
+            @Override
+            public void onError(Throwable t) {
+                gossipMetrics.recordMerge("syncStream", changes); // The sender gave up; nothing to respond to
+            }
+
+            @Override
+            public void onCompleted() {
+                gossipMetrics.recordMerge("syncStream", changes);
+
+                GossipResponse response = GossipResponse.newBuilder()
+                        .setSuccess(true)
+                        .setMessage("Applied " + changes + " updates from " + chunks + " chunks")
+                        .setMergeMicros(TimeUnit.NANOSECONDS.toMicros(mergeNanos))
+                        .addAllMembers(membership.piggyback())
+                        .build();
+
+                gossipMetrics.recordPayload("syncStream", "sent", response.getSerializedSize());
+                responseObserver.onNext(response);
+                responseObserver.onCompleted();
             }
+        };
+    }
+
+    /**
+     * Adds the local entries the sender is missing or holds an older copy of to a sync response.
+     * A full-state request is compared against the whole local registry, one page at a time. Otherwise
+     * only the local changes after the version the sender last pulled are considered, and the response
+     * carries the version to pull from next time.
+     * Entries the sender just pushed are not echoed back.
+     * 
+     * @param request the sync request asking to pull
+     * @param response the response to add the pulled state to
+     */
+    private void addPulledState(GossipRequest request, GossipResponse.Builder response) {
+        if (request.getFullState()) {
+            response.putAllInstances(fullStatePage(request, response::setNextPageToken));
+            return;
         }
 
-        // Node merge
-        for (Map.Entry<String, NodeInfo> entry: request.getNodesMap().entrySet()) {
-            String nodeId = entry.getKey();
-            NodeInfo info = entry.getValue();
-
-            if (!nodeId.equals(nodeIdentityProvider.getNodeId())) {
-                redisTemplate.opsForValue().set(
-                    "node:" + nodeId,
-                    String.valueOf(info.getLastUpdated()),
-                    60, TimeUnit.SECONDS
-                );
+        long since = request.getPullSinceVersion();
+        StateDelta delta = gossipMetrics.timeStore(
+            "dumpChangesSince", () -> localStateProvider.dumpChangesSince(since, maxDeltaSize)
+        );
+        if (delta.currentVersion() < since) {
+            // The local version counter went backwards (Redis was flushed), so start over
+            delta = gossipMetrics.timeStore(
+                "dumpChangesSince", () -> localStateProvider.dumpChangesSince(0, maxDeltaSize)
+            );
+        }
+        response.setVersion(delta.lastVersion());
+        response.putAllInstances(newerThanPushed(request, forSender(request.getSender(), delta.instances())));
+    }
+
+    /**
+     * Reads one page of a full-state pull, of at most spring.gossip.max-pull-size entries in page order.
+     * Services are listed from the store's service index and read in growing batches, starting from
+     * the service of the page token, until the page is full, so a page only reads the services it covers
+     * rather than the whole registry. Later pages carry no pushed state to compare against,
+     * so they return every entry after the page token.
+     * 
+     * @param request the full-state sync request
+     * @param nextPageToken receives the last key of this page if more entries follow it
+     * @return the entries on this page
+     */
+    private Map<String, ServiceInstance> fullStatePage(GossipRequest request, Consumer<String> nextPageToken) {
+        String pageToken = request.getPageToken();
+        String fromService = pageToken.isEmpty() ? "" : serviceOf(pageToken);
+        List<String> serviceNames = gossipMetrics.timeStore("serviceNames", localStateProvider::serviceNames).stream()
+                .filter(name -> name.compareTo(fromService) >= 0)
+                .sorted()
+                .toList();
+
+        // One entry past the page tells whether another page follows
+        NavigableMap<String, ServiceInstance> pulled = new TreeMap<>(PAGE_ORDER);
+        int batchSize = FIRST_PAGE_BATCH;
+        for (int from = 0; from < serviceNames.size() && pulled.size() <= maxPullSize; from += batchSize, batchSize *= 2) {
+            Set<String> batch = new HashSet<>(serviceNames.subList(from, Math.min(from + batchSize, serviceNames.size())));
+            Map<String, ServiceInstance> dumped = gossipMetrics.timeStore("dumpServices", () -> localStateProvider.dumpServices(
+                batch::contains, key -> pageToken.isEmpty() || PAGE_ORDER.compare(key, pageToken) > 0
+            ));
+            pulled.putAll(newerThanPushed(request, forSender(request.getSender(), dumped)));
+        }
+        return page(pulled, "", nextPageToken);
+    }
+
+    /**
+     * Keeps the entries the sender did not push, or pushed an older copy of.
+     */
+    private static Map<String, ServiceInstance> newerThanPushed(GossipRequest request, Map<String, ServiceInstance> candidates) {
+        Map<String, ServiceInstance> pushed = request.getInstancesMap();
+        Map<String, ServiceInstance> newer = new HashMap<>();
+        candidates.forEach((key, instance) -> {
+            ServiceInstance theirs = pushed.get(key);
+            if (theirs == null || instance.getLastUpdated() > theirs.getLastUpdated()) {
+                newer.put(key, instance);
+            }
+        });
+        return newer;
+    }
+
+    private static String serviceOf(String instanceKey) {
+        int colon = instanceKey.indexOf(':');
+        return colon >= 0 ? instanceKey.substring(0, colon) : instanceKey;
+    }
+
+    /**
+     * Cuts one page of at most spring.gossip.max-pull-size instances from a sorted map.
+     * 
+     * @param instances the instances to page, in page order
+     * @param pageToken the last key of the previous page, or empty for the first page
+     * @param nextPageToken receives the last key of this page if more instances follow it
+     * @return the instances on this page
+     */
+    private Map<String, ServiceInstance> page(NavigableMap<String, ServiceInstance> instances, String pageToken,
+                                              Consumer<String> nextPageToken) {
+        Map<String, ServiceInstance> page = new LinkedHashMap<>();
+        String last = null;
+        for (Map.Entry<String, ServiceInstance> entry
+                : (pageToken.isEmpty() ? instances : instances.tailMap(pageToken, false)).entrySet()) {
+            if (page.size() == maxPullSize) {
+                nextPageToken.accept(last);
+                break;
             }
+            page.put(entry.getKey(), entry.getValue());
+            last = entry.getKey();
         }
+        return page;
+    }
 
-        GossipResponse response = GossipResponse.newBuilder()
-                .setSuccess(true)
-                .setMessage("Applied " + changes + " updates")
+    /**
+     * Handles the first phase of anti-entropy.
+     * Compares the peer's service bucket hashes with the local ones and returns
+     * the local leaf hashes under every service bucket that differs.
+     * The local hashes come from the dump shared by every digest within spring.gossip.digest.cache-millis,
+     * so a node asked by many peers in one round reads its registry once.
+     * 
+     * @param request the peer's service bucket hashes
+     * @param responseObserver the observer to send the differing buckets and their leaves back to
+     */
+    @Override
+    public void digest(DigestRequest request, StreamObserver<DigestResponse> responseObserver) {
+        gossipMetrics.recordPayload("digest", "received", request.getSerializedSize());
+        if (!validBuckets(request.getServiceBuckets(), request.getInstanceBuckets(), responseObserver)) {
+            return;
+        }
+
+        StateDigest local = StateDigest.of(
+            forSender(request.getSender(), gossipMetrics.timeStore("dumpServices", localStateProvider::cachedDump).instances()),
+            request.getServiceBuckets(), request.getInstanceBuckets()
+        );
+        Set<Integer> differing = local.differingServiceBuckets(request.getServiceHashesMap());
+
+        DigestResponse response = DigestResponse.newBuilder()
+                .addAllDifferingServiceBuckets(differing)
+                .putAllLeafHashes(local.leafHashes(differing))
                 .build();
 
+        gossipMetrics.recordPayload("digest", "sent", response.getSerializedSize());
         responseObserver.onNext(response);
         responseObserver.onCompleted();
     }
-    
+
+    /**
+     * Handles the last phase of anti-entropy by returning the local instances in the requested leaves,
+     * one page at a time. Only the services and instances in those leaves are read.
+     * 
+     * @param request the leaves the peer found to differ
+     * @param responseObserver the observer to send the instances back to
+     */
+    @Override
+    public void fetch(FetchRequest request, StreamObserver<FetchResponse> responseObserver) {
+        gossipMetrics.recordPayload("fetch", "received", request.getSerializedSize());
+        if (!validBuckets(request.getServiceBuckets(), request.getInstanceBuckets(), responseObserver)) {
+            return;
+        }
+
+        Map<String, ServiceInstance> state = forSender(request.getSender(), gossipMetrics.timeStore(
+            "dumpServices",
+            () -> localStateProvider.dumpLeaves(request.getLeavesList(), request.getServiceBuckets(), request.getInstanceBuckets())
+        ));
+
+        FetchResponse.Builder builder = FetchResponse.newBuilder();
+        builder.putAllInstances(page(new TreeMap<>(state), request.getPageToken(), builder::setNextPageToken));
+        FetchResponse response = builder.build();
+
+        gossipMetrics.recordPayload("fetch", "sent", response.getSerializedSize());
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Handles a direct SWIM probe.
+     * Acknowledges only if this node is the member the prober meant, so a restarted node
+     * reusing the address does not answer for its predecessor.
+     * 
+     * @param request the probe and the prober's membership updates
+     * @param responseObserver the observer to send the acknowledgement back to
+     */
+    @Override
+    public void ping(PingRequest request, StreamObserver<PingResponse> responseObserver) {
+        membership.apply(request.getMembersList());
+
+        responseObserver.onNext(PingResponse.newBuilder()
+                .setAck(request.getTargetNodeId().equals(membership.selfId()))
+                .addAllMembers(membership.piggyback())
+                .build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Handles an indirect SWIM probe by pinging the target on the sender's behalf and
+     * relaying whether it acknowledged. The call is answered once the ping completes
+     * or times out; no thread waits for it.
+     * 
+     * @param request the member to probe and the sender's membership updates
+     * @param responseObserver the observer to send the relayed acknowledgement back to
+     */
+    @Override
+    public void pingReq(PingReqRequest request, StreamObserver<PingResponse> responseObserver) {
+        membership.apply(request.getMembersList());
+
+        String target = request.getTargetNodeId();
+        PingRequest ping = PingRequest.newBuilder()
+                .setTargetNodeId(target)
+                .addAllMembers(membership.piggybackFor(target))
+                .build();
+
+        gossipClient.ping(Membership.addressOf(target), ping).whenComplete((response, error) -> {
+            boolean acked = error == null && response.getAck();
+            if (error == null) {
+                membership.apply(response.getMembersList());
+            }
+
+            responseObserver.onNext(PingResponse.newBuilder()
+                    .setAck(acked)
+                    .addAllMembers(membership.piggyback())
+                    .build());
+            responseObserver.onCompleted();
+        });
+    }
+
+    /**
+     * Keeps the local instances the sender of a gossip request replicates.
+     * Senders that do not identify themselves get everything.
+     */
+    private Map<String, ServiceInstance> forSender(String sender, Map<String, ServiceInstance> state) {
+        return sender.isEmpty() ? state : partitionRouter.filterFor(sender, state);
+    }
+
+    /**
+     * Validates the hash tree shape sent by a peer.
+     * 
+     * @return true if the shape is usable, false if an error was sent to the observer
+     */
+    private boolean validBuckets(int serviceBuckets, int instanceBuckets, StreamObserver<?> responseObserver) {
+        if (serviceBuckets <= 0 || instanceBuckets <= 0 || (long) serviceBuckets * instanceBuckets > MAX_LEAVES) {
+            responseObserver.onError(
+                Status.INVALID_ARGUMENT
+                    .withDescription("Invalid digest shape: " + serviceBuckets + "x" + instanceBuckets)
+                    .asRuntimeException()
+            );
+            return false;
+        }
+        return true;
+    }
 }
@@ -0,0 +1,162 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.registry.RegistryServiceGrpc;
+
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallExecutorSupplier;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Threading and transport settings for the gRPC server.
+ *
+ * The executor runs service handlers, and spring.grpc.server.executor selects it:
+ * - virtual: one virtual thread per call, so handlers blocking on Redis do not pin platform threads
+ * - bounded: a fixed pool of platform threads, with further calls queued until a thread frees up
+ * - direct: non-blocking handlers run on the Netty event loop. Only RegistryService never waits on the
+ *   store; calls to every other service (gossip, leases) still run on one virtual thread per call
+ * - default: gRPC's own cached thread pool, which grows without limit under load
+ *
+ * Netty's boss and worker event loops, the epoll transport, the per-connection stream limit
+ * and the HTTP/2 flow-control window are configured alongside it.
+ */
+@Profile("!test")
+@Component
+public class GrpcServerOptions {
+
+    private static final Logger logger = LoggerFactory.getLogger(GrpcServerOptions.class);
+
+    // Services whose handlers only start async store operations, so they may run on the event loop
+    private static final Set<String> NON_BLOCKING_SERVICES = Set.of(RegistryServiceGrpc.SERVICE_NAME);
+
+    private final String executorMode;
+    private final int executorThreads;
+    private final int bossThreads;
+    private final int workerThreads;
+    private final boolean epoll;
+    private final int maxConcurrentStreams;
+    private final int flowControlWindow;
+
+    private ExecutorService executor;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+
+    public GrpcServerOptions(@Value("${spring.grpc.server.executor:virtual}") String executorMode,
+                             @Value("${spring.grpc.server.executor-threads:64}") int executorThreads,
+                             @Value("${spring.grpc.server.netty.boss-threads:1}") int bossThreads,
+                             @Value("${spring.grpc.server.netty.worker-threads:0}") int workerThreads,
+                             @Value("${spring.grpc.server.netty.epoll:true}") boolean epoll,
+                             @Value("${spring.grpc.server.max-concurrent-streams:0}") int maxConcurrentStreams,
+                             @Value("${spring.grpc.server.flow-control-window:0}") int flowControlWindow) {
+        this.executorMode = executorMode;
+        this.executorThreads = executorThreads;
+        this.bossThreads = bossThreads;
+        this.workerThreads = workerThreads;
+        this.epoll = epoll;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.flowControlWindow = flowControlWindow;
+    }
+
+    /**
+     * Applies the configured executor and transport to a server builder.
+     * Must be called once, before the server is built.
+     *
+     * @param builder the builder for the registry's gRPC server
+     * @return the same builder
+     */
+    public NettyServerBuilder apply(NettyServerBuilder builder) {
+        switch (executorMode) {
+            case "virtual" -> {
+                executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("grpc-call-", 0).factory());
+                builder.executor(executor);
+            }
+            case "bounded" -> {
+                executor = Executors.newFixedThreadPool(executorThreads, new DefaultThreadFactory("grpc-call"));
+                builder.executor(executor);
+            }
+            case "direct" -> {
+                executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("grpc-blocking-", 0).factory());
+                builder.directExecutor().callExecutor(blockingCallsOn(executor));
+            }
+            case "default" -> { } // gRPC's shared cached thread pool
+            default -> throw new IllegalArgumentException("Unknown spring.grpc.server.executor: " + executorMode);
+        }
+
+        // Netty needs the boss group, the worker group and the channel type from the same transport
+        Class<? extends ServerChannel> channelType;
+        if (epoll && Epoll.isAvailable()) {
+            bossGroup = new EpollEventLoopGroup(bossThreads, new DefaultThreadFactory("grpc-boss", true));
+            workerGroup = new EpollEventLoopGroup(workerThreads, new DefaultThreadFactory("grpc-worker", true));
+            channelType = EpollServerSocketChannel.class;
+        } else {
+            if (epoll) {
+                logger.info("[BOOT] Epoll transport unavailable, using NIO: {}", Epoll.unavailabilityCause().toString());
+            }
+            bossGroup = new NioEventLoopGroup(bossThreads, new DefaultThreadFactory("grpc-boss", true));
+            workerGroup = new NioEventLoopGroup(workerThreads, new DefaultThreadFactory("grpc-worker", true));
+            channelType = NioServerSocketChannel.class;
+        }
+        builder.bossEventLoopGroup(bossGroup)
+                .workerEventLoopGroup(workerGroup)
+                .channelType(channelType);
+
+        if (maxConcurrentStreams > 0) {
+            builder.maxConcurrentCallsPerConnection(maxConcurrentStreams);
+        }
+        if (flowControlWindow > 0) {
+            builder.flowControlWindow(flowControlWindow);
+        }
+
+        logger.info("[BOOT] gRPC server using {} executor and {} transport",
+            executorMode, channelType.getSimpleName());
+        return builder;
+    }
+
+    /**
+     * Sends calls to services that block on the store to the given executor, and leaves the rest
+     * on the server's default executor.
+     */
+    private static ServerCallExecutorSupplier blockingCallsOn(Executor blocking) {
+        return new ServerCallExecutorSupplier() {
+            @Override
+            public <ReqT, RespT> Executor getExecutor(ServerCall<ReqT, RespT> call, Metadata metadata) {
+                return NON_BLOCKING_SERVICES.contains(call.getMethodDescriptor().getServiceName()) ? null : blocking;
+            }
+        };
+    }
+
+    /**
+     * Releases the executor and event loops. Runs after the server that uses them has been destroyed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+            workerGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import com.github.adnant1.servicediscovery.heartbeat.HeartbeatBatcher;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
+import com.github.adnant1.servicediscovery.registry.HeartbeatAck;
+import com.github.adnant1.servicediscovery.registry.HeartbeatRequest;
+import com.github.adnant1.servicediscovery.registry.HeartbeatResult;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * One open HeartbeatStream.
+ * Incoming heartbeats are handed to the batcher, and their results are collected
+ * until the batcher finishes a flush, at which point they are sent as a single ack.
+ * When the client half-closes, the stream completes once its last heartbeats are acknowledged.
+ * If the batcher's queue is full, the stream ends with RESOURCE_EXHAUSTED for the client to retry later.
+ * Heartbeats for services this node does not replicate are forwarded one by one to an owner,
+ * and each result is acknowledged as soon as the owner answers.
+ */
+class HeartbeatStreamSession implements StreamObserver<HeartbeatRequest>, HeartbeatBatcher.Listener {
+
+    private final StreamObserver<HeartbeatAck> responseObserver;
+    private final HeartbeatBatcher batcher;
+    private final RegistryForwarder forwarder;
+
+    private HeartbeatAck.Builder ack = HeartbeatAck.newBuilder();
+    private int inFlight = 0;
+    private boolean halfClosed = false;
+    private boolean closed = false;
+
+    HeartbeatStreamSession(StreamObserver<HeartbeatAck> responseObserver, HeartbeatBatcher batcher,
+                           RegistryForwarder forwarder) {
+        this.responseObserver = responseObserver;
+        this.batcher = batcher;
+        this.forwarder = forwarder;
+    }
+
+    @Override
+    public void onNext(HeartbeatRequest request) {
+        String serviceName = request.getServiceName();
+        String instanceId = request.getInstanceId();
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            // Input validation; one malformed heartbeat does not end the stream
+            if (serviceName.isEmpty() || instanceId.isEmpty()) {
+                ack.addResults(result(serviceName, instanceId, false));
+                if (inFlight == 0) {
+                    sendAck(); // No flush is coming to carry it
+                }
+                return;
+            }
+            inFlight++;
+        }
+
+        if (forwarder.shouldForward(serviceName)) {
+            forwarder.forwardWrite(serviceName, stub -> stub.heartbeat(request)).whenComplete((response, error) -> {
+                onResult(serviceName, instanceId, error == null && response.getSuccess());
+                onFlushed();
+            });
+            return;
+        }
+        if (!batcher.submit(serviceName, instanceId, this)) {
+            onRejected();
+        }
+    }
+
+    @Override
+    public synchronized void onError(Throwable t) {
+        // Client cancelled; results still in flight are dropped
+        closed = true;
+    }
+
+    @Override
+    public synchronized void onCompleted() {
+        halfClosed = true;
+        if (inFlight == 0) {
+            sendAck();
+            complete();
+        }
+    }
+
+    @Override
+    public synchronized void onResult(String serviceName, String instanceId, boolean refreshed) {
+        inFlight--;
+        ack.addResults(result(serviceName, instanceId, refreshed));
+    }
+
+    @Override
+    public synchronized void onFlushed() {
+        sendAck();
+        if (halfClosed && inFlight == 0) {
+            complete();
+        }
+    }
+
+    @Override
+    public synchronized void onFailed(Exception error) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        responseObserver.onError(
+            Status.UNAVAILABLE
+                .withDescription("Redis unavailable: " + error.getMessage())
+                .withCause(error)
+                .asRuntimeException()
+        );
+    }
+
+    private synchronized void onRejected() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        responseObserver.onError(
+            Status.RESOURCE_EXHAUSTED
+                .withDescription("Too many heartbeats waiting to be flushed")
+                .asRuntimeException()
+        );
+    }
+
+    private void sendAck() {
+        if (closed || ack.getResultsCount() == 0) {
+            return;
+        }
+        responseObserver.onNext(ack.build());
+        ack = HeartbeatAck.newBuilder();
+    }
+
+    private void complete() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        responseObserver.onCompleted();
+    }
+
+    private static HeartbeatResult result(String serviceName, String instanceId, boolean success) {
+        return HeartbeatResult.newBuilder()
+                .setServiceName(serviceName)
+                .setInstanceId(instanceId)
+                .setSuccess(success)
+                .build();
+    }
+}
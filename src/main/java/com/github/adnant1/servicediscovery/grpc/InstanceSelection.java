@@ -0,0 +1,190 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.github.adnant1.servicediscovery.partition.HashRing;
+import com.github.adnant1.servicediscovery.registry.DiscoverRequest;
+import com.github.adnant1.servicediscovery.registry.DiscoverResponse;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+/**
+ * Selects the instances a Discover request asks for: a page of instances ordered by ID,
+ * a deterministic per-client subset, or a random sample. No response holds more than the
+ * server's maximum page size, so neither the response nor the connections a client opens
+ * grow with the size of the service.
+ *
+ * Page tokens hold the last instance ID returned, so paging continues correctly while
+ * instances come and go between calls. Deterministic subsetting follows the scheme in
+ * Google's SRE book: instances are shuffled with a seed shared by a round of clients and
+ * cut into subsets, and each client in the round takes a different subset. Client IDs
+ * numbered 0, 1, 2, ... spread exactly evenly; other IDs are hashed, which spreads them
+ * evenly on average.
+ */
+final class InstanceSelection {
+
+    private static final Comparator<ServiceInstance> BY_ID = Comparator.comparing(ServiceInstance::getInstanceId);
+
+    private InstanceSelection() {}
+
+    /**
+     * Checks whether a request asks for all instances, with no paging or subsetting.
+     *
+     * @param request the Discover request
+     * @return true if all instances are wanted
+     */
+    static boolean isPlain(DiscoverRequest request) {
+        return request.getLimit() == 0
+            && request.getPageToken().isEmpty()
+            && request.getSubsetMode() == DiscoverRequest.SubsetMode.NONE;
+    }
+
+    /**
+     * Validates the paging and subsetting fields of a request.
+     *
+     * @param request the Discover request
+     * @return a description of the problem, or null if the request is valid
+     */
+    static String validate(DiscoverRequest request) {
+        if (request.getLimit() < 0) {
+            return "Limit cannot be negative.";
+        }
+        if (request.getSubsetMode() == DiscoverRequest.SubsetMode.DETERMINISTIC && request.getClientId().isEmpty()) {
+            return "Client ID is required for deterministic subsetting.";
+        }
+        if (request.getSubsetMode() == DiscoverRequest.SubsetMode.NONE
+                && !request.getPageToken().isEmpty() && decodeToken(request.getPageToken()) == null) {
+            return "Invalid page token.";
+        }
+        return null;
+    }
+
+    /**
+     * Builds the response for a validated request.
+     *
+     * @param request the Discover request
+     * @param instances all instances of the service
+     * @param maxPageSize the most instances a response may hold
+     * @param revision the service's revision at or before the instances were read
+     * @return the selected instances, with the next page token if more follow
+     */
+    static DiscoverResponse select(DiscoverRequest request, List<ServiceInstance> instances, int maxPageSize,
+                                   long revision) {
+        int limit = request.getLimit() > 0 ? Math.min(request.getLimit(), maxPageSize) : maxPageSize;
+        DiscoverResponse.Builder response = DiscoverResponse.newBuilder()
+                .setTotalSize(instances.size())
+                .setRevision(revision);
+
+        if (request.getSubsetMode() == DiscoverRequest.SubsetMode.DETERMINISTIC) {
+            return response.addAllInstances(deterministicSubset(instances, limit, request.getClientId())).build();
+        }
+        if (request.getSubsetMode() == DiscoverRequest.SubsetMode.RANDOM) {
+            return response.addAllInstances(randomSubset(instances, limit)).build();
+        }
+
+        if (request.getPageToken().isEmpty() && instances.size() <= limit) {
+            return response.addAllInstances(instances).build(); // One page, in the store's order
+        }
+
+        List<ServiceInstance> sorted = sortedById(instances);
+        int start = 0;
+        if (!request.getPageToken().isEmpty()) {
+            ServiceInstance after = ServiceInstance.newBuilder()
+                    .setInstanceId(decodeToken(request.getPageToken()))
+                    .build();
+            int index = Collections.binarySearch(sorted, after, BY_ID);
+            start = index >= 0 ? index + 1 : -index - 1;
+        }
+
+        int end = Math.min(start + limit, sorted.size());
+        response.addAllInstances(sorted.subList(start, end));
+        if (end < sorted.size()) {
+            response.setNextPageToken(encodeToken(sorted.get(end - 1).getInstanceId()));
+        }
+        return response.build();
+    }
+
+    /**
+     * Builds the response for a conditional request whose service is still at the given revision.
+     *
+     * @param revision the service's current revision
+     * @return an empty response marked not modified
+     */
+    static DiscoverResponse notModified(long revision) {
+        return DiscoverResponse.newBuilder()
+                .setRevision(revision)
+                .setNotModified(true)
+                .build();
+    }
+
+    private static List<ServiceInstance> deterministicSubset(List<ServiceInstance> instances, int size, String clientId) {
+        if (instances.size() <= size) {
+            return instances;
+        }
+
+        long client = clientNumber(clientId);
+        int subsetCount = instances.size() / size;
+        long round = client / subsetCount;
+        int subset = (int) (client % subsetCount);
+
+        // Every node shuffles the same way: same order in, same seed, same java.util.Random sequence
+        List<ServiceInstance> shuffled = new ArrayList<>(sortedById(instances));
+        Collections.shuffle(shuffled, new Random(round));
+        return shuffled.subList(subset * size, subset * size + size);
+    }
+
+    private static List<ServiceInstance> randomSubset(List<ServiceInstance> instances, int size) {
+        if (instances.size() <= size) {
+            return instances;
+        }
+
+        // Partial Fisher-Yates: only the first size positions are drawn
+        List<ServiceInstance> sample = new ArrayList<>(instances);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            Collections.swap(sample, i, random.nextInt(i, sample.size()));
+        }
+        return sample.subList(0, size);
+    }
+
+    private static long clientNumber(String clientId) {
+        try {
+            long number = Long.parseLong(clientId);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Not numbered; hashed below
+        }
+        return HashRing.hash(clientId) & Long.MAX_VALUE;
+    }
+
+    private static List<ServiceInstance> sortedById(List<ServiceInstance> instances) {
+        for (int i = 1; i < instances.size(); i++) {
+            if (BY_ID.compare(instances.get(i - 1), instances.get(i)) > 0) {
+                List<ServiceInstance> sorted = new ArrayList<>(instances);
+                sorted.sort(BY_ID);
+                return sorted;
+            }
+        }
+        return instances; // Already sorted, as in the Discover snapshot
+    }
+
+    private static String encodeToken(String instanceId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(instanceId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeToken(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
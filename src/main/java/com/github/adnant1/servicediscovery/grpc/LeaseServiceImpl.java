@@ -0,0 +1,187 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.adnant1.servicediscovery.registry.GrantLeaseRequest;
+import com.github.adnant1.servicediscovery.registry.GrantLeaseResponse;
+import com.github.adnant1.servicediscovery.registry.KeepAliveLeaseRequest;
+import com.github.adnant1.servicediscovery.registry.KeepAliveLeaseResponse;
+import com.github.adnant1.servicediscovery.registry.LeaseServiceGrpc;
+import com.github.adnant1.servicediscovery.registry.RevokeLeaseRequest;
+import com.github.adnant1.servicediscovery.registry.RevokeLeaseResponse;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Implementation of the gRPC service methods for leases.
+ * A lease lets one keepalive renew every instance registered with it, and
+ * revoking or letting it expire removes all of them at once.
+ */
+@Service
+public class LeaseServiceImpl extends LeaseServiceGrpc.LeaseServiceImplBase {
+
+    private final RegistryStore registryStore;
+    private final long maxTtlSeconds;
+
+    public LeaseServiceImpl(RegistryStore registryStore,
+                            @Value("${spring.lease.max-ttl-seconds:300}") long maxTtlSeconds) {
+        this.registryStore = registryStore;
+        this.maxTtlSeconds = maxTtlSeconds;
+    }
+
+    /**
+     * Handles lease grant requests.
+     *
+     * @param request The grant request containing the lease TTL.
+     * @param responseObserver The observer to send the new lease to.
+     */
+    @Override
+    public void grantLease(GrantLeaseRequest request, StreamObserver<GrantLeaseResponse> responseObserver) {
+        long ttlSeconds = request.getTtlSeconds();
+
+        try {
+            // Input validation
+            if (ttlSeconds < 0) {
+                responseObserver.onError(
+                    Status.INVALID_ARGUMENT
+                        .withDescription("Invalid lease TTL: " + ttlSeconds)
+                        .asRuntimeException()
+                );
+                return;
+            }
+
+            // A lease outlives a crashed holder by its TTL, so it cannot be arbitrarily long
+            if (ttlSeconds > maxTtlSeconds) {
+                responseObserver.onError(
+                    Status.INVALID_ARGUMENT
+                        .withDescription("Lease TTL " + ttlSeconds + " exceeds the maximum of " + maxTtlSeconds + " seconds")
+                        .asRuntimeException()
+                );
+                return;
+            }
+
+            String leaseId = registryStore.grantLease(ttlSeconds);
+
+            GrantLeaseResponse response = GrantLeaseResponse.newBuilder()
+                    .setLeaseId(leaseId)
+                    .setTtlSeconds(registryStore.leaseTtlSeconds(ttlSeconds))
+                    .build();
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+
+        } catch (Exception e) {
+            // Return gRPC error if Redis operation fails
+            responseObserver.onError(
+                Status.UNAVAILABLE
+                    .withDescription("Redis unavailable: " + e.getMessage())
+                    .withCause(e)
+                    .asRuntimeException()
+            );
+        }
+    }
+
+    /**
+     * Handles lease keepalive requests, renewing the lease and all of its instances.
+     *
+     * @param request The keepalive request containing the lease ID.
+     * @param responseObserver The observer to send the keepalive response.
+     */
+    @Override
+    public void keepAliveLease(KeepAliveLeaseRequest request, StreamObserver<KeepAliveLeaseResponse> responseObserver) {
+        String leaseId = request.getLeaseId();
+
+        try {
+            // Input validation
+            if (leaseId == null || leaseId.isEmpty()) {
+                responseObserver.onError(
+                    Status.INVALID_ARGUMENT
+                        .withDescription("Lease ID cannot be empty.")
+                        .asRuntimeException()
+                );
+                return;
+            }
+
+            long renewed = registryStore.keepAliveLease(leaseId);
+            KeepAliveLeaseResponse response;
+
+            if (renewed >= 0) {
+                response = KeepAliveLeaseResponse.newBuilder()
+                        .setSuccess(true)
+                        .setMessage("Lease renewed.")
+                        .setInstances(renewed)
+                        .build();
+            } else {
+                response = KeepAliveLeaseResponse.newBuilder()
+                        .setSuccess(false)
+                        .setMessage("Lease not found.")
+                        .build();
+            }
+
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+
+        } catch (Exception e) {
+            // Return gRPC error if Redis operation fails
+            responseObserver.onError(
+                Status.UNAVAILABLE
+                    .withDescription("Redis unavailable: " + e.getMessage())
+                    .withCause(e)
+                    .asRuntimeException()
+            );
+        }
+    }
+
+    /**
+     * Handles lease revoke requests, removing the lease and all of its instances.
+     *
+     * @param request The revoke request containing the lease ID.
+     * @param responseObserver The observer to send the revoke response.
+     */
+    @Override
+    public void revokeLease(RevokeLeaseRequest request, StreamObserver<RevokeLeaseResponse> responseObserver) {
+        String leaseId = request.getLeaseId();
+
+        try {
+            // Input validation
+            if (leaseId == null || leaseId.isEmpty()) {
+                responseObserver.onError(
+                    Status.INVALID_ARGUMENT
+                        .withDescription("Lease ID cannot be empty.")
+                        .asRuntimeException()
+                );
+                return;
+            }
+
+            int removed = registryStore.revokeLease(leaseId);
+            RevokeLeaseResponse response;
+
+            if (removed >= 0) {
+                response = RevokeLeaseResponse.newBuilder()
+                        .setSuccess(true)
+                        .setMessage("Lease revoked.")
+                        .setInstances(removed)
+                        .build();
+            } else {
+                response = RevokeLeaseResponse.newBuilder()
+                        .setSuccess(false)
+                        .setMessage("Lease not found.")
+                        .build();
+            }
+
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+
+        } catch (Exception e) {
+            // Return gRPC error if Redis operation fails
+            responseObserver.onError(
+                Status.UNAVAILABLE
+                    .withDescription("Redis unavailable: " + e.getMessage())
+                    .withCause(e)
+                    .asRuntimeException()
+            );
+        }
+    }
+}
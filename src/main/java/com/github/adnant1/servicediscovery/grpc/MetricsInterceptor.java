@@ -0,0 +1,68 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.stereotype.Component;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Server interceptor that times every gRPC call, from its arrival until it is closed or cancelled.
+ * Calls are recorded under grpc.server.calls, tagged with the full method name and the status code,
+ * and published as a percentile histogram so latency quantiles can be aggregated across nodes.
+ * The count of each method and status pair doubles as the status-code counter.
+ */
+@Component
+public class MetricsInterceptor implements ServerInterceptor {
+
+    private final MeterRegistry meterRegistry;
+
+    public MetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String method = call.getMethodDescriptor().getFullMethodName();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        AtomicBoolean recorded = new AtomicBoolean();
+
+        ServerCall<ReqT, RespT> timedCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                record(sample, recorded, method, status.getCode());
+                super.close(status, trailers);
+            }
+        };
+
+        // A call cancelled by the client or its deadline is never closed by the handler
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(next.startCall(timedCall, headers)) {
+            @Override
+            public void onCancel() {
+                record(sample, recorded, method, Status.Code.CANCELLED);
+                super.onCancel();
+            }
+        };
+    }
+
+    private void record(Timer.Sample sample, AtomicBoolean recorded, String method, Status.Code code) {
+        if (!recorded.compareAndSet(false, true)) {
+            return;
+        }
+        sample.stop(Timer.builder("grpc.server.calls")
+                .description("Latency of gRPC calls handled by this node")
+                .tag("method", method)
+                .tag("status", code.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
@@ -10,7 +10,8 @@ import org.springframework.stereotype.Component;
 import com.github.adnant1.servicediscovery.identity.NodeIdentityProvider;
 
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.NettyServerBuilder;
 import jakarta.annotation.PreDestroy;
 
 /**
@@ -24,15 +25,25 @@ public class RegistryServer implements CommandLineRunner {
 
     private Server server;
     private final Integer grpcPort;
-    private final RegistryServiceImpl registryService;
+    private final LeaseServiceImpl leaseService;
     private final GossipServiceImpl gossipService;
     private final NodeIdentityProvider nodeIdentityProvider;
+    private final GrpcServerOptions serverOptions;
+    private final MetricsInterceptor metricsInterceptor;
+    private final ForwardedCallInterceptor forwardedCallInterceptor;
+    private final DiscoverSnapshotBinding discoverSnapshotBinding;
 
-    public RegistryServer(RegistryServiceImpl registryService, GossipServiceImpl gossipServiceImpl, NodeIdentityProvider nodeIdentityProvider, Integer grpcPort) {
-        this.registryService = registryService;
+    public RegistryServer(LeaseServiceImpl leaseService, GossipServiceImpl gossipServiceImpl, NodeIdentityProvider nodeIdentityProvider, Integer grpcPort,
+                          GrpcServerOptions serverOptions, MetricsInterceptor metricsInterceptor,
+                          ForwardedCallInterceptor forwardedCallInterceptor, DiscoverSnapshotBinding discoverSnapshotBinding) {
+        this.leaseService = leaseService;
         this.gossipService = gossipServiceImpl;
         this.nodeIdentityProvider = nodeIdentityProvider;
         this.grpcPort = grpcPort;
+        this.serverOptions = serverOptions;
+        this.metricsInterceptor = metricsInterceptor;
+        this.forwardedCallInterceptor = forwardedCallInterceptor;
+        this.discoverSnapshotBinding = discoverSnapshotBinding;
     }
 
     @Override
@@ -40,9 +51,10 @@ public class RegistryServer implements CommandLineRunner {
         String nodeId = nodeIdentityProvider.getNodeId();
         logger.info("[BOOT] Node identity established: {}", nodeId);
 
-        server = ServerBuilder.forPort(grpcPort)
-                .addService(registryService)
-                .addService(gossipService)
+        server = serverOptions.apply(NettyServerBuilder.forPort(grpcPort))
+                .addService(ServerInterceptors.intercept(discoverSnapshotBinding.bindService(), forwardedCallInterceptor, metricsInterceptor))
+                .addService(ServerInterceptors.intercept(leaseService, metricsInterceptor))
+                .addService(ServerInterceptors.intercept(gossipService, metricsInterceptor))
                 .build()
                 .start();
         
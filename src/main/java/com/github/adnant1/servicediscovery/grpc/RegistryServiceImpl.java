@@ -1,34 +1,72 @@
 package com.github.adnant1.servicediscovery.grpc;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.github.adnant1.servicediscovery.redis.RedisRepository;
+import com.github.adnant1.servicediscovery.heartbeat.HeartbeatBatcher;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
 import com.github.adnant1.servicediscovery.registry.DeregisterRequest;
 import com.github.adnant1.servicediscovery.registry.DeregisterResponse;
 import com.github.adnant1.servicediscovery.registry.DiscoverRequest;
 import com.github.adnant1.servicediscovery.registry.DiscoverResponse;
+import com.github.adnant1.servicediscovery.registry.HeartbeatAck;
 import com.github.adnant1.servicediscovery.registry.HeartbeatRequest;
 import com.github.adnant1.servicediscovery.registry.HeartbeatResponse;
 import com.github.adnant1.servicediscovery.registry.RegisterRequest;
 import com.github.adnant1.servicediscovery.registry.RegisterResponse;
 import com.github.adnant1.servicediscovery.registry.RegistryServiceGrpc;
 import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+import com.github.adnant1.servicediscovery.registry.WatchRequest;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
 
 import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 
 /**
  * Implementation of the gRPC service methods for service registry operations.
+ * The unary methods never wait on the store: they start its async operation and respond
+ * from its callback, so a handful of threads can serve any number of calls in flight. Watch reads
+ * its snapshot the same way.
+ * With partitioning enabled, calls for services this node does not replicate are forwarded
+ * to an owner the same way, and its response or error is relayed unchanged.
  */
 @Service
 public class RegistryServiceImpl extends RegistryServiceGrpc.RegistryServiceImplBase {
 
-    private final RedisRepository redisRepository;
-
-    public RegistryServiceImpl(RedisRepository redisRepository) {
-        this.redisRepository = redisRepository;
+    private final RegistryStore registryStore;
+    private final ChangeNotifier changeNotifier;
+    private final HeartbeatBatcher heartbeatBatcher;
+    private final RegistryForwarder registryForwarder;
+    private final int watchMaxPending;
+    private final Semaphore inFlight;
+    private final int maxPageSize;
+
+    public RegistryServiceImpl(RegistryStore registryStore, ChangeNotifier changeNotifier,
+                               HeartbeatBatcher heartbeatBatcher, RegistryForwarder registryForwarder,
+                               @Value("${spring.watch.max-pending:1000}") int watchMaxPending,
+                               @Value("${spring.grpc.server.max-in-flight:10000}") int maxInFlight,
+                               @Value("${spring.discover.max-page-size:1000}") int maxPageSize) {
+        this.registryStore = registryStore;
+        this.changeNotifier = changeNotifier;
+        this.heartbeatBatcher = heartbeatBatcher;
+        this.registryForwarder = registryForwarder;
+        this.watchMaxPending = watchMaxPending;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxPageSize = maxPageSize;
     }
 
     /**
@@ -55,6 +93,15 @@ public class RegistryServiceImpl extends RegistryServiceGrpc.RegistryServiceImpl
                 return;
             }
 
+            if (RegistryStore.RESERVED_SERVICE_NAMES.contains(serviceName)) {
+                responseObserver.onError(
+                    Status.INVALID_ARGUMENT
+                        .withDescription("Service name is reserved: " + serviceName)
+                        .asRuntimeException()
+                );
+                return;
+            }
+
             if (port <= 0 || port > 65535) {
                 responseObserver.onError(
                     Status.INVALID_ARGUMENT
@@ -82,15 +129,29 @@ public class RegistryServiceImpl extends RegistryServiceGrpc.RegistryServiceImpl
                 return;
             }
 
-            // Save the service instance to Redis and build success response
-            redisRepository.saveInstance(serviceName, instanceId, ip, port);
+            if (registryForwarder.shouldForward(serviceName)) {
+                respondAsync(responseObserver,
+                    () -> registryForwarder.forwardWrite(serviceName, stub -> stub.register(request)),
+                    Function.identity());
+                return;
+            }
 
-            RegisterResponse response = RegisterResponse.newBuilder()
-                    .setSuccess(true)
-                    .setMessage("Service registered successfully.")
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
+            // Save the service instance to Redis, attached to its lease if one was given
+            String leaseId = request.getLeaseId();
+            respondAsync(responseObserver,
+                () -> registryStore.saveInstanceAsync(serviceName, instanceId, ip, port, leaseId.isEmpty() ? null : leaseId),
+                saved -> {
+                    if (!saved) {
+                        throw Status.NOT_FOUND
+                            .withDescription("Lease not found: " + leaseId)
+                            .asRuntimeException();
+                    }
+
+                    return RegisterResponse.newBuilder()
+                            .setSuccess(true)
+                            .setMessage("Service registered successfully.")
+                            .build();
+                });
             
         } catch (Exception e) {
             // Return gRPC error if Redis operation fails
@@ -134,24 +195,25 @@ public class RegistryServiceImpl extends RegistryServiceGrpc.RegistryServiceImpl
                 return;
             }
 
-            // Delete the service instance (if it exists) from Redis and build the corresponding response
-            boolean deleted = redisRepository.deleteInstance(serviceName, instanceId);
-            DeregisterResponse response;
-
-            if (deleted) {
-                response = DeregisterResponse.newBuilder()
-                        .setSuccess(true)
-                        .setMessage("Service deregistered successfully.")
-                        .build();
-            } else {
-                response = DeregisterResponse.newBuilder()
-                        .setSuccess(false)
-                        .setMessage("Service instance not found.")
-                        .build();
+            if (registryForwarder.shouldForward(serviceName)) {
+                respondAsync(responseObserver,
+                    () -> registryForwarder.forwardWrite(serviceName, stub -> stub.deregister(request)),
+                    Function.identity());
+                return;
             }
-            
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
+
+            // Delete the service instance (if it exists) from Redis and build the corresponding response
+            respondAsync(responseObserver,
+                () -> registryStore.deleteInstanceAsync(serviceName, instanceId),
+                deleted -> deleted
+                    ? DeregisterResponse.newBuilder()
+                            .setSuccess(true)
+                            .setMessage("Service deregistered successfully.")
+                            .build()
+                    : DeregisterResponse.newBuilder()
+                            .setSuccess(false)
+                            .setMessage("Service instance not found.")
+                            .build());
 
         } catch (Exception e) {
             // Return gRPC error if Redis operation fails
@@ -185,14 +247,43 @@ public class RegistryServiceImpl extends RegistryServiceGrpc.RegistryServiceImpl
                 return;
             }
 
-            // Retrieve service instances from Redis and build the corresponding response
-            List<ServiceInstance> instances = redisRepository.getInstances(serviceName);
+            String invalid = InstanceSelection.validate(request);
+            if (invalid != null) {
+                responseObserver.onError(
+                    Status.INVALID_ARGUMENT
+                        .withDescription(invalid)
+                        .asRuntimeException()
+                );
+                return;
+            }
 
-            DiscoverResponse response = DiscoverResponse.newBuilder()
-                    .addAllInstances(instances)
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
+            if (registryForwarder.shouldForward(serviceName)) {
+                respondAsync(responseObserver,
+                    () -> registryForwarder.forwardRead(serviceName, stub -> stub.discover(request)),
+                    Function.identity());
+                return;
+            }
+
+            // Read before the instances, so a change made meanwhile is never reported as not modified
+            long revision = changeNotifier.serviceRevision(serviceName);
+            if (request.getIfRevisionNot() == revision && registryStore.publishesAllChanges()) {
+                // Every change raises the revision, so an unmoved one needs no read
+                responseObserver.onNext(InstanceSelection.notModified(revision));
+                responseObserver.onCompleted();
+                return;
+            }
+
+            // Retrieve service instances from Redis and select the requested page or subset. Otherwise conditional
+            // requests read the store too, since instances can expire without an event raising the revision
+            respondAsync(responseObserver,
+                () -> registryStore.getInstancesAsync(serviceName),
+                instances -> {
+                    long observed = changeNotifier.observe(serviceName, revision, instances);
+                    if (request.getIfRevisionNot() == observed) {
+                        return InstanceSelection.notModified(observed);
+                    }
+                    return InstanceSelection.select(request, instances, maxPageSize, observed);
+                });
 
         } catch (Exception e) {
             // Return gRPC error if Redis operation fails
@@ -236,24 +327,25 @@ public class RegistryServiceImpl extends RegistryServiceGrpc.RegistryServiceImpl
                 return;
             }
 
-            // Refresh the TTL of the service instance in Redis and build the corresponding response
-            boolean refreshed = redisRepository.refreshTtl(serviceName, instanceId);
-            HeartbeatResponse response;
-
-            if (refreshed) {
-                response = HeartbeatResponse.newBuilder()
-                        .setSuccess(true)
-                        .setMessage("Heartbeat received, TTL refreshed.")
-                        .build();
-            } else {
-                response = HeartbeatResponse.newBuilder()
-                        .setSuccess(false)
-                        .setMessage("Service instance not found.")
-                        .build();
+            if (registryForwarder.shouldForward(serviceName)) {
+                respondAsync(responseObserver,
+                    () -> registryForwarder.forwardWrite(serviceName, stub -> stub.heartbeat(request)),
+                    Function.identity());
+                return;
             }
 
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
+            // Refresh the TTL of the service instance in Redis and build the corresponding response
+            respondAsync(responseObserver,
+                () -> registryStore.refreshTtlAsync(serviceName, instanceId),
+                refreshed -> refreshed
+                    ? HeartbeatResponse.newBuilder()
+                            .setSuccess(true)
+                            .setMessage("Heartbeat received, TTL refreshed.")
+                            .build()
+                    : HeartbeatResponse.newBuilder()
+                            .setSuccess(false)
+                            .setMessage("Service instance not found.")
+                            .build());
 
         } catch (Exception e) {
             // Return gRPC error if Redis operation fails
@@ -265,4 +357,167 @@ public class RegistryServiceImpl extends RegistryServiceGrpc.RegistryServiceImpl
             );
         }
     }
+
+    /**
+     * Opens a heartbeat stream carrying heartbeats for any number of instances.
+     * TTL refreshes are coalesced across all open streams into pipelined Redis writes,
+     * and each stream receives its results in one ack per flush.
+     * 
+     * @param responseObserver The observer to send heartbeat acks to.
+     * @return The observer receiving the client's heartbeats.
+     */
+    @Override
+    public StreamObserver<HeartbeatRequest> heartbeatStream(StreamObserver<HeartbeatAck> responseObserver) {
+        return new HeartbeatStreamSession(responseObserver, heartbeatBatcher, registryForwarder);
+    }
+
+    /**
+     * Handles watch requests by streaming membership changes of the requested services.
+     * A watcher that passes the last revision it received resumes from there if this node
+     * still has the missed events; otherwise it first receives a snapshot of every current
+     * instance, followed by live changes.
+     * 
+     * @param request The watch request containing the services to watch.
+     * @param responseObserver The observer to stream change events to.
+     */
+    @Override
+    public void watch(WatchRequest request, StreamObserver<WatchEvent> responseObserver) {
+        Set<String> serviceNames = new LinkedHashSet<>(request.getServiceNamesList());
+
+        // Input validation
+        if (serviceNames.isEmpty()) {
+            responseObserver.onError(
+                Status.INVALID_ARGUMENT
+                    .withDescription("At least one service name is required.")
+                    .asRuntimeException()
+            );
+            return;
+        }
+
+        if (serviceNames.contains("")) {
+            responseObserver.onError(
+                Status.INVALID_ARGUMENT
+                    .withDescription("Service name cannot be empty.")
+                    .asRuntimeException()
+            );
+            return;
+        }
+
+        WatchSession session = new WatchSession(
+            (ServerCallStreamObserver<WatchEvent>) responseObserver, changeNotifier, watchMaxPending
+        );
+
+        // Subscribe before reading the snapshot so no change can fall in between
+        long snapshotRevision = changeNotifier.subscribe(serviceNames, request.getRevision(), session);
+        if (snapshotRevision < 0) {
+            session.start(List.of());
+            return;
+        }
+
+        // Read every service without blocking, and hand the snapshot over once all reads are done
+        List<CompletableFuture<List<ServiceInstance>>> reads = new ArrayList<>();
+        for (String serviceName : serviceNames) {
+            CompletableFuture<List<ServiceInstance>> read;
+            try {
+                read = registryStore.getInstancesAsync(serviceName);
+            } catch (RuntimeException e) {
+                read = CompletableFuture.failedFuture(e);
+            }
+            reads.add(read);
+        }
+
+        CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> {
+            if (error != null) {
+                // Return gRPC error if Redis operation fails
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                session.fail(
+                    Status.UNAVAILABLE
+                        .withDescription("Redis unavailable: " + cause.getMessage())
+                        .withCause(cause)
+                );
+                return;
+            }
+
+            List<WatchEvent> snapshot = new ArrayList<>();
+            int i = 0;
+            for (String serviceName : serviceNames) {
+                for (ServiceInstance instance : reads.get(i++).join()) {
+                    snapshot.add(WatchEvent.newBuilder()
+                            .setType(WatchEvent.Type.ADDED)
+                            .setServiceName(serviceName)
+                            .setInstance(instance)
+                            .setRevision(snapshotRevision)
+                            .setSnapshot(true)
+                            .build());
+                }
+            }
+            session.start(snapshot);
+        });
+    }
+
+    /**
+     * Runs a store operation and completes the call from its callback.
+     * At most spring.grpc.server.max-in-flight operations are outstanding at once; calls beyond
+     * that fail fast with RESOURCE_EXHAUSTED instead of queueing. A call already cancelled by the
+     * client or its deadline is not started, and one cancelled while the store works on it gets no response.
+     * 
+     * @param responseObserver The observer to send the response to.
+     * @param operation Starts the store operation.
+     * @param toResponse Builds the response from the operation's result, or throws a StatusRuntimeException.
+     */
+    private <T, R> void respondAsync(StreamObserver<R> responseObserver, Supplier<CompletableFuture<T>> operation,
+                                     Function<T, R> toResponse) {
+        ServerCallStreamObserver<R> serverObserver =
+            responseObserver instanceof ServerCallStreamObserver<R> observer ? observer : null;
+        if (serverObserver != null && serverObserver.isCancelled()) {
+            return;
+        }
+
+        if (!inFlight.tryAcquire()) {
+            responseObserver.onError(
+                Status.RESOURCE_EXHAUSTED
+                    .withDescription("Too many requests in flight.")
+                    .asRuntimeException()
+            );
+            return;
+        }
+
+        CompletableFuture<T> pending;
+        try {
+            pending = operation.get();
+        } catch (RuntimeException e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
+
+        pending.whenComplete((result, error) -> {
+            inFlight.release();
+            if (serverObserver != null && serverObserver.isCancelled()) {
+                return; // Nobody is waiting for the response any more
+            }
+
+            if (error != null) {
+                // Return gRPC error if Redis operation fails
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof StatusRuntimeException forwarded) {
+                    // Raised by the owner the call was forwarded to
+                    responseObserver.onError(forwarded);
+                    return;
+                }
+                responseObserver.onError(
+                    Status.UNAVAILABLE
+                        .withDescription("Redis unavailable: " + cause.getMessage())
+                        .withCause(cause)
+                        .asRuntimeException()
+                );
+                return;
+            }
+
+            try {
+                responseObserver.onNext(toResponse.apply(result));
+                responseObserver.onCompleted();
+            } catch (StatusRuntimeException e) {
+                responseObserver.onError(e);
+            }
+        });
+    }
 }
@@ -0,0 +1,113 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+
+/**
+ * One open Watch stream.
+ * Live events are queued until the initial snapshot has been handed over, and are then
+ * only written while the transport is ready, so a slow watcher cannot make the server
+ * buffer without limit. A watcher that falls too far behind is disconnected and has to
+ * resume from its last revision.
+ */
+class WatchSession implements ChangeNotifier.Watcher {
+
+    private final ServerCallStreamObserver<WatchEvent> observer;
+    private final ChangeNotifier changeNotifier;
+    private final int maxPending;
+
+    private final Deque<WatchEvent> snapshot = new ArrayDeque<>();
+    private final Deque<WatchEvent> pending = new ArrayDeque<>();
+    private boolean started = false;
+    private boolean closed = false;
+
+    WatchSession(ServerCallStreamObserver<WatchEvent> observer, ChangeNotifier changeNotifier, int maxPending) {
+        this.observer = observer;
+        this.changeNotifier = changeNotifier;
+        this.maxPending = maxPending;
+
+        observer.setOnCancelHandler(this::cancel);
+        observer.setOnReadyHandler(this::drain);
+    }
+
+    @Override
+    public synchronized void onEvent(WatchEvent event) {
+        if (closed) {
+            return;
+        }
+
+        pending.addLast(event);
+        if (pending.size() > maxPending) {
+            fail(Status.RESOURCE_EXHAUSTED.withDescription(
+                "Watcher fell more than " + maxPending + " events behind; resume from the last received revision."
+            ));
+            return;
+        }
+
+        if (started) {
+            drain();
+        }
+    }
+
+    /**
+     * Starts delivery, sending the given snapshot ahead of any event queued so far.
+     *
+     * @param snapshotEvents the snapshot events, empty when the watcher resumed from history
+     */
+    synchronized void start(List<WatchEvent> snapshotEvents) {
+        snapshot.addAll(snapshotEvents);
+        started = true;
+        drain();
+    }
+
+    /**
+     * Ends the stream with an error and stops receiving events.
+     *
+     * @param status the status to send to the watcher
+     */
+    void fail(Status status) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            close();
+            observer.onError(status.asRuntimeException());
+        }
+        changeNotifier.unsubscribe(this);
+    }
+
+    private synchronized void drain() {
+        if (closed || !started) {
+            return;
+        }
+
+        while (observer.isReady()) {
+            WatchEvent next = !snapshot.isEmpty() ? snapshot.pollFirst() : pending.pollFirst();
+            if (next == null) {
+                return;
+            }
+            observer.onNext(next);
+        }
+    }
+
+    // Unsubscribes outside the session lock; the notifier calls onEvent while holding its own lock
+    private void cancel() {
+        synchronized (this) {
+            close();
+        }
+        changeNotifier.unsubscribe(this);
+    }
+
+    private void close() {
+        closed = true;
+        snapshot.clear();
+        pending.clear();
+    }
+}
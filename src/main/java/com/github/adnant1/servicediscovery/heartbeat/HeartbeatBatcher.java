@@ -0,0 +1,119 @@
+package com.github.adnant1.servicediscovery.heartbeat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+
+/**
+ * Coalesces streamed heartbeats into pipelined TTL refreshes.
+ * Heartbeats are queued as they arrive and flushed on a short fixed delay. Each flush
+ * refreshes every distinct instance once, in pipelines of at most max-batch keys, then
+ * reports the outcome to every listener and tells each listener the flush is over so
+ * it can acknowledge its heartbeats in one message. If Redis fails, every listener
+ * in the batch is told so instead of being sent per-instance results. At most max-pending
+ * heartbeats wait for a flush; beyond that, submissions are refused so a slow store
+ * pushes back on clients instead of growing the queue without bound.
+ */
+@Component
+public class HeartbeatBatcher {
+
+    /**
+     * Receives the outcome of submitted heartbeats. Called from the flushing thread.
+     */
+    public interface Listener {
+        void onResult(String serviceName, String instanceId, boolean refreshed);
+
+        void onFlushed();
+
+        void onFailed(Exception error);
+    }
+
+    private record Pending(String serviceName, String instanceId, Listener listener) {
+        String key() {
+            return serviceName + ":" + instanceId;
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(HeartbeatBatcher.class);
+
+    private final RegistryStore registryStore;
+    private final int maxBatch;
+    private final int maxPending;
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public HeartbeatBatcher(RegistryStore registryStore,
+                            @Value("${spring.heartbeat.max-batch:1000}") int maxBatch,
+                            @Value("${spring.heartbeat.max-pending:100000}") int maxPending) {
+        this.registryStore = registryStore;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxPending = Math.max(1, maxPending);
+    }
+
+    /**
+     * Queues a heartbeat for the next flush.
+     *
+     * @param serviceName the name of the service
+     * @param instanceId the unique ID of the service instance
+     * @param listener the listener to report the outcome to
+     * @return true if the heartbeat was queued, false if the queue is full
+     */
+    public boolean submit(String serviceName, String instanceId, Listener listener) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            return false;
+        }
+        queue.add(new Pending(serviceName, instanceId, listener));
+        return true;
+    }
+
+    /**
+     * Refreshes the TTLs of all queued heartbeats.
+     * Scheduled with a fixed delay so flushes never overlap.
+     */
+    @Scheduled(fixedDelayString = "${spring.heartbeat.flush-millis:50}")
+    public void flush() {
+        while (!queue.isEmpty()) {
+            List<Pending> batch = new ArrayList<>();
+            Set<String> keys = new LinkedHashSet<>();
+
+            // Duplicate heartbeats for the same instance share one EXPIRE
+            Pending next;
+            while (keys.size() < maxBatch && (next = queue.poll()) != null) {
+                pending.decrementAndGet();
+                batch.add(next);
+                keys.add(next.key());
+            }
+
+            Set<Listener> listeners = Collections.newSetFromMap(new IdentityHashMap<>());
+            batch.forEach(pending -> listeners.add(pending.listener()));
+
+            Set<String> refreshed;
+            try {
+                refreshed = registryStore.refreshTtls(new ArrayList<>(keys));
+            } catch (Exception e) {
+                logger.warn("Failed to refresh {} heartbeats: {}", keys.size(), e.getMessage());
+                listeners.forEach(listener -> listener.onFailed(e));
+                continue;
+            }
+
+            for (Pending pending : batch) {
+                pending.listener().onResult(pending.serviceName(), pending.instanceId(), refreshed.contains(pending.key()));
+            }
+            listeners.forEach(Listener::onFlushed);
+        }
+    }
+}
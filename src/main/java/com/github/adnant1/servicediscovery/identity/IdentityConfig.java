@@ -2,7 +2,6 @@ package com.github.adnant1.servicediscovery.identity;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.core.StringRedisTemplate;
 
 @Configuration
 public class IdentityConfig {
@@ -13,7 +12,7 @@ public class IdentityConfig {
     }
 
     @Bean
-    public NodeIdentityProvider nodeIdentityProvider(StringRedisTemplate redisTemplate, Integer grpcPort) {
-        return new NodeIdentityProvider(redisTemplate, grpcPort);
+    public NodeIdentityProvider nodeIdentityProvider(Integer grpcPort) {
+        return new NodeIdentityProvider(grpcPort);
     }
 }
@@ -1,23 +1,19 @@
 package com.github.adnant1.servicediscovery.identity;
 
-import org.springframework.data.redis.core.StringRedisTemplate;
-
 /**
- * Obtains the unique ID of the node from Redis.
+ * Obtains the unique ID of the node.
  * If an identity does not exist, it creates one based on the node's hostname:port and a UUID.
+ * Other nodes learn about it through the SWIM membership updates piggybacked on gossip.
  */
 public class NodeIdentityProvider {
     
-    private final StringRedisTemplate redisTemplate;
     private final int port;
     private String nodeId;
 
-    public NodeIdentityProvider(StringRedisTemplate redisTemplate, int port) {
-        this.redisTemplate = redisTemplate;
+    public NodeIdentityProvider(int port) {
         this.port = port;
     }
 
-    // Lazily initialize nodeId to avoid Redis connection on startup
     /**
      * Returns the unique node ID, creating it if necessary.
      * 
@@ -31,7 +27,7 @@ public class NodeIdentityProvider {
     }
 
     /**
-     * Retrieves the node ID from Redis or creates a new one if it doesn't exist.
+     * Returns the node ID or creates a new one if it doesn't exist.
      * 
      * @param port the port number of the node
      * @return the unique node ID
@@ -43,15 +39,12 @@ public class NodeIdentityProvider {
 
         String newId = generateNodeId(port);
 
-        String key = "node:" + newId;
-        redisTemplate.opsForValue().set(key, newId);
-
         this.nodeId = newId;
         return newId;
     }
 
     /**
-     * Generates a unique key for storing the node ID in Redis.
+     * Generates a unique node ID.
      * ID = hostname:port-UUID(6 chars)
      * 
      * @param port the port number of the node
@@ -0,0 +1,93 @@
+package com.github.adnant1.servicediscovery.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters shared by both sides of the gossip protocol:
+ * - gossip.payload.bytes: serialized size of each gossip message, tagged by RPC and by whether it was sent or received
+ * - gossip.merge.changes: instances inserted or overwritten by each merge, tagged by what triggered the merge
+ * - gossip.store.operations: time spent in the registry store while serving or applying gossip, tagged by operation
+ * - gossip.rounds: duration of each outgoing round, from its start until the peer exchange has finished,
+ *   tagged by round type and outcome
+ */
+@Component
+public class GossipMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Meter> meters = new ConcurrentHashMap<>();
+
+    public GossipMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records the size of a gossip message.
+     *
+     * @param rpc the gossip RPC the message belongs to
+     * @param direction "sent" or "received"
+     * @param bytes the serialized size of the message
+     */
+    public void recordPayload(String rpc, String direction, int bytes) {
+        summary("gossip.payload.bytes", "Serialized size of gossip messages", "rpc", rpc, "direction", direction)
+                .record(bytes);
+    }
+
+    /**
+     * Records the number of instances a merge inserted or overwritten.
+     *
+     * @param source what triggered the merge, e.g. "sync" or "fetch"
+     * @param changes the number of instances applied
+     */
+    public void recordMerge(String source, int changes) {
+        summary("gossip.merge.changes", "Instances applied by each gossip merge", "source", source)
+                .record(changes);
+    }
+
+    /**
+     * Runs a registry store operation made on behalf of gossip under its timer.
+     *
+     * @param operation the store operation
+     * @param call the operation
+     * @return the result of the operation
+     */
+    public <T> T timeStore(String operation, Supplier<T> call) {
+        return timer("gossip.store.operations", "Registry store time spent on gossip", "operation", operation)
+                .record(call);
+    }
+
+    /**
+     * Records the duration of a gossip round.
+     *
+     * @param type the kind of round: "delta", "full" or "digest"
+     * @param success whether the exchange with the peer succeeded
+     * @param nanos how long the round took
+     */
+    public void recordRound(String type, boolean success, long nanos) {
+        timer("gossip.rounds", "Duration of outgoing gossip rounds", "type", type, "outcome", success ? "success" : "failure")
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private DistributionSummary summary(String name, String description, String... tags) {
+        return (DistributionSummary) meters.computeIfAbsent(key(name, tags),
+            key -> DistributionSummary.builder(name).description(description).tags(tags).register(meterRegistry));
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return (Timer) meters.computeIfAbsent(key(name, tags),
+            key -> Timer.builder(name).description(description).tags(tags).register(meterRegistry));
+    }
+
+    private static String key(String name, String... tags) {
+        return name + ":" + String.join(",", tags);
+    }
+}
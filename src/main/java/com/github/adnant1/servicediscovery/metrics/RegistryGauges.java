@@ -0,0 +1,50 @@
+package com.github.adnant1.servicediscovery.metrics;
+
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.gossip.Membership;
+import com.github.adnant1.servicediscovery.gossip.PeerRegistry;
+import com.github.adnant1.servicediscovery.registry.MemberUpdate;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Gauges for the size of the registry and of the cluster.
+ * All are sampled when the metrics are scraped, so each scrape costs a registry store read.
+ * gossip.members counts the SWIM membership by state, excluding this node.
+ */
+@Component
+public class RegistryGauges implements MeterBinder {
+
+    private final RegistryStore registryStore;
+    private final PeerRegistry peerRegistry;
+    private final Membership membership;
+
+    public RegistryGauges(RegistryStore registryStore, PeerRegistry peerRegistry, Membership membership) {
+        this.registryStore = registryStore;
+        this.peerRegistry = peerRegistry;
+        this.membership = membership;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("registry.instances", registryStore, RegistryStore::instanceCount)
+                .description("Instances in the local registry")
+                .register(registry);
+
+        Gauge.builder("gossip.peers", peerRegistry, peers -> peers.knownPeers().size())
+                .description("Peers this node gossips with")
+                .register(registry);
+
+        for (MemberUpdate.State state : new MemberUpdate.State[] {
+                MemberUpdate.State.ALIVE, MemberUpdate.State.SUSPECT, MemberUpdate.State.DEAD}) {
+            Gauge.builder("gossip.members", membership, members -> members.count(state))
+                    .description("Cluster members known to this node, by SWIM state")
+                    .tag("state", state.name().toLowerCase())
+                    .register(registry);
+        }
+    }
+}
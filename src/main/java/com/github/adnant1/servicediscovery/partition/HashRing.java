@@ -0,0 +1,105 @@
+package com.github.adnant1.servicediscovery.partition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Consistent-hash ring of node addresses.
+ * Every node is placed on the ring at virtualNodes points, and a service is owned by the first
+ * replicationFactor distinct nodes clockwise from the hash of its name. Adding or removing a node
+ * only moves the services next to its points, about 1/N of them, and spreads them over the other nodes.
+ * Immutable; a new ring is built whenever membership changes.
+ */
+public final class HashRing {
+
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+    private final Set<String> nodes;
+    private final int replicationFactor;
+
+    /**
+     * Builds a ring over the given nodes.
+     *
+     * @param nodes the node addresses (hostname:port)
+     * @param virtualNodes the number of points per node
+     * @param replicationFactor the number of nodes owning each service
+     */
+    public HashRing(Collection<String> nodes, int virtualNodes, int replicationFactor) {
+        this.nodes = new TreeSet<>(nodes);
+        this.replicationFactor = Math.max(1, replicationFactor);
+
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // A collision keeps the lower address, so every node resolves it the same way
+                points.merge(hash(node + "#" + i), node, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+    }
+
+    /**
+     * Returns the nodes owning a service, primary first.
+     *
+     * @param serviceName the name of the service
+     * @return up to replicationFactor distinct node addresses, empty if the ring has no nodes
+     */
+    public List<String> ownersOf(String serviceName) {
+        int wanted = Math.min(replicationFactor, nodes.size());
+        List<String> owners = new ArrayList<>(wanted);
+        if (wanted == 0) {
+            return owners;
+        }
+
+        long start = hash(serviceName);
+        for (String node : points.tailMap(start, true).values()) {
+            if (addOwner(owners, node, wanted)) {
+                return owners;
+            }
+        }
+        // Wrap around the ring
+        for (String node : points.headMap(start, false).values()) {
+            if (addOwner(owners, node, wanted)) {
+                return owners;
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * Returns the addresses of the nodes on the ring.
+     *
+     * @return a sorted set of node addresses
+     */
+    public Set<String> nodes() {
+        return nodes;
+    }
+
+    private static boolean addOwner(List<String> owners, String node, int wanted) {
+        if (!owners.contains(node)) {
+            owners.add(node);
+        }
+        return owners.size() == wanted;
+    }
+
+    /**
+     * 64-bit FNV-1a over the string's UTF-16 code units, followed by the MurmurHash3 finalizer
+     * so that similar keys such as the virtual node labels spread evenly. Must be identical on every node.
+     */
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.adnant1.servicediscovery.partition;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.gossip.Membership;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+/**
+ * Maps services onto the nodes that replicate them when spring.registry.partitioning.enabled is set.
+ * The ring is built from this node and the members SWIM considers alive, with
+ * spring.registry.partitioning.virtual-nodes points per node and
+ * spring.registry.partitioning.replication-factor owners per service, and is rebuilt
+ * once a second if membership changed. Nodes briefly disagreeing on membership also
+ * disagree on ownership; requests are then forwarded at most once and gossip repairs the rest.
+ * With partitioning disabled, every node replicates every service.
+ */
+@Component
+public class PartitionRouter {
+
+    private final Logger logger = LoggerFactory.getLogger(PartitionRouter.class);
+
+    private final Membership membership;
+    private final boolean enabled;
+    private final int virtualNodes;
+    private final int replicationFactor;
+
+    private volatile HashRing ring;
+
+    public PartitionRouter(Membership membership,
+                           @Value("${spring.registry.partitioning.enabled:false}") boolean enabled,
+                           @Value("${spring.registry.partitioning.virtual-nodes:128}") int virtualNodes,
+                           @Value("${spring.registry.partitioning.replication-factor:3}") int replicationFactor) {
+        this.membership = membership;
+        this.enabled = enabled;
+        this.virtualNodes = virtualNodes;
+        this.replicationFactor = replicationFactor;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the address other nodes reach this node at, as used on the ring.
+     *
+     * @return the hostname:port of this node
+     */
+    public String selfAddress() {
+        return Membership.addressOf(membership.selfId());
+    }
+
+    /**
+     * Returns the nodes owning a service, primary first.
+     *
+     * @param serviceName the name of the service
+     * @return the owners' addresses
+     */
+    public List<String> ownersOf(String serviceName) {
+        return ring().ownersOf(serviceName);
+    }
+
+    /**
+     * Returns the nodes currently on the ring.
+     *
+     * @return the node addresses
+     */
+    public Set<String> nodes() {
+        return ring().nodes();
+    }
+
+    /**
+     * Checks whether a node replicates a service.
+     *
+     * @param address the node's hostname:port
+     * @param serviceName the name of the service
+     * @return true if partitioning is disabled or the node is one of the service's owners
+     */
+    public boolean replicates(String address, String serviceName) {
+        return !enabled || ownersOf(serviceName).contains(address);
+    }
+
+    /**
+     * Checks whether requests for a service should be served by another node.
+     *
+     * @param serviceName the name of the service
+     * @return true if partitioning is enabled and this node does not replicate the service
+     */
+    public boolean isRemote(String serviceName) {
+        return enabled && !replicates(selfAddress(), serviceName);
+    }
+
+    /**
+     * Keeps the instances of the services a node replicates.
+     *
+     * @param address the node's hostname:port
+     * @param instances instances keyed by "service:instanceId"
+     * @return the instances the node replicates; the same map if partitioning is disabled
+     */
+    public Map<String, ServiceInstance> filterFor(String address, Map<String, ServiceInstance> instances) {
+        if (!enabled) {
+            return instances;
+        }
+
+        // Instances are grouped by service, so each service is looked up once
+        Map<String, Boolean> replicated = new HashMap<>();
+        Map<String, ServiceInstance> filtered = new HashMap<>();
+        instances.forEach((key, instance) -> {
+            int colon = key.indexOf(':');
+            String serviceName = colon >= 0 ? key.substring(0, colon) : key;
+            if (replicated.computeIfAbsent(serviceName, name -> replicates(address, name))) {
+                filtered.put(key, instance);
+            }
+        });
+        return filtered;
+    }
+
+    /**
+     * Rebuilds the ring if the set of alive members changed. Scheduled to run every second.
+     */
+    @Scheduled(fixedRate = 1000)
+    public void refresh() {
+        if (enabled) {
+            ring = buildIfChanged(ring);
+        }
+    }
+
+    private HashRing ring() {
+        HashRing current = ring;
+        if (current == null) {
+            current = buildIfChanged(null);
+            ring = current;
+        }
+        return current;
+    }
+
+    private HashRing buildIfChanged(HashRing current) {
+        Set<String> nodes = new TreeSet<>();
+        nodes.add(selfAddress());
+        for (String nodeId : membership.aliveMembers()) {
+            nodes.add(Membership.addressOf(nodeId));
+        }
+
+        if (current != null && current.nodes().equals(nodes)) {
+            return current;
+        }
+
+        logger.info("Rebuilding partition ring over {} nodes", nodes.size());
+        return new HashRing(nodes, virtualNodes, replicationFactor);
+    }
+}
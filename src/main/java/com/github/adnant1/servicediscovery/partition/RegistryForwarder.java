@@ -0,0 +1,185 @@
+package com.github.adnant1.servicediscovery.partition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.registry.RegistryServiceGrpc;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.grpc.Context;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.stub.MetadataUtils;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Forwards registry calls for services this node does not replicate to the nodes that do.
+ * Writes go to the service's primary owner and reads to a random owner; either moves on to
+ * the next owner if one is unavailable. Forwarded calls carry a header, and a call that arrived
+ * with it is always served locally, so a request is forwarded at most once even while nodes
+ * disagree on the ring.
+ */
+@Component
+public class RegistryForwarder {
+
+    public static final Metadata.Key<String> FORWARDED_HEADER =
+        Metadata.Key.of("x-registry-forwarded", Metadata.ASCII_STRING_MARSHALLER);
+    public static final Context.Key<Boolean> FORWARDED = Context.keyWithDefault("registry-forwarded", false);
+
+    private final Logger logger = LoggerFactory.getLogger(RegistryForwarder.class);
+
+    private final Map<String, ManagedChannel> channels = new ConcurrentHashMap<>();
+    private final PartitionRouter partitionRouter;
+    private final long deadlineMillis;
+
+    public RegistryForwarder(PartitionRouter partitionRouter,
+                             @Value("${spring.registry.partitioning.forward-deadline-millis:2000}") long deadlineMillis) {
+        this.partitionRouter = partitionRouter;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Checks whether a call for a service should be forwarded.
+     *
+     * @param serviceName the name of the service
+     * @return true if this node does not replicate the service and the call was not forwarded already
+     */
+    public boolean shouldForward(String serviceName) {
+        return partitionRouter.isRemote(serviceName) && !FORWARDED.get();
+    }
+
+    /**
+     * Forwards a write to the service's owners, primary first.
+     *
+     * @param serviceName the name of the service
+     * @param rpc the call to make
+     * @return a future completed with the owner's response
+     */
+    public <T> CompletableFuture<T> forwardWrite(String serviceName,
+                                                 Function<RegistryServiceGrpc.RegistryServiceFutureStub, ListenableFuture<T>> rpc) {
+        return forward(partitionRouter.ownersOf(serviceName), 0, rpc);
+    }
+
+    /**
+     * Forwards a read to the service's owners in random order, spreading reads over the replicas.
+     *
+     * @param serviceName the name of the service
+     * @param rpc the call to make
+     * @return a future completed with the owner's response
+     */
+    public <T> CompletableFuture<T> forwardRead(String serviceName,
+                                                Function<RegistryServiceGrpc.RegistryServiceFutureStub, ListenableFuture<T>> rpc) {
+        List<String> owners = new ArrayList<>(partitionRouter.ownersOf(serviceName));
+        Collections.shuffle(owners, ThreadLocalRandom.current());
+        return forward(owners, 0, rpc);
+    }
+
+    /**
+     * Shuts down channels to nodes that left the ring. Scheduled to run every 30 seconds.
+     */
+    @Scheduled(fixedRate = 30000)
+    public void evictChannels() {
+        Set<String> nodes = partitionRouter.enabled() ? partitionRouter.nodes() : Set.of();
+        channels.entrySet().removeIf(entry -> {
+            boolean evict = !nodes.contains(entry.getKey());
+            if (evict) {
+                entry.getValue().shutdown();
+            }
+            return evict;
+        });
+    }
+
+    /**
+     * Shuts down every channel.
+     */
+    @PreDestroy
+    public void shutdown() {
+        channels.values().forEach(ManagedChannel::shutdown);
+        channels.clear();
+    }
+
+    /**
+     * Calls the owner at the given index, moving on to the next owner if it cannot be reached.
+     */
+    private <T> CompletableFuture<T> forward(List<String> owners, int index,
+                                             Function<RegistryServiceGrpc.RegistryServiceFutureStub, ListenableFuture<T>> rpc) {
+        if (index >= owners.size()) {
+            return CompletableFuture.failedFuture(
+                Status.UNAVAILABLE.withDescription("No owner reachable").asRuntimeException()
+            );
+        }
+
+        String owner = owners.get(index);
+        Metadata headers = new Metadata();
+        headers.put(FORWARDED_HEADER, "1");
+
+        RegistryServiceGrpc.RegistryServiceFutureStub stub;
+        try {
+            stub = RegistryServiceGrpc.newFutureStub(channelFor(owner))
+                    .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers))
+                    .withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            return forward(owners, index + 1, rpc); // Malformed owner address
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Futures.addCallback(rpc.apply(stub), new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T response) {
+                result.complete(response);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                Status.Code code = Status.fromThrowable(t).getCode();
+                if (code != Status.Code.UNAVAILABLE && code != Status.Code.DEADLINE_EXCEEDED) {
+                    result.completeExceptionally(t); // The owner answered; pass its error on
+                    return;
+                }
+
+                logger.warn("Forwarding to {} failed: {}", owner, t.getMessage());
+                forward(owners, index + 1, rpc).whenComplete((response, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(response);
+                    }
+                });
+            }
+        }, MoreExecutors.directExecutor());
+
+        return result;
+    }
+
+    private ManagedChannel channelFor(String address) {
+        return channels.compute(address, (key, existing) -> {
+            if (existing != null && !existing.isShutdown()) {
+                return existing;
+            }
+
+            String[] parts = key.split(":");
+            return ManagedChannelBuilder.forAddress(parts[0], Integer.parseInt(parts[1]))
+                    .usePlaintext()
+                    .build();
+        });
+    }
+}
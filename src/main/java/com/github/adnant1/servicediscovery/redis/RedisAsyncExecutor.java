@@ -0,0 +1,95 @@
+package com.github.adnant1.servicediscovery.redis;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Issues registry commands through Lettuce's async API, for the non-blocking RPC path.
+ * All callers share one multiplexed connection, opened on first use, so any number of
+ * commands can be in flight without holding a thread each. Futures complete on Lettuce's
+ * I/O threads; callbacks attached to them must not block, and anything heavier than decoding
+ * the reply runs on callbackExecutor() instead.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.registry.store", havingValue = "redis", matchIfMissing = true)
+public class RedisAsyncExecutor {
+
+    private final LettuceConnectionFactory connectionFactory;
+    private final ExecutorService callbackExecutor =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("redis-callback-", 0).factory());
+    private volatile StatefulRedisConnection<String, String> connection;
+
+    public RedisAsyncExecutor(LettuceConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Runs a script by its SHA1, falling back to EVAL if Redis no longer has it cached.
+     *
+     * @param script the script to run
+     * @param outputType how Redis' reply is decoded
+     * @param keys the script's KEYS
+     * @param args the script's ARGV
+     * @return a future completed with the script's reply
+     */
+    public <T> CompletableFuture<T> eval(RedisScript<?> script, ScriptOutputType outputType, List<String> keys,
+                                         String... args) {
+        String[] keyArray = keys.toArray(String[]::new);
+        RedisAsyncCommands<String, String> commands = commands();
+
+        CompletableFuture<T> evalSha = commands.<T>evalsha(script.getSha1(), outputType, keyArray, args).toCompletableFuture();
+        return evalSha.exceptionallyCompose(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RedisNoScriptException) {
+                return commands.<T>eval(script.getScriptAsString(), outputType, keyArray, args).toCompletableFuture();
+            }
+            return CompletableFuture.failedFuture(cause);
+        });
+    }
+
+    /**
+     * Returns the executor for work that follows a command, such as publishing a change,
+     * so that it does not hold up the I/O thread the reply arrived on.
+     */
+    public Executor callbackExecutor() {
+        return callbackExecutor;
+    }
+
+    private RedisAsyncCommands<String, String> commands() {
+        StatefulRedisConnection<String, String> current = connection;
+        if (current == null) {
+            synchronized (this) {
+                current = connection;
+                if (current == null) {
+                    current = ((RedisClient) connectionFactory.getRequiredNativeClient()).connect();
+                    connection = current;
+                }
+            }
+        }
+        return current.async();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connection != null) {
+            connection.closeAsync();
+        }
+        callbackExecutor.shutdown();
+    }
+}
@@ -1,125 +1,781 @@
 package com.github.adnant1.servicediscovery.redis;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Repository;
 
+import com.github.adnant1.servicediscovery.cache.DiscoveryCache;
 import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.store.StateDelta;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+import io.lettuce.core.ScriptOutputType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * Repository class for managing service registry data in Redis.
+ * This is the default RegistryStore, selected with spring.registry.store=redis.
+ * Every operation that reaches Redis is timed under registry.redis.operations, tagged by operation;
+ * Discover reads served from the cache are not.
  */
 @Repository
-public class RedisRepository {
+@ConditionalOnProperty(name = "spring.registry.store", havingValue = "redis", matchIfMissing = true)
+public class RedisRepository implements RegistryStore {
+
+    // Instances per merge script call, so no single call holds Redis for long
+    private static final int MERGE_BATCH_SIZE = 500;
+    // Instances per refresh script call
+    private static final int REFRESH_BATCH_SIZE = 1000;
+    // Services or instances read per pipelined round trip of a dump
+    private static final int DUMP_BATCH_SIZE = 1000;
+
     private final StringRedisTemplate redisTemplate;
+    private final RegistryScripts scripts;
+    private final RegistryIndex registryIndex;
+    private final RedisAsyncExecutor asyncExecutor;
+    private final DiscoveryCache discoveryCache;
+    private final ChangeNotifier changeNotifier;
+    private final MeterRegistry meterRegistry;
     private final int ttlSeconds;
+    private final boolean keyspaceNotifications;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
 
-    public RedisRepository(StringRedisTemplate redisTemplate, 
-                          @Value("${spring.ttl-seconds:30}") int ttlSeconds) {
+    public RedisRepository(StringRedisTemplate redisTemplate, RegistryScripts scripts, RegistryIndex registryIndex,
+                          RedisAsyncExecutor asyncExecutor, DiscoveryCache discoveryCache, ChangeNotifier changeNotifier,
+                          MeterRegistry meterRegistry, @Value("${spring.ttl-seconds:30}") int ttlSeconds,
+                          @Value("${spring.discover-cache.keyspace-notifications:false}") boolean keyspaceNotifications) {
         this.redisTemplate = redisTemplate;
+        this.scripts = scripts;
+        this.registryIndex = registryIndex;
+        this.asyncExecutor = asyncExecutor;
+        this.discoveryCache = discoveryCache;
+        this.changeNotifier = changeNotifier;
+        this.meterRegistry = meterRegistry;
         this.ttlSeconds = ttlSeconds;
+        this.keyspaceNotifications = keyspaceNotifications;
     }
 
     /**
      * Saves a service instance to Redis with a TTL.
+     * The hash, its expiry and the service set membership are written atomically in one round trip.
      * 
      * @param serviceName the name of the service
      * @param instanceId the unique ID of the service instance
      * @param ip the IP address of the service instance
      * @param port the port number of the service instance
      */
+    @Override
     public void saveInstance(String serviceName, String instanceId, String ip, int port) {
-        String key = serviceName + ":" + instanceId;
+        saveInstance(serviceName, instanceId, ip, port, null);
+    }
+
+    /**
+     * Saves a service instance to Redis, optionally attached to a lease.
+     * A leased instance takes the lease's remaining TTL and is renewed and removed together with the lease.
+     * 
+     * @param serviceName the name of the service
+     * @param instanceId the unique ID of the service instance
+     * @param ip the IP address of the service instance
+     * @param port the port number of the service instance
+     * @param leaseId the lease to attach the instance to, or null for an instance with its own TTL
+     * @return true if the instance was saved, false if the lease does not exist
+     */
+    @Override
+    public boolean saveInstance(String serviceName, String instanceId, String ip, int port, String leaseId) {
+        long now = System.currentTimeMillis();
+        List<String> keys = saveKeys(serviceName, instanceId, leaseId);
+        List<String> args = saveArgs(serviceName, ip, port, leaseId, now);
+
+        Long created = timed("saveInstance", () -> redisTemplate.execute(scripts.saveInstance(), keys, args.toArray()));
+        return afterSave(serviceName, instanceId, ip, port, leaseId, now, created);
+    }
+
+    /**
+     * Saves a service instance through the async connection, without blocking the caller.
+     */
+    @Override
+    public CompletableFuture<Boolean> saveInstanceAsync(String serviceName, String instanceId, String ip, int port,
+                                                        String leaseId) {
+        long now = System.currentTimeMillis();
+        List<String> keys = saveKeys(serviceName, instanceId, leaseId);
+        List<String> args = saveArgs(serviceName, ip, port, leaseId, now);
+
+        return timedAsync("saveInstance", () -> asyncExecutor.<Long>eval(
+            scripts.saveInstance(), ScriptOutputType.INTEGER, keys, args.toArray(String[]::new)
+        )).thenApplyAsync(created -> afterSave(serviceName, instanceId, ip, port, leaseId, now, created),
+            asyncExecutor.callbackExecutor());
+    }
+
+    private List<String> saveKeys(String serviceName, String instanceId, String leaseId) {
+        List<String> keys = new ArrayList<>(instanceKeys(serviceName + ":" + instanceId, serviceName));
+        if (leaseId != null) {
+            keys.add(leaseKey(leaseId));
+            keys.add(leaseInstancesKey(leaseId));
+        }
+        return keys;
+    }
+
+    private List<String> saveArgs(String serviceName, String ip, int port, String leaseId, long now) {
+        List<String> args = new ArrayList<>(List.of(
+            ip, String.valueOf(port), String.valueOf(now), String.valueOf(ttlSeconds), serviceName
+        ));
+        if (leaseId != null) {
+            args.add(leaseId);
+        }
+        return args;
+    }
+
+    /**
+     * Invalidates the cache and publishes the change once the save script has run.
+     *
+     * @param created the script's reply: 1 if created, 0 if overwritten, negative if the lease is missing
+     * @return true if the instance was saved
+     */
+    private boolean afterSave(String serviceName, String instanceId, String ip, int port, String leaseId, long now,
+                              Long created) {
+        if (created != null && created < 0) {
+            return false; // Lease not found
+        }
+        discoveryCache.invalidate(serviceName);
+
+        ServiceInstance.Builder instance = ServiceInstance.newBuilder()
+                .setInstanceId(instanceId)
+                .setIp(ip)
+                .setPort(port)
+                .setLastUpdated(now);
+        if (leaseId == null) {
+            instance.setTtl(ttlSeconds);
+        }
+        changeNotifier.publish(
+            created != null && created == 1 ? WatchEvent.Type.ADDED : WatchEvent.Type.UPDATED, serviceName, instance.build()
+        );
+        return true;
+    }
+
+    /**
+     * Grants a new lease. Instances registered with the lease share its TTL.
+     * 
+     * @param leaseTtlSeconds the TTL of the lease, or 0 for the default instance TTL
+     * @return the ID of the new lease
+     */
+    @Override
+    public String grantLease(long leaseTtlSeconds) {
+        long ttl = leaseTtlSeconds(leaseTtlSeconds);
+        String leaseId = UUID.randomUUID().toString();
+
+        timed("grantLease", () -> {
+            redisTemplate.opsForValue().set(leaseKey(leaseId), String.valueOf(ttl), Duration.ofSeconds(ttl));
+            return null;
+        });
+        return leaseId;
+    }
+
+    /**
+     * Resolves the TTL a lease is granted with.
+     * 
+     * @param leaseTtlSeconds the requested TTL, or 0 for the default
+     * @return the TTL in seconds
+     */
+    @Override
+    public long leaseTtlSeconds(long leaseTtlSeconds) {
+        return leaseTtlSeconds > 0 ? leaseTtlSeconds : ttlSeconds;
+    }
+
+    /**
+     * Renews a lease and every instance attached to it in one round trip.
+     * 
+     * @param leaseId the ID of the lease
+     * @return the number of instances renewed, or -1 if the lease does not exist
+     */
+    @Override
+    public long keepAliveLease(String leaseId) {
+        Long renewed = timed("keepAliveLease", () -> redisTemplate.execute(
+            scripts.keepAliveLease(),
+            List.of(leaseKey(leaseId), leaseInstancesKey(leaseId), RegistryIndex.VERSION_KEY, RegistryIndex.CHANGES_KEY),
+            leaseId, String.valueOf(System.currentTimeMillis())
+        ));
+        return renewed == null ? -1 : renewed;
+    }
+
+    /**
+     * Revokes a lease and removes every instance attached to it in one round trip.
+     * 
+     * @param leaseId the ID of the lease
+     * @return the number of instances removed, or -1 if the lease did not exist
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public int revokeLease(String leaseId) {
+        List<String> result = timed("revokeLease", () -> redisTemplate.execute(
+            scripts.revokeLease(),
+            List.of(leaseKey(leaseId), leaseInstancesKey(leaseId), RegistryIndex.SERVICES_KEY, RegistryIndex.CHANGES_KEY),
+            leaseId
+        ));
 
-        Map<String, String> fields = new HashMap<>();
-        fields.put("ip", ip);
-        fields.put("port", String.valueOf(port));
-        fields.put("timestamp", String.valueOf(System.currentTimeMillis()));
+        if (result == null || result.isEmpty()) {
+            return -1;
+        }
 
-        redisTemplate.opsForHash().putAll(key, fields);
-        redisTemplate.expire(key, java.time.Duration.ofSeconds(ttlSeconds));
+        // First element is whether the lease existed, followed by the removed instance keys
+        List<String> removed = result.subList(1, result.size());
+        for (String key : removed) {
+            String[] parts = key.split(":", 2);
+            discoveryCache.invalidate(parts[0]);
+            changeNotifier.publish(
+                WatchEvent.Type.REMOVED, parts[0], ServiceInstance.newBuilder().setInstanceId(parts[1]).build()
+            );
+        }
 
-        // Add to services set for easy lookup
-        redisTemplate.opsForSet().add("service:" + serviceName, key);
-    } 
+        if ("0".equals(result.get(0)) && removed.isEmpty()) {
+            return -1;
+        }
+        return removed.size();
+    }
 
     /**
-     * Deletes a service instance from Redis.
+     * Merges service instances received through gossip into the local registry.
+     * Expired instances are removed; others are inserted or overwritten only if newer than the local copy,
+     * and a copy of the same registration that expires later extends the local TTL.
+     * The comparisons and writes run server side in batches of MERGE_BATCH_SIZE instances, one script
+     * call per batch. All batches are issued at once on the async connection, which pipelines them,
+     * so a large payload costs one round trip instead of one per instance. Blocks until every batch
+     * has completed, so it must not be called from a Lettuce I/O thread.
+     * 
+     * @param incoming a map of instance keys ("service:instanceId") to instances
+     * @return the number of instances inserted or overwritten
+     */
+    @Override
+    public int mergeInstances(Map<String, ServiceInstance> incoming) {
+        return timed("mergeInstances", () -> {
+            List<MergeEntry> entries = new ArrayList<>(incoming.size());
+            for (Map.Entry<String, ServiceInstance> entry: incoming.entrySet()) {
+                String[] parts = entry.getKey().split(":", 2);
+                if (parts.length != 2) {
+                    continue; // Invalid key format
+                }
+                ServiceInstance instance = entry.getValue();
+
+                // Gossiped TTLs are what remained at the sender when it dumped the instance
+                boolean expired = instance.getTtl() <= 0;
+                entries.add(new MergeEntry(parts[0], parts[1], instance, expired));
+            }
+
+            List<CompletableFuture<List<Object>>> batches = new ArrayList<>();
+            for (int from = 0; from < entries.size(); from += MERGE_BATCH_SIZE) {
+                batches.add(mergeBatch(entries.subList(from, Math.min(from + MERGE_BATCH_SIZE, entries.size()))));
+            }
+
+            int changes = 0;
+            for (int b = 0; b < batches.size(); b++) {
+                List<Object> results = batches.get(b).join();
+                for (int i = 0; i < results.size(); i++) {
+                    if (afterMerge(entries.get(b * MERGE_BATCH_SIZE + i), (Long) results.get(i))) {
+                        changes++;
+                    }
+                }
+            }
+            return changes;
+        });
+    }
+
+    /**
+     * Runs the merge script over one batch of instances.
+     * 
+     * @param batch the instances to merge or delete
+     * @return a future completed with one script result per instance
+     */
+    private CompletableFuture<List<Object>> mergeBatch(List<MergeEntry> batch) {
+        List<String> keys = new ArrayList<>(3 + batch.size() * 2);
+        keys.add(RegistryIndex.SERVICES_KEY);
+        keys.add(RegistryIndex.VERSION_KEY);
+        keys.add(RegistryIndex.CHANGES_KEY);
+
+        String[] args = new String[batch.size() * 6];
+        int a = 0;
+        for (MergeEntry entry : batch) {
+            ServiceInstance instance = entry.instance();
+            keys.add(entry.serviceName() + ":" + entry.instanceId());
+            keys.add("service:" + entry.serviceName());
+
+            args[a++] = entry.expired() ? "delete" : "merge";
+            args[a++] = instance.getIp();
+            args[a++] = String.valueOf(instance.getPort());
+            args[a++] = String.valueOf(instance.getLastUpdated());
+            args[a++] = String.valueOf(instance.getTtl());
+            args[a++] = entry.serviceName();
+        }
+
+        return asyncExecutor.eval(scripts.mergeInstances(), ScriptOutputType.MULTI, keys, args);
+    }
+
+    /**
+     * Invalidates the cache and publishes the change for one merged instance.
+     * 
+     * @param entry the merged instance
+     * @param result the script's result for it
+     * @return true if the local copy was inserted or overwritten
+     */
+    private boolean afterMerge(MergeEntry entry, Long result) {
+        if (entry.expired()) {
+            afterDelete(entry.serviceName(), entry.instanceId(), result);
+            return false;
+        }
+
+        // 2 means the instance was created, 1 that an older copy was overwritten
+        boolean changed = result != null && result > 0;
+        if (changed) {
+            discoveryCache.invalidate(entry.serviceName());
+            changeNotifier.publish(
+                result == 2 ? WatchEvent.Type.ADDED : WatchEvent.Type.UPDATED,
+                entry.serviceName(),
+                entry.instance().toBuilder().setInstanceId(entry.instanceId()).build()
+            );
+        }
+        return changed;
+    }
+
+    private record MergeEntry(String serviceName, String instanceId, ServiceInstance instance, boolean expired) {}
+
+    /**
+     * Deletes a service instance and its service set membership from Redis in one round trip.
      * 
      * @param serviceName the name of the service
      * @param instanceId the unique ID of the service instance
      * @return true if the instance was deleted, false if it did not exist
      */
+    @Override
     public boolean deleteInstance(String serviceName, String instanceId) {
-        String key = serviceName + ":" + instanceId;
-        Boolean result = redisTemplate.delete(key);
-        redisTemplate.opsForSet().remove("service:" + serviceName, key);
-        return Boolean.TRUE.equals(result);
+        Long deleted = timed("deleteInstance", () -> redisTemplate.execute(
+            scripts.deleteInstance(), deleteKeys(serviceName, instanceId), serviceName
+        ));
+        return afterDelete(serviceName, instanceId, deleted);
+    }
+
+    /**
+     * Deletes a service instance through the async connection, without blocking the caller.
+     */
+    @Override
+    public CompletableFuture<Boolean> deleteInstanceAsync(String serviceName, String instanceId) {
+        return timedAsync("deleteInstance", () -> asyncExecutor.<Long>eval(
+            scripts.deleteInstance(), ScriptOutputType.INTEGER, deleteKeys(serviceName, instanceId), serviceName
+        )).thenApplyAsync(deleted -> afterDelete(serviceName, instanceId, deleted), asyncExecutor.callbackExecutor());
+    }
+
+    private static List<String> deleteKeys(String serviceName, String instanceId) {
+        return List.of(
+            serviceName + ":" + instanceId, "service:" + serviceName, RegistryIndex.SERVICES_KEY, RegistryIndex.CHANGES_KEY
+        );
+    }
+
+    private boolean afterDelete(String serviceName, String instanceId, Long deleted) {
+        discoveryCache.invalidate(serviceName);
+
+        boolean removed = deleted != null && deleted > 0;
+        if (removed) {
+            changeNotifier.publish(
+                WatchEvent.Type.REMOVED, serviceName, ServiceInstance.newBuilder().setInstanceId(instanceId).build()
+            );
+        }
+        return removed;
     }
 
     /**
-     * Retrieves all instances of a given service from Redis.
+     * Retrieves all instances of a given service, served from the discovery cache when possible.
      * 
      * @param serviceName the name of the service
      * @return a list of type ServiceInstance
      */
+    @Override
     public List<ServiceInstance> getInstances(String serviceName) {
-        Set<String> keys = redisTemplate.opsForSet().members("service:" + serviceName);
+        return discoveryCache.get(serviceName, this::loadInstances);
+    }
 
-        if (keys == null || keys.isEmpty()) {
+    /**
+     * Retrieves all instances of a given service without blocking the caller.
+     * Cache hits complete immediately; misses run the read script through the async connection and
+     * complete on the callback executor, so parsing and whatever the caller chains on never run on the I/O thread.
+     */
+    @Override
+    public CompletableFuture<List<ServiceInstance>> getInstancesAsync(String serviceName) {
+        return discoveryCache.getAsync(serviceName, name -> timedAsync("getInstances", () -> asyncExecutor.<List<Object>>eval(
+            scripts.getInstances(), ScriptOutputType.MULTI, instancesKeys(name), name
+        )).thenApplyAsync(rows -> parseInstances(rows.stream().map(String::valueOf).toList()),
+            asyncExecutor.callbackExecutor()));
+    }
+
+    /**
+     * Reads all instances of a given service from Redis in a single scripted round trip.
+     * The script also prunes set members whose hash has expired.
+     * 
+     * @param serviceName the name of the service
+     * @return a list of type ServiceInstance
+     */
+    @SuppressWarnings("unchecked")
+    private List<ServiceInstance> loadInstances(String serviceName) {
+        List<String> rows = timed("getInstances", () -> redisTemplate.execute(
+            scripts.getInstances(), instancesKeys(serviceName), serviceName
+        ));
+        return parseInstances(rows);
+    }
+
+    private static List<String> instancesKeys(String serviceName) {
+        return List.of("service:" + serviceName, RegistryIndex.SERVICES_KEY);
+    }
+
+    /**
+     * Builds instances from the read script's reply.
+     */
+    private static List<ServiceInstance> parseInstances(List<String> rows) {
+        if (rows == null || rows.isEmpty()) {
             return List.of();
         }
 
-        // Map each key to a ServiceInstance object
-        List<ServiceInstance> instances = new ArrayList<>();
-        for (String key: keys) {
-            Map<Object, Object> fields = redisTemplate.opsForHash().entries(key);
-
-            String ip = (String) fields.get("ip");
-            String portStr = (String) fields.get("port");
+        // Rows are flattened as key, ip, port, timestamp
+        List<ServiceInstance> instances = new ArrayList<>(rows.size() / 4);
+        for (int i = 0; i + 3 < rows.size(); i += 4) {
+            String key = rows.get(i);
 
             String[] parts = key.split(":", 2);
             String instanceId = (parts.length == 2) ? parts[1] : "";
-
-            if (ip != null && portStr != null && !instanceId.isEmpty()) {
-                int port = Integer.parseInt(portStr);
-                ServiceInstance instance = ServiceInstance.newBuilder()
-                        .setInstanceId(instanceId)
-                        .setIp(ip)
-                        .setPort(port)
-                        .build();
-                
-                instances.add(instance);
-            } else {
-                redisTemplate.opsForSet().remove("service:" + serviceName, key);
+            if (instanceId.isEmpty()) {
+                continue;
             }
+
+            ServiceInstance instance = ServiceInstance.newBuilder()
+                    .setInstanceId(instanceId)
+                    .setIp(rows.get(i + 1))
+                    .setPort(Integer.parseInt(rows.get(i + 2)))
+                    .setLastUpdated(Long.parseLong(rows.get(i + 3)))
+                    .build();
+
+            instances.add(instance);
         }
 
         return instances;
     }
 
     /**
-     * Refreshes the TTL of a service instance in Redis.
+     * Refreshes the TTL of a service instance in Redis in one scripted round trip.
+     * A leased instance is aligned to its lease's remaining TTL instead of getting a full one.
+     * Once half of the TTL has passed since the instance was last logged, it is logged again,
+     * so the next delta carries the refresh to peers.
      * 
      * @param serviceName the name of the service
      * @param instanceId the unique ID of the service instance
-     * @return true if the TTL was refreshed, false if the instance does not exist
+     * @return true if the TTL was refreshed, false if the instance or its lease does not exist
      */
+    @SuppressWarnings("unchecked")
+    @Override
     public boolean refreshTtl(String serviceName, String instanceId) {
-        String key = serviceName + ":" + instanceId;
+        List<Object> results = timed("refreshTtl", () -> redisTemplate.execute(
+            scripts.refreshTtls(), refreshKeys(List.of(serviceName + ":" + instanceId)),
+            String.valueOf(ttlSeconds), String.valueOf(System.currentTimeMillis())
+        ));
+        return results != null && !results.isEmpty() && Long.valueOf(1).equals(results.get(0));
+    }
 
-        Boolean exists = redisTemplate.hasKey(key);
-        if (exists == null || !exists) {
-            return false;
+    /**
+     * Refreshes the TTL of a service instance through the async connection, without blocking the caller.
+     */
+    @Override
+    public CompletableFuture<Boolean> refreshTtlAsync(String serviceName, String instanceId) {
+        return timedAsync("refreshTtl", () -> asyncExecutor.<List<Object>>eval(
+            scripts.refreshTtls(), ScriptOutputType.MULTI, refreshKeys(List.of(serviceName + ":" + instanceId)),
+            String.valueOf(ttlSeconds), String.valueOf(System.currentTimeMillis())
+        )).thenApply(results -> !results.isEmpty() && Long.valueOf(1).equals(results.get(0)));
+    }
+
+    /**
+     * Refreshes the TTLs of many service instances with one script call per batch.
+     * Leased instances are aligned to their lease's remaining TTL, as in {@link #refreshTtl}.
+     * 
+     * @param instanceKeys the instance keys ("service:instanceId") to refresh, without duplicates
+     * @return the keys whose TTL was refreshed; the others do not exist
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Set<String> refreshTtls(List<String> instanceKeys) {
+        Set<String> refreshed = new HashSet<>();
+        for (int from = 0; from < instanceKeys.size(); from += REFRESH_BATCH_SIZE) {
+            List<String> batch = instanceKeys.subList(from, Math.min(from + REFRESH_BATCH_SIZE, instanceKeys.size()));
+            List<Object> results = timed("refreshTtls", () -> redisTemplate.execute(
+                scripts.refreshTtls(), refreshKeys(batch), String.valueOf(ttlSeconds), String.valueOf(System.currentTimeMillis())
+            ));
+
+            for (int i = 0; results != null && i < batch.size() && i < results.size(); i++) {
+                if (Long.valueOf(1).equals(results.get(i))) {
+                    refreshed.add(batch.get(i));
+                }
+            }
         }
+        return refreshed;
+    }
 
-        redisTemplate.expire(key, java.time.Duration.ofSeconds(ttlSeconds));
-        return true;
+    private static List<String> refreshKeys(List<String> instanceKeys) {
+        List<String> keys = new ArrayList<>(instanceKeys.size() + 2);
+        keys.add(RegistryIndex.VERSION_KEY);
+        keys.add(RegistryIndex.CHANGES_KEY);
+        keys.addAll(instanceKeys);
+        return keys;
+    }
+
+    @Override
+    public long currentVersion() {
+        String version = timed("currentVersion", () -> redisTemplate.opsForValue().get(RegistryIndex.VERSION_KEY));
+        return version == null ? 0 : Long.parseLong(version);
+    }
+
+    /**
+     * Dumps the service instances written locally after the given version, oldest first,
+     * in one scripted round trip over the change log.
+     * 
+     * @param sinceVersion the exclusive lower version bound
+     * @param limit the maximum number of instances to return
+     * @return the changed instances together with the version range they cover
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public StateDelta dumpChangesSince(long sinceVersion, int limit) {
+        List<String> rows = timed("dumpChangesSince", () -> redisTemplate.execute(
+            scripts.dumpChanges(),
+            List.of(RegistryIndex.VERSION_KEY, RegistryIndex.CHANGES_KEY),
+            String.valueOf(sinceVersion), String.valueOf(limit)
+        ));
+
+        if (rows == null || rows.size() < 2) {
+            return new StateDelta(Map.of(), 0, sinceVersion);
+        }
+
+        long currentVersion = Long.parseLong(rows.get(0));
+        long lastVersion = Long.parseLong(rows.get(1));
+
+        // Rows are flattened as key, ip, port, timestamp, ttl, version
+        Map<String, ServiceInstance> services = new HashMap<>();
+        for (int i = 2; i + 5 < rows.size(); i += 6) {
+            String key = rows.get(i);
+            String[] parts = key.split(":", 2);
+            if (parts.length != 2) {
+                continue; // Invalid key format
+            }
+
+            ServiceInstance instance = ServiceInstance.newBuilder()
+                    .setInstanceId(parts[1])
+                    .setIp(rows.get(i + 1))
+                    .setPort(Integer.parseInt(rows.get(i + 2)))
+                    .setLastUpdated(Long.parseLong(rows.get(i + 3)))
+                    .setTtl(Long.parseLong(rows.get(i + 4)))
+                    .build();
+
+            services.put(key, instance);
+        }
+
+        return new StateDelta(services, currentVersion, lastVersion);
+    }
+
+    /**
+     * Dumps the selected service instances stored in Redis, enumerated through the service index.
+     * Reads are pipelined in batches: the instance keys of the selected services first, then the fields
+     * and remaining TTL of the selected keys, so a dump takes a few round trips however many instances it holds.
+     * 
+     * @param serviceFilter selects the services to read, by name
+     * @param keyFilter selects the instances to read within those services, by instance key
+     * @return a map of instance keys to instances
+     */
+    @Override
+    public Map<String, ServiceInstance> dumpServices(Predicate<String> serviceFilter, Predicate<String> keyFilter) {
+        return timed("dumpServices", () -> loadServices(serviceFilter, keyFilter));
+    }
+
+    private Map<String, ServiceInstance> loadServices(Predicate<String> serviceFilter, Predicate<String> keyFilter) {
+        Map<String, ServiceInstance> services = new HashMap<>();
+
+        // Retrieve the selected service names from the index
+        List<String> serviceNames = registryIndex.serviceNames().stream().filter(serviceFilter).toList();
+        if (serviceNames.isEmpty()) {
+            return services;
+        }
+
+        // Get the instance keys of every selected service set
+        List<String> keys = new ArrayList<>();
+        for (int from = 0; from < serviceNames.size(); from += DUMP_BATCH_SIZE) {
+            List<String> batch = serviceNames.subList(from, Math.min(from + DUMP_BATCH_SIZE, serviceNames.size()));
+            List<Object> members = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String serviceName : batch) {
+                    stringConnection.sMembers("service:" + serviceName);
+                }
+                return null;
+            });
+
+            for (Object set : members) {
+                if (set instanceof Set<?> serviceKeys) {
+                    for (Object key : serviceKeys) {
+                        if (keyFilter.test((String) key)) {
+                            keys.add((String) key);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Retrieve the details and remaining TTL of every selected instance
+        for (int from = 0; from < keys.size(); from += DUMP_BATCH_SIZE) {
+            List<String> batch = keys.subList(from, Math.min(from + DUMP_BATCH_SIZE, keys.size()));
+            List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String key : batch) {
+                    stringConnection.hMGet(key, "ip", "port", "timestamp");
+                    stringConnection.ttl(key);
+                }
+                return null;
+            });
+
+            for (int i = 0; i < batch.size() && 2 * i + 1 < replies.size(); i++) {
+                ServiceInstance instance = dumpedInstance(batch.get(i), replies.get(2 * i), replies.get(2 * i + 1));
+                if (instance != null) {
+                    services.put(batch.get(i), instance);
+                }
+            }
+        }
+
+        return services;
+    }
+
+    /**
+     * Builds an instance from its pipelined HMGET and TTL replies.
+     * 
+     * @return the instance, or null if it expired or its key is invalid
+     */
+    private static ServiceInstance dumpedInstance(String key, Object fields, Object ttl) {
+        String[] parts = key.split(":", 2);
+        if (parts.length != 2) {
+            return null; // Invalid key format
+        }
+        if (!(ttl instanceof Long ttlRemaining) || ttlRemaining <= 0) {
+            return null; // Skip expired instances
+        }
+        if (!(fields instanceof List<?> values) || values.size() < 3 || values.contains(null)) {
+            return null; // Expired between the two reads
+        }
+
+        return ServiceInstance.newBuilder()
+                .setInstanceId(parts[1])
+                .setIp((String) values.get(0))
+                .setPort(Integer.parseInt((String) values.get(1)))
+                .setTtl(ttlRemaining)
+                .setLastUpdated(Long.parseLong((String) values.get(2)))
+                .build();
+    }
+
+    /**
+     * Lists services through the service index, whose members are pruned lazily.
+     */
+    @Override
+    public Set<String> serviceNames() {
+        return timed("serviceNames", registryIndex::serviceNames);
+    }
+
+    /**
+     * Counts instances by summing the cardinality of every service set in one pipelined round trip.
+     * Set members are pruned lazily, so instances whose hash just expired may still be counted.
+     */
+    @Override
+    public long instanceCount() {
+        return timed("instanceCount", () -> {
+            List<String> serviceNames = new ArrayList<>(registryIndex.serviceNames());
+            if (serviceNames.isEmpty()) {
+                return 0L;
+            }
+
+            List<Object> sizes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String serviceName : serviceNames) {
+                    stringConnection.sCard("service:" + serviceName);
+                }
+                return null;
+            });
+
+            long count = 0;
+            for (Object size : sizes) {
+                if (size instanceof Long value) {
+                    count += value;
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Expiries and other writers' changes are only published through keyspace notifications.
+     */
+    @Override
+    public boolean publishesAllChanges() {
+        return keyspaceNotifications;
+    }
+
+    /**
+     * Runs a blocking Redis operation under its timer.
+     */
+    private <T> T timed(String operation, Supplier<T> call) {
+        return timer(operation).record(call);
+    }
+
+    /**
+     * Times an async Redis operation from the moment it is issued until its future completes.
+     */
+    private <T> CompletableFuture<T> timedAsync(String operation, Supplier<CompletableFuture<T>> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return call.get().whenComplete((result, error) -> sample.stop(timer(operation)));
+    }
+
+    private Timer timer(String operation) {
+        return timers.computeIfAbsent(operation, name -> Timer.builder("registry.redis.operations")
+                .description("Latency of registry operations against Redis")
+                .tag("operation", name)
+                .register(meterRegistry));
+    }
+
+    private static String leaseKey(String leaseId) {
+        return "lease:" + leaseId;
+    }
+
+    private static String leaseInstancesKey(String leaseId) {
+        return "lease:" + leaseId + ":instances";
+    }
+
+    /**
+     * Builds the key list of the script that saves an instance.
+     * 
+     * @param key the instance hash key
+     * @param serviceName the name of the service
+     * @return the keys in the order the save script expects
+     */
+    private List<String> instanceKeys(String key, String serviceName) {
+        return List.of(
+            key,
+            "service:" + serviceName,
+            RegistryIndex.SERVICES_KEY,
+            RegistryIndex.VERSION_KEY,
+            RegistryIndex.CHANGES_KEY
+        );
     }
 }   
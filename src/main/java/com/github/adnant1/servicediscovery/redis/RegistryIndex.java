@@ -0,0 +1,112 @@
+package com.github.adnant1.servicediscovery.redis;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maintains index keys that enumerate registered services,
+ * so that gossip rounds never have to run KEYS over the whole keyspace.
+ *
+ * registry:services is a set of service names, kept up to date by the write scripts.
+ * registry:changes is a sorted set of instance keys scored by the local version of their
+ * last write, taken from the registry:version counter, and drives delta gossip.
+ * If an index is empty (first start after an upgrade, or lost on a Redis restart),
+ * it is rebuilt from an incremental SCAN, at most once per rebuild interval.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.registry.store", havingValue = "redis", matchIfMissing = true)
+public class RegistryIndex {
+
+    public static final String SERVICES_KEY = "registry:services";
+    public static final String VERSION_KEY = "registry:version";
+    public static final String CHANGES_KEY = "registry:changes";
+
+    private static final long REBUILD_INTERVAL_MILLIS = 60_000;
+    private static final int SCAN_COUNT = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(RegistryIndex.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final AtomicLong lastServiceRebuild = new AtomicLong();
+
+    public RegistryIndex(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Returns the names of all services with at least one registered instance.
+     *
+     * @return a set of service names
+     */
+    public Set<String> serviceNames() {
+        Set<String> names = redisTemplate.opsForSet().members(SERVICES_KEY);
+        if (names != null && !names.isEmpty()) {
+            return names;
+        }
+
+        if (!shouldRebuild(lastServiceRebuild)) {
+            return Set.of();
+        }
+
+        Set<String> scanned = scan("service:*");
+        Set<String> rebuilt = new HashSet<>();
+        for (String key : scanned) {
+            rebuilt.add(key.substring("service:".length()));
+        }
+
+        if (!rebuilt.isEmpty()) {
+            redisTemplate.opsForSet().add(SERVICES_KEY, rebuilt.toArray(String[]::new));
+            logger.info("Rebuilt service index with {} services", rebuilt.size());
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Adds a service to the index.
+     *
+     * @param serviceName the name of the service
+     */
+    public void addService(String serviceName) {
+        redisTemplate.opsForSet().add(SERVICES_KEY, serviceName);
+    }
+
+    /**
+     * Rate limits SCAN-based rebuilds so an empty registry does not scan the keyspace every round.
+     *
+     * @param lastRebuild the time of the previous rebuild for this index
+     * @return true if a rebuild should run now
+     */
+    private boolean shouldRebuild(AtomicLong lastRebuild) {
+        long now = System.currentTimeMillis();
+        long previous = lastRebuild.get();
+        return now - previous >= REBUILD_INTERVAL_MILLIS && lastRebuild.compareAndSet(previous, now);
+    }
+
+    /**
+     * Collects every key matching a pattern using non-blocking, incremental SCAN.
+     *
+     * @param pattern the key pattern to match
+     * @return the set of matching keys
+     */
+    private Set<String> scan(String pattern) {
+        Set<String> keys = new HashSet<>();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build();
+
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                keys.add(cursor.next());
+            }
+        }
+
+        return keys;
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.adnant1.servicediscovery.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the Lua scripts used by the registry and preloads them into Redis on startup.
+ * Each script's SHA1 is computed once and reused, so every call is a single EVALSHA.
+ * If Redis has lost the script (restart, SCRIPT FLUSH, failover), the template's
+ * executor gets NOSCRIPT and falls back to EVAL, which also reloads the script.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.registry.store", havingValue = "redis", matchIfMissing = true)
+public class RegistryScripts {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistryScripts.class);
+
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> getInstances = load("get_instances", List.class);
+    private final RedisScript<Long> saveInstance = load("save_instance", Long.class);
+    private final RedisScript<Long> deleteInstance = load("delete_instance", Long.class);
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> refreshTtls = load("refresh_ttls", List.class);
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> mergeInstances = load("merge_instances", List.class);
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> dumpChanges = load("dump_changes", List.class);
+    private final RedisScript<Long> keepAliveLease = load("keepalive_lease", Long.class);
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> revokeLease = load("revoke_lease", List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RegistryScripts(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> getInstances() {
+        return getInstances;
+    }
+
+    public RedisScript<Long> saveInstance() {
+        return saveInstance;
+    }
+
+    public RedisScript<Long> deleteInstance() {
+        return deleteInstance;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> refreshTtls() {
+        return refreshTtls;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> mergeInstances() {
+        return mergeInstances;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> dumpChanges() {
+        return dumpChanges;
+    }
+
+    public RedisScript<Long> keepAliveLease() {
+        return keepAliveLease;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> revokeLease() {
+        return revokeLease;
+    }
+
+    /**
+     * Loads every script into the Redis script cache so the first request does not pay for EVAL.
+     * Failures are logged only; scripts are reloaded lazily on NOSCRIPT.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                for (RedisScript<?> script : all()) {
+                    connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+            logger.info("[BOOT] Preloaded {} Redis scripts", all().size());
+        } catch (Exception e) {
+            logger.warn("Could not preload Redis scripts: {}", e.getMessage());
+        }
+    }
+
+    private List<RedisScript<?>> all() {
+        return List.of(getInstances, saveInstance, deleteInstance, refreshTtls, mergeInstances, dumpChanges, keepAliveLease, revokeLease);
+    }
+
+    private static <T> RedisScript<T> load(String name, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/" + name + ".lua"));
+        script.setResultType(resultType);
+        return script;
+    }
+}
@@ -0,0 +1,508 @@
+package com.github.adnant1.servicediscovery.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+/**
+ * Registry store that keeps all state in process, for single-node or edge deployments
+ * where Redis adds a network hop without adding value. Selected with spring.registry.store=memory.
+ *
+ * Instances live in one concurrent map per service, so Discover and Heartbeat are plain map
+ * operations. Reads skip expired entries. Expiry is owned by a timing wheel: every write and
+ * refresh moves the instance's deadline in O(1), and each tick removes the instances whose
+ * deadline has passed and publishes a removal for each. Writes to a service go through the outer map's compute, which keeps
+ * them ordered against the removal of an emptied service. Every write takes a version from
+ * a counter and is indexed by it, which drives delta gossip the same way as the Redis change log.
+ */
+@Repository
+@ConditionalOnProperty(name = "spring.registry.store", havingValue = "memory")
+public class InMemoryRegistryStore implements RegistryStore {
+
+    // loggedAt: when the instance last moved to the end of the change index
+    private record Entry(ServiceInstance instance, long expiresAt, long version, String leaseId, long loggedAt) {
+        boolean liveAt(long now) {
+            return expiresAt > now;
+        }
+    }
+
+    private record Lease(long ttlSeconds, long expiresAt, Set<String> instanceKeys) {}
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Entry>> services = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, String> changes = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final TimingWheel<String> instanceExpiry;
+    private final TimingWheel<String> leaseExpiry;
+
+    private final ChangeNotifier changeNotifier;
+    private final int ttlSeconds;
+    private final LongSupplier clock;
+
+    public InMemoryRegistryStore(ChangeNotifier changeNotifier,
+                                 @Value("${spring.ttl-seconds:30}") int ttlSeconds,
+                                 @Value("${spring.registry.memory.tick-millis:100}") long tickMillis) {
+        this(changeNotifier, ttlSeconds, tickMillis, System::currentTimeMillis);
+    }
+
+    InMemoryRegistryStore(ChangeNotifier changeNotifier, int ttlSeconds, long tickMillis, LongSupplier clock) {
+        this.changeNotifier = changeNotifier;
+        this.ttlSeconds = ttlSeconds;
+        this.clock = clock;
+        this.instanceExpiry = new TimingWheel<>(tickMillis, clock.getAsLong());
+        this.leaseExpiry = new TimingWheel<>(tickMillis, clock.getAsLong());
+    }
+
+    @Override
+    public void saveInstance(String serviceName, String instanceId, String ip, int port) {
+        saveInstance(serviceName, instanceId, ip, port, null);
+    }
+
+    @Override
+    public boolean saveInstance(String serviceName, String instanceId, String ip, int port, String leaseId) {
+        long now = clock.getAsLong();
+
+        Lease lease = null;
+        if (leaseId != null) {
+            lease = leases.get(leaseId);
+            if (lease == null || lease.expiresAt() <= now) {
+                return false; // Lease not found
+            }
+        }
+
+        ServiceInstance instance = ServiceInstance.newBuilder()
+                .setInstanceId(instanceId)
+                .setIp(ip)
+                .setPort(port)
+                .setLastUpdated(now)
+                .setTtl(lease == null ? ttlSeconds : lease.ttlSeconds())
+                .build();
+        long expiresAt = lease == null ? now + ttlSeconds * 1000L : lease.expiresAt();
+
+        Entry previous = write(serviceName, instanceId, instance, expiresAt, leaseId);
+        if (lease != null) {
+            lease.instanceKeys().add(serviceName + ":" + instanceId);
+        }
+
+        boolean created = previous == null || !previous.liveAt(now);
+        changeNotifier.publish(created ? WatchEvent.Type.ADDED : WatchEvent.Type.UPDATED, serviceName, instance);
+        return true;
+    }
+
+    @Override
+    public int mergeInstances(Map<String, ServiceInstance> incoming) {
+        int changed = 0;
+        long now = clock.getAsLong();
+
+        for (Map.Entry<String, ServiceInstance> entry : incoming.entrySet()) {
+            String[] parts = entry.getKey().split(":", 2);
+            if (parts.length != 2) {
+                continue; // Invalid key format
+            }
+            String serviceName = parts[0];
+            String instanceId = parts[1];
+            ServiceInstance incomingInstance = entry.getValue();
+
+            // Gossiped TTLs are what remained at the sender when it dumped the instance
+            if (incomingInstance.getTtl() <= 0) {
+                delete(serviceName, instanceId, incomingInstance.getLastUpdated());
+                continue;
+            }
+
+            if (mergeInstance(serviceName, instanceId, incomingInstance, now)) {
+                changed++;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Applies a gossiped instance if it is newer than the local copy. A copy of the same registration
+     * only moves the local expiry, if it expires later, since heartbeats do not write a new version.
+     * A newer copy was registered again on a peer, so it no longer belongs to the local copy's lease.
+     */
+    private boolean mergeInstance(String serviceName, String instanceId, ServiceInstance incoming, long now) {
+        ServiceInstance instance = incoming.toBuilder().setInstanceId(instanceId).build();
+        boolean[] created = new boolean[1];
+
+        Entry[] applied = new Entry[1];
+        services.compute(serviceName, (name, instances) -> {
+            ConcurrentHashMap<String, Entry> target = instances != null ? instances : new ConcurrentHashMap<>();
+            target.compute(instanceId, (id, local) -> {
+                boolean live = local != null && local.liveAt(now);
+                if (live && local.instance().getLastUpdated() >= incoming.getLastUpdated()) {
+                    long expiresAt = now + incoming.getTtl() * 1000;
+                    if (local.instance().getLastUpdated() == incoming.getLastUpdated() && expiresAt > local.expiresAt()) {
+                        instanceExpiry.schedule(serviceName + ":" + instanceId, expiresAt);
+                        return new Entry(local.instance(), expiresAt, local.version(), local.leaseId(), local.loggedAt());
+                    }
+                    return local;
+                }
+                created[0] = !live;
+                applied[0] = newEntry(serviceName + ":" + instanceId, local, instance,
+                    now + incoming.getTtl() * 1000, null);
+                return applied[0];
+            });
+            return target.isEmpty() ? null : target;
+        });
+
+        if (applied[0] == null) {
+            return false;
+        }
+        changeNotifier.publish(created[0] ? WatchEvent.Type.ADDED : WatchEvent.Type.UPDATED, serviceName, instance);
+        return true;
+    }
+
+    @Override
+    public boolean deleteInstance(String serviceName, String instanceId) {
+        return delete(serviceName, instanceId, Long.MAX_VALUE);
+    }
+
+    /**
+     * Removes an instance unless the local copy was registered after the given time, so an expired
+     * copy received through gossip does not remove a newer registration.
+     *
+     * @return true if a live instance was removed
+     */
+    private boolean delete(String serviceName, String instanceId, long registeredNotAfter) {
+        long now = clock.getAsLong();
+        Entry[] removed = new Entry[1];
+
+        services.computeIfPresent(serviceName, (name, instances) -> {
+            Entry local = instances.get(instanceId);
+            if (local != null && local.instance().getLastUpdated() <= registeredNotAfter) {
+                removed[0] = instances.remove(instanceId);
+                instanceExpiry.cancel(serviceName + ":" + instanceId);
+            }
+            return instances.isEmpty() ? null : instances;
+        });
+
+        if (removed[0] == null) {
+            return false;
+        }
+        changes.remove(removed[0].version(), serviceName + ":" + instanceId);
+        changeNotifier.publish(
+            WatchEvent.Type.REMOVED, serviceName, ServiceInstance.newBuilder().setInstanceId(instanceId).build()
+        );
+
+        // An entry past its deadline but not yet expired by the wheel was already gone for callers
+        return removed[0].liveAt(now);
+    }
+
+    @Override
+    public List<ServiceInstance> getInstances(String serviceName) {
+        Map<String, Entry> instances = services.get(serviceName);
+        if (instances == null) {
+            return List.of();
+        }
+
+        long now = clock.getAsLong();
+        List<ServiceInstance> live = new ArrayList<>(instances.size());
+        for (Entry entry : instances.values()) {
+            if (entry.liveAt(now)) {
+                live.add(entry.instance());
+            }
+        }
+        return live;
+    }
+
+    @Override
+    public boolean refreshTtl(String serviceName, String instanceId) {
+        return extend(serviceName, instanceId, null, clock.getAsLong() + ttlSeconds * 1000L);
+    }
+
+    @Override
+    public Set<String> refreshTtls(List<String> instanceKeys) {
+        long expiresAt = clock.getAsLong() + ttlSeconds * 1000L;
+        Set<String> refreshed = new HashSet<>();
+        for (String key : instanceKeys) {
+            String[] parts = key.split(":", 2);
+            if (parts.length == 2 && extend(parts[0], parts[1], null, expiresAt)) {
+                refreshed.add(key);
+            }
+        }
+        return refreshed;
+    }
+
+    @Override
+    public String grantLease(long leaseTtlSeconds) {
+        long ttl = leaseTtlSeconds(leaseTtlSeconds);
+        String leaseId = UUID.randomUUID().toString();
+
+        long expiresAt = clock.getAsLong() + ttl * 1000;
+        leases.put(leaseId, new Lease(ttl, expiresAt, ConcurrentHashMap.newKeySet()));
+        leaseExpiry.schedule(leaseId, expiresAt);
+        return leaseId;
+    }
+
+    @Override
+    public long leaseTtlSeconds(long leaseTtlSeconds) {
+        return leaseTtlSeconds > 0 ? leaseTtlSeconds : ttlSeconds;
+    }
+
+    @Override
+    public long keepAliveLease(String leaseId) {
+        long now = clock.getAsLong();
+        Lease lease = leases.computeIfPresent(leaseId, (id, current) -> {
+            if (current.expiresAt() <= now) {
+                return current;
+            }
+            long expiresAt = now + current.ttlSeconds() * 1000;
+            leaseExpiry.schedule(id, expiresAt);
+            return new Lease(current.ttlSeconds(), expiresAt, current.instanceKeys());
+        });
+        if (lease == null || lease.expiresAt() <= now) {
+            return -1;
+        }
+
+        // Members deregistered or re-registered without this lease are dropped
+        long renewed = 0;
+        for (String key : lease.instanceKeys()) {
+            String[] parts = key.split(":", 2);
+            if (extend(parts[0], parts[1], leaseId, lease.expiresAt())) {
+                renewed++;
+            } else {
+                lease.instanceKeys().remove(key);
+            }
+        }
+        return renewed;
+    }
+
+    @Override
+    public int revokeLease(String leaseId) {
+        Lease lease = leases.remove(leaseId);
+        if (lease == null) {
+            return -1;
+        }
+        leaseExpiry.cancel(leaseId);
+
+        int removed = 0;
+        for (String key : lease.instanceKeys()) {
+            String[] parts = key.split(":", 2);
+            Map<String, Entry> instances = services.get(parts[0]);
+            Entry entry = instances != null ? instances.get(parts[1]) : null;
+            if (entry != null && leaseId.equals(entry.leaseId()) && deleteInstance(parts[0], parts[1])) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public long currentVersion() {
+        return version.get();
+    }
+
+    @Override
+    public StateDelta dumpChangesSince(long sinceVersion, int limit) {
+        long now = clock.getAsLong();
+        long lastVersion = sinceVersion;
+        int scanned = 0;
+
+        Map<String, ServiceInstance> changed = new HashMap<>();
+        for (Map.Entry<Long, String> change : changes.tailMap(sinceVersion, false).entrySet()) {
+            if (scanned++ >= limit) {
+                break;
+            }
+            lastVersion = change.getKey();
+
+            String key = change.getValue();
+            Entry entry = lookup(key);
+            if (entry != null && entry.version() == change.getKey() && entry.liveAt(now)) {
+                changed.put(key, withRemainingTtl(entry, now));
+            }
+        }
+
+        // Read after the scan so the current version never trails the versions returned
+        return new StateDelta(changed, Math.max(version.get(), lastVersion), lastVersion);
+    }
+
+    @Override
+    public Map<String, ServiceInstance> dumpServices(Predicate<String> serviceFilter, Predicate<String> keyFilter) {
+        long now = clock.getAsLong();
+        Map<String, ServiceInstance> dump = new HashMap<>();
+
+        services.forEach((serviceName, instances) -> {
+            if (!serviceFilter.test(serviceName)) {
+                return;
+            }
+            instances.forEach((instanceId, entry) -> {
+                String key = serviceName + ":" + instanceId;
+                if (entry.liveAt(now) && keyFilter.test(key)) {
+                    dump.put(key, withRemainingTtl(entry, now));
+                }
+            });
+        });
+        return dump;
+    }
+
+    @Override
+    public Set<String> serviceNames() {
+        return new HashSet<>(services.keySet());
+    }
+
+    @Override
+    public long instanceCount() {
+        // Includes instances that expired since the last tick
+        long count = 0;
+        for (Map<String, Entry> instances : services.values()) {
+            count += instances.size();
+        }
+        return count;
+    }
+
+    /**
+     * Expiries are published by the wheel, at most one tick after the deadline.
+     */
+    @Override
+    public boolean publishesAllChanges() {
+        return true;
+    }
+
+    /**
+     * Advances the expiry wheels, removing instances and leases whose deadline has passed
+     * and publishing a removal for each instance. Scheduled to run once per wheel tick.
+     */
+    @Scheduled(fixedDelayString = "${spring.registry.memory.tick-millis:100}")
+    public void expire() {
+        long now = clock.getAsLong();
+
+        for (String key : instanceExpiry.advance(now)) {
+            String[] parts = key.split(":", 2);
+            Entry[] removed = new Entry[1];
+
+            // Conditional remove, so an instance refreshed as its deadline passed survives
+            services.computeIfPresent(parts[0], (name, instances) -> {
+                Entry entry = instances.get(parts[1]);
+                if (entry != null && !entry.liveAt(now)) {
+                    removed[0] = instances.remove(parts[1]);
+                }
+                return instances.isEmpty() ? null : instances;
+            });
+
+            if (removed[0] != null) {
+                changes.remove(removed[0].version(), key);
+                changeNotifier.publish(
+                    WatchEvent.Type.REMOVED, parts[0], ServiceInstance.newBuilder().setInstanceId(parts[1]).build()
+                );
+            }
+        }
+
+        for (String leaseId : leaseExpiry.advance(now)) {
+            leases.computeIfPresent(leaseId, (id, lease) -> lease.expiresAt() <= now ? null : lease);
+        }
+    }
+
+    /**
+     * Stores an instance under a new version, creating its service map if needed.
+     *
+     * @return the entry that was replaced, or null if there was none
+     */
+    private Entry write(String serviceName, String instanceId, ServiceInstance instance, long expiresAt, String leaseId) {
+        String key = serviceName + ":" + instanceId;
+        Entry[] previous = new Entry[1];
+
+        services.compute(serviceName, (name, instances) -> {
+            ConcurrentHashMap<String, Entry> target = instances != null ? instances : new ConcurrentHashMap<>();
+            target.compute(instanceId, (id, local) -> {
+                previous[0] = local;
+                return newEntry(key, local, instance, expiresAt, leaseId);
+            });
+            return target;
+        });
+        return previous[0];
+    }
+
+    /**
+     * Builds the entry for a write, moves the instance to the end of the change index and
+     * schedules its expiry. Must be called while holding the instance's map slot.
+     */
+    private Entry newEntry(String key, Entry previous, ServiceInstance instance, long expiresAt, String leaseId) {
+        long next = relog(key, previous);
+        instanceExpiry.schedule(key, expiresAt);
+        return new Entry(instance, expiresAt, next, leaseId, clock.getAsLong());
+    }
+
+    /**
+     * Moves an instance to the end of the change index under a new version.
+     *
+     * @return the new version
+     */
+    private long relog(String key, Entry previous) {
+        long next = version.incrementAndGet();
+        if (previous != null) {
+            changes.remove(previous.version(), key);
+        }
+        changes.put(next, key);
+        return next;
+    }
+
+    /**
+     * Pushes back the expiry of a live instance, optionally only if it belongs to the given lease.
+     * Without a lease to match, a leased instance is aligned to its lease's expiry instead, since
+     * heartbeats must not keep it past the lease. Peers only learn of the new expiry from a delta,
+     * so the instance is logged again once half of its new TTL has passed since it was last logged.
+     *
+     * @return true if the instance was live and its expiry was updated
+     */
+    private boolean extend(String serviceName, String instanceId, String leaseId, long expiresAt) {
+        Map<String, Entry> instances = services.get(serviceName);
+        if (instances == null) {
+            return false;
+        }
+
+        long now = clock.getAsLong();
+        boolean[] extended = new boolean[1];
+        instances.computeIfPresent(instanceId, (id, entry) -> {
+            if (!entry.liveAt(now) || (leaseId != null && !leaseId.equals(entry.leaseId()))) {
+                return entry;
+            }
+            long until = expiresAt;
+            if (leaseId == null && entry.leaseId() != null) {
+                Lease lease = leases.get(entry.leaseId());
+                if (lease == null || lease.expiresAt() <= now) {
+                    return entry;
+                }
+                until = lease.expiresAt();
+            }
+            extended[0] = true;
+            String key = serviceName + ":" + instanceId;
+            instanceExpiry.schedule(key, until);
+            if ((now - entry.loggedAt()) * 2 >= until - now) {
+                return new Entry(entry.instance(), until, relog(key, entry), entry.leaseId(), now);
+            }
+            return new Entry(entry.instance(), until, entry.version(), entry.leaseId(), entry.loggedAt());
+        });
+        return extended[0];
+    }
+
+    private Entry lookup(String key) {
+        String[] parts = key.split(":", 2);
+        Map<String, Entry> instances = parts.length == 2 ? services.get(parts[0]) : null;
+        return instances != null ? instances.get(parts[1]) : null;
+    }
+
+    private static ServiceInstance withRemainingTtl(Entry entry, long now) {
+        long remaining = (entry.expiresAt() - now + 999) / 1000;
+        return entry.instance().toBuilder().setTtl(remaining).build();
+    }
+}
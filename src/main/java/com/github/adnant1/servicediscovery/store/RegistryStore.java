@@ -0,0 +1,239 @@
+package com.github.adnant1.servicediscovery.store;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+/**
+ * Storage engine behind the registry.
+ * Instances are addressed by service name and instance ID, or by their instance key
+ * ("service:instanceId") in bulk operations and gossip dumps. Every write is given a
+ * local version so delta gossip can ask for the instances changed since a version.
+ * The engine is chosen with spring.registry.store: "redis" (default) or "memory".
+ *
+ * The unary RPCs go through the async variants of the instance operations. Their defaults
+ * run the blocking method and return a completed future, which suits engines that never
+ * wait on I/O; engines backed by a remote store override them.
+ */
+public interface RegistryStore {
+
+    /**
+     * Service names the Redis engine's own keys ("registry:*", "service:*", "lease:*") would collide with.
+     * Rejected for every engine, since nodes of a cluster may use different ones.
+     */
+    Set<String> RESERVED_SERVICE_NAMES = Set.of("registry", "service", "lease");
+
+    /**
+     * Saves a service instance with the configured TTL.
+     *
+     * @param serviceName the name of the service
+     * @param instanceId the unique ID of the service instance
+     * @param ip the IP address of the service instance
+     * @param port the port number of the service instance
+     */
+    void saveInstance(String serviceName, String instanceId, String ip, int port);
+
+    /**
+     * Saves a service instance, optionally attached to a lease.
+     * A leased instance takes the lease's remaining TTL and is renewed and removed together with the lease.
+     *
+     * @param serviceName the name of the service
+     * @param instanceId the unique ID of the service instance
+     * @param ip the IP address of the service instance
+     * @param port the port number of the service instance
+     * @param leaseId the lease to attach the instance to, or null for an instance with its own TTL
+     * @return true if the instance was saved, false if the lease does not exist
+     */
+    boolean saveInstance(String serviceName, String instanceId, String ip, int port, String leaseId);
+
+    /**
+     * Merges service instances received through gossip into the local registry.
+     * Expired instances are removed; others are inserted or overwritten only if newer than the local copy.
+     *
+     * @param incoming a map of instance keys ("service:instanceId") to instances
+     * @return the number of instances inserted or overwritten
+     */
+    int mergeInstances(Map<String, ServiceInstance> incoming);
+
+    /**
+     * Deletes a service instance.
+     *
+     * @param serviceName the name of the service
+     * @param instanceId the unique ID of the service instance
+     * @return true if the instance was deleted, false if it did not exist
+     */
+    boolean deleteInstance(String serviceName, String instanceId);
+
+    /**
+     * Retrieves all live instances of a given service.
+     *
+     * @param serviceName the name of the service
+     * @return a list of type ServiceInstance
+     */
+    List<ServiceInstance> getInstances(String serviceName);
+
+    /**
+     * Refreshes the TTL of a service instance.
+     *
+     * @param serviceName the name of the service
+     * @param instanceId the unique ID of the service instance
+     * @return true if the TTL was refreshed, false if the instance does not exist
+     */
+    boolean refreshTtl(String serviceName, String instanceId);
+
+    /**
+     * Refreshes the TTLs of many service instances at once.
+     *
+     * @param instanceKeys the instance keys ("service:instanceId") to refresh, without duplicates
+     * @return the keys whose TTL was refreshed; the others do not exist
+     */
+    Set<String> refreshTtls(List<String> instanceKeys);
+
+    /**
+     * Saves a service instance without blocking the caller.
+     *
+     * @param serviceName the name of the service
+     * @param instanceId the unique ID of the service instance
+     * @param ip the IP address of the service instance
+     * @param port the port number of the service instance
+     * @param leaseId the lease to attach the instance to, or null for an instance with its own TTL
+     * @return a future completed with true if the instance was saved, false if the lease does not exist
+     */
+    default CompletableFuture<Boolean> saveInstanceAsync(String serviceName, String instanceId, String ip, int port,
+                                                         String leaseId) {
+        if (leaseId == null) {
+            saveInstance(serviceName, instanceId, ip, port);
+            return CompletableFuture.completedFuture(true);
+        }
+        return CompletableFuture.completedFuture(saveInstance(serviceName, instanceId, ip, port, leaseId));
+    }
+
+    /**
+     * Deletes a service instance without blocking the caller.
+     *
+     * @param serviceName the name of the service
+     * @param instanceId the unique ID of the service instance
+     * @return a future completed with true if the instance was deleted, false if it did not exist
+     */
+    default CompletableFuture<Boolean> deleteInstanceAsync(String serviceName, String instanceId) {
+        return CompletableFuture.completedFuture(deleteInstance(serviceName, instanceId));
+    }
+
+    /**
+     * Retrieves all live instances of a given service without blocking the caller.
+     *
+     * @param serviceName the name of the service
+     * @return a future completed with the instances
+     */
+    default CompletableFuture<List<ServiceInstance>> getInstancesAsync(String serviceName) {
+        return CompletableFuture.completedFuture(getInstances(serviceName));
+    }
+
+    /**
+     * Refreshes the TTL of a service instance without blocking the caller.
+     *
+     * @param serviceName the name of the service
+     * @param instanceId the unique ID of the service instance
+     * @return a future completed with true if the TTL was refreshed, false if the instance does not exist
+     */
+    default CompletableFuture<Boolean> refreshTtlAsync(String serviceName, String instanceId) {
+        return CompletableFuture.completedFuture(refreshTtl(serviceName, instanceId));
+    }
+
+    /**
+     * Grants a new lease. Instances registered with the lease share its TTL.
+     *
+     * @param leaseTtlSeconds the TTL of the lease, or 0 for the default instance TTL
+     * @return the ID of the new lease
+     */
+    String grantLease(long leaseTtlSeconds);
+
+    /**
+     * Resolves the TTL a lease is granted with.
+     *
+     * @param leaseTtlSeconds the requested TTL, or 0 for the default
+     * @return the TTL in seconds
+     */
+    long leaseTtlSeconds(long leaseTtlSeconds);
+
+    /**
+     * Renews a lease and every instance attached to it.
+     *
+     * @param leaseId the ID of the lease
+     * @return the number of instances renewed, or -1 if the lease does not exist
+     */
+    long keepAliveLease(String leaseId);
+
+    /**
+     * Revokes a lease and removes every instance attached to it.
+     *
+     * @param leaseId the ID of the lease
+     * @return the number of instances removed, or -1 if the lease did not exist
+     */
+    int revokeLease(String leaseId);
+
+    /**
+     * Returns the current value of the local version counter.
+     *
+     * @return the version of the most recent local write, or 0 if nothing was written yet
+     */
+    long currentVersion();
+
+    /**
+     * Dumps the service instances written locally after the given version, oldest first.
+     *
+     * @param sinceVersion the exclusive lower version bound
+     * @param limit the maximum number of instances to return
+     * @return the changed instances together with the version range they cover
+     */
+    StateDelta dumpChangesSince(long sinceVersion, int limit);
+
+    /**
+     * Dumps every live service instance, with its remaining TTL in seconds.
+     *
+     * @return a map of instance keys to instances
+     */
+    default Map<String, ServiceInstance> dumpServices() {
+        return dumpServices(serviceName -> true, instanceKey -> true);
+    }
+
+    /**
+     * Dumps the live service instances that pass both filters, with their remaining TTL in seconds.
+     * Services and instances that are filtered out are not read.
+     *
+     * @param serviceFilter selects the services to read, by name
+     * @param keyFilter selects the instances to read within those services, by instance key
+     * @return a map of instance keys to instances
+     */
+    Map<String, ServiceInstance> dumpServices(Predicate<String> serviceFilter, Predicate<String> keyFilter);
+
+    /**
+     * Returns the names of the services with registered instances, without reading the instances.
+     * A service whose last instance expired moments ago may still be listed.
+     *
+     * @return a set of service names
+     */
+    Set<String> serviceNames();
+
+    /**
+     * Counts the registered instances without reading them.
+     * Instances that expired moments ago may still be counted.
+     *
+     * @return the approximate number of instances in the registry
+     */
+    long instanceCount();
+
+    /**
+     * Whether every change to the registry, expiries included, is published to the ChangeNotifier,
+     * so that a service whose revision has not moved is known to be unchanged without reading it.
+     *
+     * @return true if no change goes unannounced
+     */
+    default boolean publishesAllChanges() {
+        return false;
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.adnant1.servicediscovery.store;
+
+import java.util.Map;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+/**
+ * Instances changed since a given local version.
+ *
+ * @param instances a map of instance keys to instances changed after the requested version
+ * @param currentVersion the local version counter at the time of the dump
+ * @param lastVersion the highest version covered by this delta; the next delta starts after it
+ */
+public record StateDelta(Map<String, ServiceInstance> instances, long currentVersion, long lastVersion) {}
@@ -0,0 +1,171 @@
+package com.github.adnant1.servicediscovery.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed hierarchical timing wheel that tracks one deadline per key.
+ *
+ * Level 0 has one bucket per tick. Each higher level has buckets 64 times wider, and its
+ * entries cascade down a level when the lower wheel wraps around to them. Scheduling,
+ * rescheduling and cancelling are O(1): the key's node is unlinked from its bucket and
+ * linked into a new one. Advancing costs one bucket drain per tick plus the cascades.
+ * Four levels cover 2^24 ticks, and later deadlines wait in the top level until they come
+ * into range.
+ *
+ * Deadlines are rounded up to whole ticks, so a key never expires before its deadline
+ * and at most one tick after it once the wheel has been advanced past it.
+ */
+final class TimingWheel<K> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (WHEEL_BITS * LEVELS);
+
+    /**
+     * A scheduled key, linked into a circular bucket list. Bucket heads are sentinels with no key.
+     */
+    private static final class Node<K> {
+        private final K key;
+        private long deadlineTick;
+        private Node<K> prev = this;
+        private Node<K> next = this;
+
+        private Node(K key) {
+            this.key = key;
+        }
+
+        private void linkBefore(Node<K> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+    }
+
+    private final Node<K>[][] buckets;
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+    private final long tickMillis;
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+
+        this.buckets = new Node[LEVELS][WHEEL_SIZE];
+        for (Node<K>[] level : buckets) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                level[i] = new Node<>(null);
+            }
+        }
+    }
+
+    /**
+     * Schedules a key to expire at the given time, replacing any earlier deadline for it.
+     */
+    synchronized void schedule(K key, long deadlineMillis) {
+        Node<K> node = nodes.computeIfAbsent(key, Node::new);
+        node.unlink();
+
+        // The current tick's bucket has already been drained, so the earliest slot is the next one
+        node.deadlineTick = Math.max(Math.ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        place(node);
+    }
+
+    /**
+     * Removes a key from the wheel.
+     *
+     * @return true if the key was scheduled
+     */
+    synchronized boolean cancel(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+        node.unlink();
+        return true;
+    }
+
+    synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Moves the wheel forward to the given time and removes every key whose deadline has passed.
+     *
+     * @return the expired keys, in deadline order by tick
+     */
+    synchronized List<K> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<K> expired = new ArrayList<>();
+
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // A level cascades each time every wheel below it wraps around
+            for (int level = 1; level < LEVELS && (currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0; level++) {
+                cascade(level);
+            }
+
+            Node<K> head = buckets[0][(int) (currentTick & WHEEL_MASK)];
+            while (head.next != head) {
+                Node<K> node = head.next;
+                node.unlink();
+                nodes.remove(node.key);
+                expired.add(node.key);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Re-places every node in the current bucket of a level, which moves them to lower levels.
+     */
+    private void cascade(int level) {
+        Node<K> head = buckets[level][index(currentTick, level)];
+
+        // Detach first, as a node beyond the top level's range can land back in this bucket
+        List<Node<K>> moved = new ArrayList<>();
+        while (head.next != head) {
+            Node<K> node = head.next;
+            node.unlink();
+            moved.add(node);
+        }
+        moved.forEach(this::place);
+    }
+
+    private void place(Node<K> node) {
+        long delta = node.deadlineTick - currentTick;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+
+        // Due nodes met during a cascade go in the current bucket, which is drained next
+        long tick = Math.max(node.deadlineTick, currentTick);
+        if (delta >= MAX_SPAN) {
+            tick = currentTick + MAX_SPAN - 1;
+        }
+        node.linkBefore(buckets[level][index(tick, level)]);
+    }
+
+    private static int index(long tick, int level) {
+        return (int) ((tick >> (WHEEL_BITS * level)) & WHEEL_MASK);
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.adnant1.servicediscovery.watch;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+
+/**
+ * Publishes registry membership changes to watchers.
+ * Every change gets a node-local, monotonically increasing revision and is kept in a
+ * bounded history, so a watcher that reconnects to the same node with its last seen
+ * revision can be sent only the events it missed. Revisions count up from the time the
+ * notifier was created, so a revision handed out before a restart or by another node
+ * is not mistaken for one of this notifier's, and the watcher gets a snapshot instead.
+ *
+ * Each service also has a revision for conditional Discover. Published changes raise it, and so
+ * does a read of the service that finds instances other than the last read at the same revision,
+ * which catches changes no event is published for, such as Redis expiries without keyspace notifications.
+ * Only services with instances keep a revision: the base revision stands for a service without any,
+ * so names that were only ever looked up take no space.
+ */
+@Component
+public class ChangeNotifier {
+
+    /**
+     * Receives change events. Called while the notifier holds its lock, so it must not block.
+     */
+    public interface Watcher {
+        void onEvent(WatchEvent event);
+    }
+
+    // Base of the last notifier created in this process, so two notifiers never share one
+    private static final AtomicLong lastRevisionBase = new AtomicLong();
+
+    private final int historySize;
+    private final Deque<WatchEvent> history = new ArrayDeque<>();
+    private final Map<String, Set<Watcher>> watchers = new ConcurrentHashMap<>();
+    private final Set<Watcher> listeners = new CopyOnWriteArraySet<>();
+    private final Map<String, Long> serviceRevisions = new ConcurrentHashMap<>();
+    // Service name -> fingerprint of the instances last read at the service's revision
+    private final Map<String, Observed> observed = new ConcurrentHashMap<>();
+    // Revisions start from the start time, with room for 2^20 changes per millisecond,
+    // so a revision handed out before a restart is not handed out again for different instances
+    private final long revisionBase = lastRevisionBase.updateAndGet(
+        last -> Math.max(last + (1L << 20), System.currentTimeMillis() << 20)
+    );
+    private long revision = 0;
+
+    public ChangeNotifier(@Value("${spring.watch.history-size:10000}") int historySize) {
+        this.historySize = historySize;
+    }
+
+    /**
+     * Records a change and delivers it to every watcher of the service.
+     *
+     * @param type the kind of change
+     * @param serviceName the name of the service that changed
+     * @param instance the instance that was added, updated or removed
+     */
+    public synchronized void publish(WatchEvent.Type type, String serviceName, ServiceInstance instance) {
+        WatchEvent event = WatchEvent.newBuilder()
+                .setType(type)
+                .setServiceName(serviceName)
+                .setInstance(instance)
+                .setRevision(revisionBase + ++revision)
+                .build();
+
+        history.addLast(event);
+        if (history.size() > historySize) {
+            history.removeFirst();
+        }
+
+        Set<Watcher> serviceWatchers = watchers.get(serviceName);
+        if (serviceWatchers != null) {
+            for (Watcher watcher : serviceWatchers) {
+                watcher.onEvent(event);
+            }
+        }
+        for (Watcher listener : listeners) {
+            listener.onEvent(event);
+        }
+
+        // Raised last, so whoever sees the new revision also sees the listeners' reaction to it
+        serviceRevisions.put(serviceName, revisionBase + revision);
+    }
+
+    /**
+     * Returns the revision of a service, which changes whenever one of its instances is added,
+     * updated or removed on this node. Revisions are local to the node.
+     *
+     * @param serviceName the name of the service
+     * @return the service's revision, always positive
+     */
+    public long serviceRevision(String serviceName) {
+        return serviceRevisions.getOrDefault(serviceName, revisionBase);
+    }
+
+    /**
+     * Checks instances read from the store against the last read at the same revision, and raises
+     * the service's revision if they differ, since the service then changed without an event.
+     *
+     * @param serviceName the name of the service
+     * @param revision the service's revision, read before the instances
+     * @param instances the instances read
+     * @return the revision to report the instances at
+     */
+    public long observe(String serviceName, long revision, List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return revision == revisionBase ? revision : forget(serviceName, revision);
+        }
+
+        long fingerprint = fingerprint(instances);
+        if (revision == revisionBase) {
+            return raise(serviceName, revision, fingerprint); // The base revision stands for no instances
+        }
+
+        Observed last = observed.get(serviceName);
+        if (last == null || last.revision() < revision) {
+            observed.put(serviceName, new Observed(revision, fingerprint));
+            return revision;
+        }
+        if (last.revision() > revision || last.fingerprint() == fingerprint) {
+            return revision;
+        }
+        return raise(serviceName, revision, fingerprint);
+    }
+
+    /**
+     * Raises a service's revision without publishing an event, for changes only known to have
+     * happened, such as another writer changing the service's keys in a shared Redis.
+     *
+     * @param serviceName the name of the service
+     */
+    public synchronized void touch(String serviceName) {
+        serviceRevisions.put(serviceName, revisionBase + ++revision);
+    }
+
+    private synchronized long raise(String serviceName, long revision, long fingerprint) {
+        if (serviceRevision(serviceName) != revision) {
+            // Changed meanwhile, so the change raised the revision already. The base revision
+            // would claim there are no instances, so a revision nobody holds is reported instead
+            return revision == revisionBase ? revisionBase + ++this.revision : revision;
+        }
+        long raised = revisionBase + ++this.revision;
+        observed.put(serviceName, new Observed(raised, fingerprint));
+        serviceRevisions.put(serviceName, raised);
+        return raised;
+    }
+
+    /**
+     * Drops the revision of a service found without instances, which then reports the base revision.
+     */
+    private synchronized long forget(String serviceName, long revision) {
+        if (serviceRevision(serviceName) != revision) {
+            return revision; // Changed meanwhile; the change raised the revision already
+        }
+        serviceRevisions.remove(serviceName);
+        observed.remove(serviceName);
+        return revisionBase;
+    }
+
+    /**
+     * Registers a watcher for every service, for in-process read models rather than clients.
+     * Listeners are not replayed any history.
+     *
+     * @param listener the watcher to register
+     */
+    public void listen(Watcher listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Registers a watcher for a set of services.
+     * If the requested revision is still covered by the history, the missed events are
+     * replayed to the watcher before any new event, and -1 is returned. Otherwise the
+     * caller has to send a snapshot, and the returned revision is the one it reflects.
+     *
+     * @param serviceNames the services to watch
+     * @param fromRevision the last revision the watcher has seen, or 0 for none
+     * @param watcher the watcher to register
+     * @return -1 if the watcher was resumed from history, otherwise the current revision, always positive
+     */
+    public synchronized long subscribe(Collection<String> serviceNames, long fromRevision, Watcher watcher) {
+        for (String serviceName : serviceNames) {
+            watchers.computeIfAbsent(serviceName, name -> new CopyOnWriteArraySet<>()).add(watcher);
+        }
+
+        if (!canResume(fromRevision)) {
+            return revisionBase + revision;
+        }
+
+        Set<String> wanted = new HashSet<>(serviceNames);
+        for (WatchEvent event : history) {
+            if (event.getRevision() > fromRevision && wanted.contains(event.getServiceName())) {
+                watcher.onEvent(event);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a watcher from every service it watches.
+     *
+     * @param watcher the watcher to remove
+     */
+    public synchronized void unsubscribe(Watcher watcher) {
+        watchers.values().forEach(set -> set.remove(watcher));
+        watchers.values().removeIf(Set::isEmpty);
+    }
+
+    /**
+     * Sums a hash of each instance, so the order the store returns them in does not matter.
+     * TTLs are left out, since they count down between reads.
+     */
+    private static long fingerprint(List<ServiceInstance> instances) {
+        long fingerprint = instances.size();
+        for (ServiceInstance instance : instances) {
+            long hash = instance.getInstanceId().hashCode();
+            hash = hash * 31 + instance.getIp().hashCode();
+            hash = hash * 31 + instance.getPort();
+            hash = hash * 31 + instance.getLastUpdated();
+            fingerprint += hash * 0x9e3779b97f4a7c15L;
+        }
+        return fingerprint;
+    }
+
+    private record Observed(long revision, long fingerprint) {}
+
+    /**
+     * A revision can be resumed if it was handed out by this notifier and every event after it
+     * is still in the history.
+     */
+    private boolean canResume(long fromRevision) {
+        long current = revisionBase + revision;
+        if (fromRevision < revisionBase || fromRevision > current) {
+            return false; // Not one of ours: from before a restart, from another node, or made up
+        }
+
+        long oldest = history.isEmpty() ? current + 1 : history.peekFirst().getRevision();
+        return fromRevision >= oldest - 1;
+    }
+}
@@ -0,0 +1,17 @@
+-- Removes an instance and its service set membership atomically.
+-- KEYS[1] = instance hash key ("<service>:<instanceId>")
+-- KEYS[2] = service set key ("service:<service>")
+-- KEYS[3] = service index key ("registry:services")
+-- KEYS[4] = change log key ("registry:changes")
+-- ARGV[1] = service name
+-- Returns 1 if the instance hash existed, 0 otherwise.
+
+local deleted = redis.call('DEL', KEYS[1])
+redis.call('SREM', KEYS[2], KEYS[1])
+redis.call('ZREM', KEYS[4], KEYS[1])
+
+if redis.call('SCARD', KEYS[2]) == 0 then
+    redis.call('SREM', KEYS[3], ARGV[1])
+end
+
+return deleted
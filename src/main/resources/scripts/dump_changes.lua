@@ -0,0 +1,41 @@
+-- Reads instances changed after a given version, oldest change first.
+-- KEYS[1] = version counter key ("registry:version")
+-- KEYS[2] = change log key ("registry:changes")
+-- ARGV[1] = exclusive lower version bound, ARGV[2] = maximum number of instances
+-- Returns the current version and the highest version scanned, followed by a flat
+-- array of key, ip, port, timestamp, ttl (s), version for each live changed instance.
+-- Change log entries whose instance hash has expired are removed.
+
+local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+local changed = redis.call('ZRANGEBYSCORE', KEYS[2], '(' .. ARGV[1], '+inf', 'WITHSCORES', 'LIMIT', 0, ARGV[2])
+local last = ARGV[1]
+local rows = {}
+local stale = {}
+
+for i = 1, #changed, 2 do
+    local key = changed[i]
+    last = changed[i + 1]
+    local fields = redis.call('HMGET', key, 'ip', 'port', 'timestamp')
+    local ttl = redis.call('TTL', key)
+    if fields[1] and fields[2] and ttl > 0 then
+        rows[#rows + 1] = key
+        rows[#rows + 1] = fields[1]
+        rows[#rows + 1] = fields[2]
+        rows[#rows + 1] = fields[3] or '0'
+        rows[#rows + 1] = tostring(ttl)
+        rows[#rows + 1] = changed[i + 1]
+    else
+        stale[#stale + 1] = key
+    end
+end
+
+for i = 1, #stale, 1000 do
+    redis.call('ZREM', KEYS[2], unpack(stale, i, math.min(i + 999, #stale)))
+end
+
+local result = { tostring(current), last }
+for i = 1, #rows do
+    result[#result + 1] = rows[i]
+end
+
+return result
@@ -0,0 +1,36 @@
+-- Reads every instance of a service in one round trip.
+-- KEYS[1] = service set key ("service:<name>")
+-- KEYS[2] = service index key ("registry:services")
+-- ARGV[1] = service name
+-- Returns a flat array of key, ip, port, timestamp for each live member and
+-- removes members whose instance hash has expired from the set, dropping the
+-- service from the index once it has no members left.
+-- Instance keys are read from the set rather than KEYS, so this assumes a
+-- standalone (non-cluster) Redis, like the rest of the registry.
+
+local members = redis.call('SMEMBERS', KEYS[1])
+local result = {}
+local stale = {}
+
+for _, key in ipairs(members) do
+    local fields = redis.call('HMGET', key, 'ip', 'port', 'timestamp')
+    if fields[1] and fields[2] then
+        result[#result + 1] = key
+        result[#result + 1] = fields[1]
+        result[#result + 1] = fields[2]
+        result[#result + 1] = fields[3] or '0'
+    else
+        stale[#stale + 1] = key
+    end
+end
+
+-- SREM in bounded batches to stay under Lua's unpack() limit
+for i = 1, #stale, 1000 do
+    redis.call('SREM', KEYS[1], unpack(stale, i, math.min(i + 999, #stale)))
+end
+
+if redis.call('SCARD', KEYS[1]) == 0 then
+    redis.call('SREM', KEYS[2], ARGV[1])
+end
+
+return result
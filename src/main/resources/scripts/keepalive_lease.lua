@@ -0,0 +1,44 @@
+-- Renews a lease and every instance attached to it in one call.
+-- KEYS[1] = lease key ("lease:<leaseId>"), holding the lease TTL in seconds
+-- KEYS[2] = lease instance set key ("lease:<leaseId>:instances")
+-- KEYS[3] = version counter key ("registry:version")
+-- KEYS[4] = change log key ("registry:changes")
+-- ARGV[1] = lease ID, ARGV[2] = current time (ms)
+-- Returns the number of instances renewed, or -1 if the lease does not exist.
+-- Members that were deregistered or re-registered without this lease are dropped from the set.
+-- As with heartbeats, a renewed instance is logged again under a new version once half of the
+-- lease TTL has passed since it was last logged or registered, so deltas carry it to peers.
+
+local ttl = redis.call('GET', KEYS[1])
+if not ttl then
+    return -1
+end
+
+redis.call('EXPIRE', KEYS[1], ttl)
+
+local now = tonumber(ARGV[2])
+local renewed = 0
+local detached = {}
+for _, key in ipairs(redis.call('SMEMBERS', KEYS[2])) do
+    if redis.call('HGET', key, 'lease') == ARGV[1] then
+        redis.call('EXPIRE', key, ttl)
+        renewed = renewed + 1
+
+        local fields = redis.call('HMGET', key, 'logged', 'timestamp')
+        local logged = math.max(tonumber(fields[1] or '0'), tonumber(fields[2] or '0'))
+        if (now - logged) * 2 >= tonumber(ttl) * 1000 then
+            local version = redis.call('INCR', KEYS[3])
+            redis.call('HSET', key, 'version', version, 'logged', ARGV[2])
+            redis.call('ZADD', KEYS[4], version, key)
+        end
+    else
+        detached[#detached + 1] = key
+    end
+end
+
+for i = 1, #detached, 1000 do
+    redis.call('SREM', KEYS[2], unpack(detached, i, math.min(i + 999, #detached)))
+end
+redis.call('EXPIRE', KEYS[2], ttl)
+
+return renewed
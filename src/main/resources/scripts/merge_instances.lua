@@ -0,0 +1,64 @@
+-- Applies a batch of gossiped instances atomically: newer incoming copies win, expired ones are removed.
+-- KEYS[1] = service index key ("registry:services")
+-- KEYS[2] = version counter key ("registry:version")
+-- KEYS[3] = change log key ("registry:changes")
+-- KEYS[2i+2], KEYS[2i+3] = instance hash key and service set key of the i-th instance
+-- ARGV[6i-5] .. ARGV[6i] = action ("merge" or "delete"), ip, port, timestamp (ms), ttl (s) and
+-- service name of the i-th instance
+-- Returns one result per instance, in order. For a merge: 2 if the instance was created, 1 if an
+-- older local copy was overwritten, 0 if the local copy is as new or newer. A copy of the same
+-- registration (equal timestamp) that expires later only moves the local expiry, since heartbeats
+-- refresh the TTL without writing a new version. For a delete: 1 if the instance was removed, 0 if it
+-- did not exist or the local copy is newer than the expired one.
+-- A newer copy detaches the local instance from its lease, since it was registered again on a peer
+-- and must not be renewed or revoked with the lease.
+
+local results = {}
+local count = (#KEYS - 3) / 2
+
+for i = 1, count do
+    local key = KEYS[2 * i + 2]
+    local serviceKey = KEYS[2 * i + 3]
+    local base = 6 * (i - 1)
+    local serviceName = ARGV[base + 6]
+
+    if ARGV[base + 1] == 'delete' then
+        local localTs = redis.call('HGET', key, 'timestamp')
+        if localTs and tonumber(localTs) > tonumber(ARGV[base + 4]) then
+            results[i] = 0 -- Registered again after the copy that expired
+        else
+            results[i] = redis.call('DEL', key)
+            redis.call('SREM', serviceKey, key)
+            redis.call('ZREM', KEYS[3], key)
+            if redis.call('SCARD', serviceKey) == 0 then
+                redis.call('SREM', KEYS[1], serviceName)
+            end
+        end
+    else
+        local localTs = redis.call('HGET', key, 'timestamp')
+        if localTs and tonumber(localTs) >= tonumber(ARGV[base + 4]) then
+            if tonumber(localTs) == tonumber(ARGV[base + 4]) and redis.call('TTL', key) < tonumber(ARGV[base + 5]) then
+                redis.call('EXPIRE', key, ARGV[base + 5])
+            end
+            results[i] = 0
+        else
+            local created = not localTs and redis.call('EXISTS', key) == 0
+            local version = redis.call('INCR', KEYS[2])
+
+            redis.call('HSET', key, 'ip', ARGV[base + 2], 'port', ARGV[base + 3], 'timestamp', ARGV[base + 4], 'version', version)
+            redis.call('HDEL', key, 'lease')
+            redis.call('EXPIRE', key, ARGV[base + 5])
+            redis.call('SADD', serviceKey, key)
+            redis.call('SADD', KEYS[1], serviceName)
+            redis.call('ZADD', KEYS[3], version, key)
+
+            if created then
+                results[i] = 2
+            else
+                results[i] = 1
+            end
+        end
+    end
+end
+
+return results
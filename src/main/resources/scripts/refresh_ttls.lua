@@ -0,0 +1,42 @@
+-- Refreshes the TTL of a batch of instances.
+-- KEYS[1] = version counter key ("registry:version")
+-- KEYS[2] = change log key ("registry:changes")
+-- KEYS[3..] = instance hash keys ("<service>:<instanceId>")
+-- ARGV[1] = ttl (s), ARGV[2] = current time (ms)
+-- Returns 1 or 0 per instance key, in order, depending on whether the instance was refreshed.
+-- A leased instance takes its lease's remaining TTL instead, since it lives as long as the lease
+-- and not as long as its heartbeats; it is not refreshed once the lease is gone.
+-- Peers only learn of a refresh through the change log, so a refreshed instance is logged again
+-- under a new version once half of its TTL has passed since it was last logged or registered.
+-- Lease keys are derived from the instance hashes, so this assumes a single Redis node.
+
+local now = tonumber(ARGV[2])
+local results = {}
+
+local function relog(key, ttl)
+    local fields = redis.call('HMGET', key, 'logged', 'timestamp')
+    local logged = math.max(tonumber(fields[1] or '0'), tonumber(fields[2] or '0'))
+    if (now - logged) * 2 >= ttl * 1000 then
+        local version = redis.call('INCR', KEYS[1])
+        redis.call('HSET', key, 'version', version, 'logged', ARGV[2])
+        redis.call('ZADD', KEYS[2], version, key)
+    end
+end
+
+for i = 3, #KEYS do
+    local key = KEYS[i]
+    local ttl = tonumber(ARGV[1])
+    local lease = redis.call('HGET', key, 'lease')
+    if lease then
+        ttl = redis.call('TTL', 'lease:' .. lease)
+    end
+
+    if ttl > 0 and redis.call('EXPIRE', key, ttl) == 1 then
+        relog(key, ttl)
+        results[i - 2] = 1
+    else
+        results[i - 2] = 0
+    end
+end
+
+return results
@@ -0,0 +1,28 @@
+-- Revokes a lease and removes every instance attached to it.
+-- KEYS[1] = lease key ("lease:<leaseId>")
+-- KEYS[2] = lease instance set key ("lease:<leaseId>:instances")
+-- KEYS[3] = service index key ("registry:services")
+-- KEYS[4] = change log key ("registry:changes")
+-- ARGV[1] = lease ID
+-- Returns 1 or 0 depending on whether the lease existed, followed by the removed instance keys.
+-- Service set keys are derived from the instance keys, so this assumes a single Redis node.
+
+local result = { tostring(redis.call('DEL', KEYS[1])) }
+
+for _, key in ipairs(redis.call('SMEMBERS', KEYS[2])) do
+    if redis.call('HGET', key, 'lease') == ARGV[1] then
+        local service = string.match(key, '^([^:]+):')
+        local serviceKey = 'service:' .. service
+
+        redis.call('DEL', key)
+        redis.call('SREM', serviceKey, key)
+        redis.call('ZREM', KEYS[4], key)
+        if redis.call('SCARD', serviceKey) == 0 then
+            redis.call('SREM', KEYS[3], service)
+        end
+        result[#result + 1] = key
+    end
+end
+
+redis.call('DEL', KEYS[2])
+return result
@@ -0,0 +1,41 @@
+-- Registers or updates an instance atomically.
+-- KEYS[1] = instance hash key ("<service>:<instanceId>")
+-- KEYS[2] = service set key ("service:<service>")
+-- KEYS[3] = service index key ("registry:services")
+-- KEYS[4] = version counter key ("registry:version")
+-- KEYS[5] = change log key ("registry:changes")
+-- KEYS[6] = lease key ("lease:<leaseId>"), only when attaching to a lease
+-- KEYS[7] = lease instance set key ("lease:<leaseId>:instances"), only when attaching to a lease
+-- ARGV[1] = ip, ARGV[2] = port, ARGV[3] = timestamp (ms), ARGV[4] = ttl (s), ARGV[5] = service name
+-- ARGV[6] = lease ID, optional; a leased instance expires together with its lease
+-- Returns 1 if the instance was created, 0 if an existing one was overwritten,
+-- -1 if the lease does not exist.
+
+local ttl = tonumber(ARGV[4])
+if ARGV[6] then
+    ttl = redis.call('TTL', KEYS[6])
+    if ttl <= 0 then
+        return -1
+    end
+end
+
+local created = redis.call('EXISTS', KEYS[1]) == 0
+local version = redis.call('INCR', KEYS[4])
+
+redis.call('HSET', KEYS[1], 'ip', ARGV[1], 'port', ARGV[2], 'timestamp', ARGV[3], 'version', version)
+if ARGV[6] then
+    redis.call('HSET', KEYS[1], 'lease', ARGV[6])
+    redis.call('SADD', KEYS[7], KEYS[1])
+    redis.call('EXPIRE', KEYS[7], ttl)
+else
+    redis.call('HDEL', KEYS[1], 'lease')
+end
+redis.call('EXPIRE', KEYS[1], ttl)
+redis.call('SADD', KEYS[2], KEYS[1])
+redis.call('SADD', KEYS[3], ARGV[5])
+redis.call('ZADD', KEYS[5], version, KEYS[1])
+
+if created then
+    return 1
+end
+return 0
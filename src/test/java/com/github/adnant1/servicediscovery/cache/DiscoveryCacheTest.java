@@ -0,0 +1,99 @@
+package com.github.adnant1.servicediscovery.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+/**
+ * Unit tests for the in-process discovery cache.
+ */
+public class DiscoveryCacheTest {
+
+    private static final ServiceInstance INSTANCE = ServiceInstance.newBuilder()
+            .setInstanceId("instance-1")
+            .setIp("10.0.0.1")
+            .setPort(8080)
+            .build();
+
+    @Test
+    void testHitAfterMiss() {
+        // Arrange
+        DiscoveryCache cache = new DiscoveryCache(10, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        cache.get("auth-service", name -> { loads.incrementAndGet(); return List.of(INSTANCE); });
+        List<ServiceInstance> cached = cache.get("auth-service", name -> { loads.incrementAndGet(); return List.of(); });
+
+        // Assert
+        assertEquals(1, loads.get());
+        assertEquals(List.of(INSTANCE), cached);
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void testInvalidateForcesReload() {
+        // Arrange
+        DiscoveryCache cache = new DiscoveryCache(10, 60_000);
+        cache.get("auth-service", name -> List.of(INSTANCE));
+
+        // Act
+        cache.invalidate("auth-service");
+        List<ServiceInstance> reloaded = cache.get("auth-service", name -> List.of());
+
+        // Assert
+        assertEquals(0, reloaded.size());
+        assertEquals(2, cache.stats().misses());
+        assertEquals(1, cache.stats().invalidations());
+    }
+
+    @Test
+    void testInvalidationOnlyDiscardsLoadsOfItsService() {
+        // Arrange
+        DiscoveryCache cache = new DiscoveryCache(10, 60_000);
+
+        // Act: each load races a write, one to another service and one to its own
+        cache.get("auth-service", name -> { cache.invalidate("billing-service"); return List.of(INSTANCE); });
+        cache.get("billing-service", name -> { cache.invalidate("billing-service"); return List.of(INSTANCE); });
+
+        // Assert
+        assertEquals(1, cache.stats().size());
+        assertEquals(List.of(INSTANCE), cache.get("auth-service", name -> List.of()));
+    }
+
+    @Test
+    void testEvictsWhenFull() {
+        // Arrange
+        DiscoveryCache cache = new DiscoveryCache(2, 60_000);
+
+        // Act
+        cache.get("a", name -> List.of(INSTANCE));
+        cache.get("b", name -> List.of(INSTANCE));
+        cache.get("c", name -> List.of(INSTANCE));
+
+        // Assert
+        assertEquals(2, cache.stats().size());
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void testExpiredEntryIsReloaded() {
+        // Arrange
+        DiscoveryCache cache = new DiscoveryCache(10, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        cache.get("auth-service", name -> { loads.incrementAndGet(); return List.of(INSTANCE); });
+        cache.get("auth-service", name -> { loads.incrementAndGet(); return List.of(INSTANCE); });
+
+        // Assert
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.stats().hits());
+    }
+}
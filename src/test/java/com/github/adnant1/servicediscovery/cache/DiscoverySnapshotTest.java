@@ -0,0 +1,91 @@
+package com.github.adnant1.servicediscovery.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.adnant1.servicediscovery.registry.DiscoverResponse;
+import com.github.adnant1.servicediscovery.store.InMemoryRegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+/**
+ * Unit tests for the copy-on-write Discover snapshot over the in-process store.
+ */
+public class DiscoverySnapshotTest {
+
+    private InMemoryRegistryStore store;
+    private DiscoverySnapshot snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        ChangeNotifier notifier = new ChangeNotifier(100);
+        this.store = new InMemoryRegistryStore(notifier, 30, 100);
+        this.snapshot = new DiscoverySnapshot(store, notifier, true, 10, 5000);
+    }
+
+    @Test
+    void testNothingIsServedBeforeTheFirstRebuild() {
+        // Act & Assert
+        assertNull(snapshot.view("auth-service"));
+        assertEquals(0, snapshot.version());
+    }
+
+    @Test
+    void testRebuildSerializesEveryService() throws Exception {
+        // Arrange
+        store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        store.saveInstance("auth-service", "instance-2", "10.0.0.2", 8080);
+        store.saveInstance("payment-service", "instance-1", "10.0.0.3", 9090);
+
+        // Act
+        snapshot.rebuild();
+
+        // Assert
+        DiscoverResponse response = DiscoverResponse.parseFrom(snapshot.view("auth-service").responseBytes());
+        assertEquals(2, response.getInstancesCount());
+        assertEquals(2, response.getTotalSize());
+        assertEquals("instance-1", response.getInstances(0).getInstanceId(), "Instances are sorted by ID");
+        assertEquals(1, snapshot.view("payment-service").instances().size());
+        assertTrue(snapshot.view("unknown-service").instances().isEmpty());
+    }
+
+    @Test
+    void testChangesAreAppliedToANewVersion() throws Exception {
+        // Arrange
+        store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        store.saveInstance("payment-service", "instance-1", "10.0.0.3", 9090);
+        snapshot.rebuild();
+        long version = snapshot.version();
+        byte[] unchanged = snapshot.view("payment-service").responseBytes();
+
+        // Act
+        store.saveInstance("auth-service", "instance-2", "10.0.0.2", 8080);
+        store.deleteInstance("auth-service", "instance-1");
+        snapshot.applyChanges();
+
+        // Assert
+        assertEquals(version + 1, snapshot.version());
+        DiscoverResponse response = DiscoverResponse.parseFrom(snapshot.view("auth-service").responseBytes());
+        assertEquals(1, response.getInstancesCount());
+        assertEquals("instance-2", response.getInstances(0).getInstanceId());
+        assertSame(unchanged, snapshot.view("payment-service").responseBytes(), "Untouched services are shared");
+    }
+
+    @Test
+    void testRemovedServicesLeaveTheSnapshot() {
+        // Arrange
+        store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        snapshot.rebuild();
+
+        // Act
+        store.deleteInstance("auth-service", "instance-1");
+        snapshot.applyChanges();
+
+        // Assert
+        assertTrue(snapshot.view("auth-service").instances().isEmpty());
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.adnant1.servicediscovery.gossip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.adnant1.servicediscovery.identity.NodeIdentityProvider;
+import com.github.adnant1.servicediscovery.registry.MemberUpdate;
+
+/**
+ * Unit tests for the SWIM membership list.
+ */
+public class MembershipTest {
+
+    private static final String PEER = "node-b:50051-bbbbbb";
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private Membership membership;
+
+    @BeforeEach
+    public void setUp() {
+        membership = new Membership(new NodeIdentityProvider(50051), 5000, 60000, 1, 8, clock::get);
+    }
+
+    private static MemberUpdate update(String nodeId, MemberUpdate.State state, long incarnation) {
+        return MemberUpdate.newBuilder()
+                .setNodeId(nodeId)
+                .setState(state)
+                .setIncarnation(incarnation)
+                .build();
+    }
+
+    @Test
+    void testSuspectIsDeclaredDeadAfterTimeout() {
+        // Arrange
+        membership.apply(List.of(update(PEER, MemberUpdate.State.ALIVE, 0)));
+        membership.suspect(PEER);
+
+        // Act
+        clock.addAndGet(5000);
+        membership.expire();
+
+        // Assert
+        assertEquals(1, membership.count(MemberUpdate.State.DEAD));
+        assertTrue(membership.aliveMembers().isEmpty());
+    }
+
+    @Test
+    void testHigherIncarnationRefutesSuspicion() {
+        // Arrange
+        membership.apply(List.of(update(PEER, MemberUpdate.State.ALIVE, 0)));
+        membership.suspect(PEER);
+
+        // Act
+        membership.apply(List.of(update(PEER, MemberUpdate.State.ALIVE, 0)));
+        assertEquals(1, membership.count(MemberUpdate.State.SUSPECT), "Same incarnation does not refute");
+        membership.apply(List.of(update(PEER, MemberUpdate.State.ALIVE, 1)));
+
+        // Assert
+        assertEquals(List.of(PEER), membership.aliveMembers());
+    }
+
+    @Test
+    void testSuspicionAboutSelfRaisesIncarnation() {
+        // Arrange
+        String self = membership.selfId();
+
+        // Act
+        membership.apply(List.of(update(self, MemberUpdate.State.SUSPECT, 0)));
+
+        // Assert
+        assertEquals(1, membership.incarnation());
+        MemberUpdate announced = membership.piggyback().get(0);
+        assertEquals(self, announced.getNodeId());
+        assertEquals(MemberUpdate.State.ALIVE, announced.getState());
+        assertEquals(1, announced.getIncarnation());
+    }
+
+    @Test
+    void testUpdatesArePiggybackedALimitedNumberOfTimes() {
+        // Arrange
+        membership.apply(List.of(update(PEER, MemberUpdate.State.ALIVE, 0)));
+
+        // Act
+        int sent = 0;
+        for (int i = 0; i < 10; i++) {
+            sent += (int) membership.piggyback().stream().filter(u -> u.getNodeId().equals(PEER)).count();
+        }
+
+        // Assert: retransmit-mult 1 with one member allows ceil(log2(3)) = 2 transmissions
+        assertEquals(2, sent);
+    }
+
+    @Test
+    void testProbeOrderVisitsEveryMemberOncePerPass() {
+        // Arrange
+        membership.apply(List.of(
+            update("node-b:50051-bbbbbb", MemberUpdate.State.ALIVE, 0),
+            update("node-c:50051-cccccc", MemberUpdate.State.ALIVE, 0),
+            update("node-d:50051-dddddd", MemberUpdate.State.ALIVE, 0)
+        ));
+
+        // Act
+        List<String> pass = List.of(membership.nextProbeTarget(), membership.nextProbeTarget(), membership.nextProbeTarget());
+
+        // Assert
+        assertEquals(3, pass.stream().distinct().count());
+    }
+}
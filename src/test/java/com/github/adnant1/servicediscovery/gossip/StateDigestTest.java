@@ -0,0 +1,90 @@
+package com.github.adnant1.servicediscovery.gossip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+
+/**
+ * Unit tests for the anti-entropy hash tree.
+ */
+public class StateDigestTest {
+
+    private static ServiceInstance instance(String id, long lastUpdated) {
+        return ServiceInstance.newBuilder()
+                .setInstanceId(id)
+                .setIp("10.0.0.1")
+                .setPort(8080)
+                .setLastUpdated(lastUpdated)
+                .build();
+    }
+
+    private static Map<String, ServiceInstance> registry(int services, int instancesPerService) {
+        Map<String, ServiceInstance> state = new HashMap<>();
+        for (int s = 0; s < services; s++) {
+            for (int i = 0; i < instancesPerService; i++) {
+                state.put("svc-" + s + ":inst-" + i, instance("inst-" + i, 1000L + i));
+            }
+        }
+        return state;
+    }
+
+    @Test
+    void testIdenticalStatesHaveNoDifferences() {
+        // Arrange
+        StateDigest local = StateDigest.of(registry(20, 10), 16, 8);
+        StateDigest remote = StateDigest.of(registry(20, 10), 16, 8);
+
+        // Act
+        Set<Integer> differing = local.differingServiceBuckets(remote.serviceHashes());
+
+        // Assert
+        assertTrue(differing.isEmpty());
+    }
+
+    @Test
+    void testSingleUpdateIsolatedToOneLeaf() {
+        // Arrange
+        Map<String, ServiceInstance> localState = registry(20, 10);
+        Map<String, ServiceInstance> remoteState = registry(20, 10);
+        remoteState.put("svc-3:inst-4", instance("inst-4", 9999L));
+
+        StateDigest local = StateDigest.of(localState, 16, 8);
+        StateDigest remote = StateDigest.of(remoteState, 16, 8);
+
+        // Act
+        Set<Integer> buckets = remote.differingServiceBuckets(local.serviceHashes());
+        Set<Integer> leaves = local.differingLeaves(buckets, remote.leafHashes(buckets));
+        Map<String, ServiceInstance> pulled = remote.select(remoteState, leaves);
+
+        // Assert
+        assertEquals(1, buckets.size());
+        assertEquals(Set.of(local.leafOf("svc-3:inst-4")), leaves);
+        assertTrue(pulled.containsKey("svc-3:inst-4"));
+        assertEquals(9999L, pulled.get("svc-3:inst-4").getLastUpdated());
+    }
+
+    @Test
+    void testMissingInstanceIsDetected() {
+        // Arrange
+        Map<String, ServiceInstance> localState = registry(5, 5);
+        Map<String, ServiceInstance> remoteState = registry(5, 5);
+        remoteState.remove("svc-1:inst-2");
+
+        StateDigest local = StateDigest.of(localState, 4, 4);
+        StateDigest remote = StateDigest.of(remoteState, 4, 4);
+
+        // Act
+        Set<Integer> buckets = remote.differingServiceBuckets(local.serviceHashes());
+        Set<Integer> leaves = local.differingLeaves(buckets, remote.leafHashes(buckets));
+
+        // Assert
+        assertTrue(local.select(localState, leaves).containsKey("svc-1:inst-2"));
+    }
+}
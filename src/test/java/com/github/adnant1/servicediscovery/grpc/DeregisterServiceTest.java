@@ -12,22 +12,28 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import com.github.adnant1.servicediscovery.TestStreamObserver;
-import com.github.adnant1.servicediscovery.redis.RedisRepository;
+import com.github.adnant1.servicediscovery.heartbeat.HeartbeatBatcher;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
 import com.github.adnant1.servicediscovery.registry.DeregisterRequest;
 import com.github.adnant1.servicediscovery.registry.DeregisterResponse;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
 
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 
 public class DeregisterServiceTest {
     
-    private RedisRepository redisRepository;
+    private RegistryStore registryStore;
     private RegistryServiceImpl service;
 
     @BeforeEach
     public void setUp() {
-        this.redisRepository = Mockito.mock(RedisRepository.class);
-        this.service = new RegistryServiceImpl(redisRepository);
+        // Real default methods, so the async store calls reach the stubbed blocking ones
+        this.registryStore = Mockito.mock(RegistryStore.class, Mockito.CALLS_REAL_METHODS);
+        this.service = new RegistryServiceImpl(registryStore, new ChangeNotifier(100),
+            new HeartbeatBatcher(registryStore, 100, 1000),
+            Mockito.mock(RegistryForwarder.class), 100, 100, 1000);
     }
 
     @Test
@@ -38,7 +44,7 @@ public class DeregisterServiceTest {
                 .setInstanceId("instance-1")
                 .build();
 
-        Mockito.when(redisRepository.deleteInstance("auth-service", "instance-1"))
+        Mockito.when(registryStore.deleteInstance("auth-service", "instance-1"))
                 .thenReturn(true);
 
         TestStreamObserver<DeregisterResponse> observer = new TestStreamObserver<>();
@@ -64,7 +70,7 @@ public class DeregisterServiceTest {
                 .setInstanceId("does-not-exist")
                 .build();
 
-        Mockito.when(redisRepository.deleteInstance("auth-service", "does-not-exist"))
+        Mockito.when(registryStore.deleteInstance("auth-service", "does-not-exist"))
                 .thenReturn(false);
 
         TestStreamObserver<DeregisterResponse> observer = new TestStreamObserver<>();
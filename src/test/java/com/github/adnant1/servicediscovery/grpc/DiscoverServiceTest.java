@@ -1,34 +1,48 @@
 package com.github.adnant1.servicediscovery.grpc;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import com.github.adnant1.servicediscovery.TestStreamObserver;
-import com.github.adnant1.servicediscovery.redis.RedisRepository;
+import com.github.adnant1.servicediscovery.heartbeat.HeartbeatBatcher;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
 import com.github.adnant1.servicediscovery.registry.DiscoverRequest;
 import com.github.adnant1.servicediscovery.registry.DiscoverResponse;
 import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
 
 import io.grpc.StatusRuntimeException;
 
 public class DiscoverServiceTest {
     
-    private RedisRepository redisRepository;
+    private RegistryStore registryStore;
     private RegistryServiceImpl service;
 
     @BeforeEach
     public void setUp() {
-        this.redisRepository = Mockito.mock(RedisRepository.class);
-        this.service = new RegistryServiceImpl(redisRepository);
+        // Real default methods, so the async store calls reach the stubbed blocking ones
+        this.registryStore = Mockito.mock(RegistryStore.class, Mockito.CALLS_REAL_METHODS);
+        this.service = new RegistryServiceImpl(registryStore, new ChangeNotifier(100),
+            new HeartbeatBatcher(registryStore, 100, 1000),
+            Mockito.mock(RegistryForwarder.class), 100, 100, 1000);
     }
 
     @Test
@@ -40,7 +54,7 @@ public class DiscoverServiceTest {
                 .setPort(8080)
                 .build();
         
-        Mockito.when(redisRepository.getInstances("auth-service"))
+        Mockito.when(registryStore.getInstances("auth-service"))
             .thenReturn(List.of(instance));
         
         DiscoverRequest request = DiscoverRequest.newBuilder()
@@ -67,7 +81,7 @@ public class DiscoverServiceTest {
     @Test
     void testDiscoverNoInstances() {
         // Create
-        Mockito.when(redisRepository.getInstances("auth-service"))
+        Mockito.when(registryStore.getInstances("auth-service"))
             .thenReturn(List.of());
         
         DiscoverRequest request = DiscoverRequest.newBuilder()
@@ -111,4 +125,232 @@ public class DiscoverServiceTest {
         assertEquals(io.grpc.Status.INVALID_ARGUMENT.getCode(), statusEx.getStatus().getCode());
         assertTrue(statusEx.getStatus().getDescription().contains("Service name cannot be empty."));
     }
+
+    @Test
+    void testDiscoverRejectedWhenTooManyInFlight() {
+        // Create
+        RegistryServiceImpl limited = new RegistryServiceImpl(registryStore, new ChangeNotifier(100),
+            new HeartbeatBatcher(registryStore, 100, 1000),
+            Mockito.mock(RegistryForwarder.class), 100, 1, 1000);
+
+        CompletableFuture<List<ServiceInstance>> pending = new CompletableFuture<>();
+        Mockito.doReturn(pending).when(registryStore).getInstancesAsync("auth-service");
+
+        DiscoverRequest request = DiscoverRequest.newBuilder()
+                .setServiceName("auth-service")
+                .build();
+
+        TestStreamObserver<DiscoverResponse> first = new TestStreamObserver<>();
+        TestStreamObserver<DiscoverResponse> second = new TestStreamObserver<>();
+
+        // Act
+        limited.discover(request, first);
+        limited.discover(request, second);
+        pending.complete(List.of());
+
+        // Assert
+        assertTrue(first.isCompleted());
+        assertNull(first.getError());
+
+        assertInstanceOf(StatusRuntimeException.class, second.getError());
+        assertEquals(io.grpc.Status.RESOURCE_EXHAUSTED.getCode(),
+            ((StatusRuntimeException) second.getError()).getStatus().getCode());
+    }
+
+    private List<ServiceInstance> instances(int count) {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            instances.add(ServiceInstance.newBuilder()
+                    .setInstanceId(String.format("instance-%04d", i))
+                    .setIp("10.0." + (i / 256) + "." + (i % 256))
+                    .setPort(8080)
+                    .build());
+        }
+        return instances;
+    }
+
+    private DiscoverResponse discover(DiscoverRequest request) {
+        TestStreamObserver<DiscoverResponse> observer = new TestStreamObserver<>();
+        service.discover(request, observer);
+        assertNull(observer.getError(), "No error should occur");
+        return observer.getResponse();
+    }
+
+    @Test
+    void testDiscoverPagesThroughAllInstances() {
+        // Create
+        Mockito.when(registryStore.getInstances("auth-service")).thenReturn(instances(250));
+
+        // Act
+        Set<String> seen = new HashSet<>();
+        String token = "";
+        int pages = 0;
+        do {
+            DiscoverResponse response = discover(DiscoverRequest.newBuilder()
+                    .setServiceName("auth-service")
+                    .setLimit(100)
+                    .setPageToken(token)
+                    .build());
+            assertEquals(250, response.getTotalSize());
+            assertTrue(response.getInstancesCount() <= 100);
+            response.getInstancesList().forEach(instance -> seen.add(instance.getInstanceId()));
+            token = response.getNextPageToken();
+            pages++;
+        } while (!token.isEmpty());
+
+        // Assert
+        assertEquals(3, pages);
+        assertEquals(250, seen.size());
+    }
+
+    @Test
+    void testDiscoverCapsUnpagedResponsesAtTheMaximumPageSize() {
+        // Create
+        RegistryServiceImpl capped = new RegistryServiceImpl(registryStore, new ChangeNotifier(100),
+            new HeartbeatBatcher(registryStore, 100, 1000),
+            Mockito.mock(RegistryForwarder.class), 100, 100, 50);
+        Mockito.when(registryStore.getInstances("auth-service")).thenReturn(instances(120));
+
+        TestStreamObserver<DiscoverResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        capped.discover(DiscoverRequest.newBuilder().setServiceName("auth-service").setLimit(500).build(), observer);
+
+        // Assert
+        assertEquals(50, observer.getResponse().getInstancesCount());
+        assertFalse(observer.getResponse().getNextPageToken().isEmpty());
+    }
+
+    @Test
+    void testDeterministicSubsetsAreStableAndBalanced() {
+        // Create
+        Mockito.when(registryStore.getInstances("auth-service")).thenReturn(instances(100));
+        Map<String, Integer> connections = new HashMap<>();
+
+        // Act
+        for (int client = 0; client < 100; client++) {
+            DiscoverRequest request = DiscoverRequest.newBuilder()
+                    .setServiceName("auth-service")
+                    .setLimit(10)
+                    .setSubsetMode(DiscoverRequest.SubsetMode.DETERMINISTIC)
+                    .setClientId(String.valueOf(client))
+                    .build();
+            DiscoverResponse response = discover(request);
+
+            assertEquals(10, response.getInstancesCount());
+            assertEquals(response.getInstancesList(), discover(request).getInstancesList(), "Same client, same subset");
+            response.getInstancesList().forEach(instance -> connections.merge(instance.getInstanceId(), 1, Integer::sum));
+        }
+
+        // Assert: clients numbered 0..99 spread exactly evenly
+        assertEquals(100, connections.size());
+        connections.values().forEach(count -> assertEquals(10, count));
+    }
+
+    @Test
+    void testRandomSubsetIsBounded() {
+        // Create
+        Mockito.when(registryStore.getInstances("auth-service")).thenReturn(instances(500));
+
+        // Act
+        DiscoverResponse response = discover(DiscoverRequest.newBuilder()
+                .setServiceName("auth-service")
+                .setLimit(5)
+                .setSubsetMode(DiscoverRequest.SubsetMode.RANDOM)
+                .build());
+
+        // Assert
+        assertEquals(5, response.getInstancesCount());
+        assertEquals(5, response.getInstancesList().stream().distinct().count());
+        assertTrue(response.getNextPageToken().isEmpty());
+    }
+
+    @Test
+    void testDiscoverInvalidPageToken() {
+        // Create
+        DiscoverRequest request = DiscoverRequest.newBuilder()
+                .setServiceName("auth-service")
+                .setPageToken("not a token!")
+                .build();
+
+        TestStreamObserver<DiscoverResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.discover(request, observer);
+
+        // Assert
+        assertInstanceOf(StatusRuntimeException.class, observer.getError());
+        assertEquals(io.grpc.Status.INVALID_ARGUMENT.getCode(),
+            ((StatusRuntimeException) observer.getError()).getStatus().getCode());
+    }
+
+    @Test
+    void testDiscoverNotModifiedUntilTheInstancesChange() {
+        // Create
+        ChangeNotifier notifier = new ChangeNotifier(100);
+        RegistryServiceImpl conditional = new RegistryServiceImpl(registryStore, notifier,
+            new HeartbeatBatcher(registryStore, 100, 1000),
+            Mockito.mock(RegistryForwarder.class), 100, 100, 1000);
+        Mockito.when(registryStore.getInstances("auth-service")).thenReturn(instances(3));
+
+        TestStreamObserver<DiscoverResponse> first = new TestStreamObserver<>();
+        TestStreamObserver<DiscoverResponse> second = new TestStreamObserver<>();
+        TestStreamObserver<DiscoverResponse> third = new TestStreamObserver<>();
+        TestStreamObserver<DiscoverResponse> fourth = new TestStreamObserver<>();
+
+        // Act
+        conditional.discover(DiscoverRequest.newBuilder().setServiceName("auth-service").build(), first);
+        long revision = first.getResponse().getRevision();
+        conditional.discover(DiscoverRequest.newBuilder()
+                .setServiceName("auth-service")
+                .setIfRevisionNot(revision)
+                .build(), second);
+        notifier.publish(WatchEvent.Type.REMOVED, "auth-service", ServiceInstance.getDefaultInstance());
+        conditional.discover(DiscoverRequest.newBuilder()
+                .setServiceName("auth-service")
+                .setIfRevisionNot(revision)
+                .build(), third);
+        long published = third.getResponse().getRevision();
+        // An instance expires without an event, e.g. Redis without keyspace notifications
+        Mockito.when(registryStore.getInstances("auth-service")).thenReturn(instances(2));
+        conditional.discover(DiscoverRequest.newBuilder()
+                .setServiceName("auth-service")
+                .setIfRevisionNot(published)
+                .build(), fourth);
+
+        // Assert
+        assertTrue(revision > 0);
+        assertTrue(second.getResponse().getNotModified());
+        assertEquals(0, second.getResponse().getInstancesCount());
+        assertFalse(third.getResponse().getNotModified());
+        assertEquals(3, third.getResponse().getInstancesCount());
+        assertTrue(published > revision);
+        assertFalse(fourth.getResponse().getNotModified());
+        assertEquals(2, fourth.getResponse().getInstancesCount());
+        assertTrue(fourth.getResponse().getRevision() > published);
+        assertEquals(fourth.getResponse().getRevision(), notifier.serviceRevision("auth-service"));
+    }
+
+    @Test
+    void testDiscoverNotModifiedWithoutReadWhenEveryChangeIsPublished() {
+        // Create
+        ChangeNotifier notifier = new ChangeNotifier(100);
+        RegistryServiceImpl conditional = new RegistryServiceImpl(registryStore, notifier,
+            new HeartbeatBatcher(registryStore, 100, 1000),
+            Mockito.mock(RegistryForwarder.class), 100, 100, 1000);
+        Mockito.when(registryStore.publishesAllChanges()).thenReturn(true);
+        notifier.publish(WatchEvent.Type.ADDED, "auth-service", ServiceInstance.getDefaultInstance());
+
+        TestStreamObserver<DiscoverResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        conditional.discover(DiscoverRequest.newBuilder()
+                .setServiceName("auth-service")
+                .setIfRevisionNot(notifier.serviceRevision("auth-service"))
+                .build(), observer);
+
+        // Assert
+        assertTrue(observer.getResponse().getNotModified());
+        Mockito.verify(registryStore, Mockito.never()).getInstancesAsync(Mockito.anyString());
+    }
 }
@@ -0,0 +1,86 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.github.adnant1.servicediscovery.partition.PartitionRouter;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
+
+import io.grpc.Attributes;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+
+/**
+ * Unit tests for honoring the forwarded header only from cluster nodes.
+ */
+public class ForwardedCallInterceptorTest {
+
+    private PartitionRouter partitionRouter;
+    private ForwardedCallInterceptor interceptor;
+
+    @BeforeEach
+    public void setUp() {
+        this.partitionRouter = Mockito.mock(PartitionRouter.class);
+        Mockito.when(partitionRouter.enabled()).thenReturn(true);
+        Mockito.when(partitionRouter.nodes()).thenReturn(Set.of("127.0.0.1:50051", "127.0.0.2:50051"));
+        this.interceptor = new ForwardedCallInterceptor(partitionRouter);
+    }
+
+    @Test
+    void testForwardedHeaderFromClusterNodeIsHonored() {
+        assertTrue(forwarded("127.0.0.2", true));
+    }
+
+    @Test
+    void testForwardedHeaderFromOutsideTheClusterIsIgnored() {
+        assertFalse(forwarded("10.9.9.9", true));
+    }
+
+    @Test
+    void testForwardedHeaderIsIgnoredWithoutPartitioning() {
+        // Arrange
+        Mockito.when(partitionRouter.enabled()).thenReturn(false);
+
+        // Act & Assert
+        assertFalse(forwarded("127.0.0.2", true));
+    }
+
+    @Test
+    void testCallWithoutHeaderIsNotForwarded() {
+        assertFalse(forwarded("127.0.0.2", false));
+    }
+
+    /**
+     * Runs a call from the given address through the interceptor and reports whether it was marked forwarded.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean forwarded(String remoteIp, boolean withHeader) {
+        ServerCall<Object, Object> call = Mockito.mock(ServerCall.class);
+        Mockito.when(call.getAttributes()).thenReturn(Attributes.newBuilder()
+                .set(Grpc.TRANSPORT_ATTR_REMOTE_ADDR, new InetSocketAddress(remoteIp, 40000))
+                .build());
+        Metadata headers = new Metadata();
+        if (withHeader) {
+            headers.put(RegistryForwarder.FORWARDED_HEADER, "1");
+        }
+
+        AtomicBoolean marked = new AtomicBoolean();
+        ServerCallHandler<Object, Object> next = (serverCall, metadata) -> {
+            marked.set(RegistryForwarder.FORWARDED.get());
+            return new ServerCall.Listener<>() {};
+        };
+
+        interceptor.interceptCall(call, headers, next);
+        return marked.get();
+    }
+}
@@ -0,0 +1,268 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.github.adnant1.servicediscovery.TestStreamObserver;
+import com.github.adnant1.servicediscovery.gossip.GossipClient;
+import com.github.adnant1.servicediscovery.gossip.LocalStateProvider;
+import com.github.adnant1.servicediscovery.gossip.Membership;
+import com.github.adnant1.servicediscovery.gossip.StateDigest;
+import com.github.adnant1.servicediscovery.identity.NodeIdentityProvider;
+import com.github.adnant1.servicediscovery.metrics.GossipMetrics;
+import com.github.adnant1.servicediscovery.partition.PartitionRouter;
+import com.github.adnant1.servicediscovery.registry.DigestRequest;
+import com.github.adnant1.servicediscovery.registry.DigestResponse;
+import com.github.adnant1.servicediscovery.registry.FetchRequest;
+import com.github.adnant1.servicediscovery.registry.FetchResponse;
+import com.github.adnant1.servicediscovery.registry.GossipRequest;
+import com.github.adnant1.servicediscovery.registry.GossipResponse;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.store.InMemoryRegistryStore;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class GossipServiceTest {
+
+    private RegistryStore registryStore;
+    private GossipServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        this.registryStore = new InMemoryRegistryStore(new ChangeNotifier(100), 30, 100);
+        Membership membership = new Membership(new NodeIdentityProvider(50051), 5000, 60000, 3, 8);
+        this.service = new GossipServiceImpl(registryStore, new LocalStateProvider(registryStore, 0), membership,
+            Mockito.mock(GossipClient.class), new PartitionRouter(membership, false, 128, 3),
+            new GossipMetrics(new SimpleMeterRegistry()), 100, 100);
+    }
+
+    @Test
+    void testSyncWithoutPullReturnsNoState() {
+        // Arrange
+        registryStore.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        GossipRequest request = GossipRequest.newBuilder()
+                .putInstances("auth-service:instance-2", instance("instance-2", System.currentTimeMillis()))
+                .build();
+        TestStreamObserver<GossipResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.sync(request, observer);
+
+        // Assert
+        assertNull(observer.getError());
+        assertTrue(observer.getResponse().getSuccess());
+        assertEquals("Applied 1 updates", observer.getResponse().getMessage());
+        assertEquals(0, observer.getResponse().getInstancesCount());
+        assertEquals(2, registryStore.getInstances("auth-service").size());
+    }
+
+    @Test
+    void testFullStatePullReturnsNewerAndMissingEntries() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        registryStore.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        registryStore.saveInstance("auth-service", "instance-3", "10.0.0.3", 8080);
+        GossipRequest request = GossipRequest.newBuilder()
+                .putInstances("auth-service:instance-1", instance("instance-1", now - 10_000))
+                .putInstances("auth-service:instance-2", instance("instance-2", now))
+                .setPull(true)
+                .setFullState(true)
+                .build();
+        TestStreamObserver<GossipResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.sync(request, observer);
+
+        // Assert
+        GossipResponse response = observer.getResponse();
+        assertNull(observer.getError());
+        assertEquals(2, response.getInstancesCount());
+        assertTrue(response.containsInstances("auth-service:instance-1"), "Local copy is newer");
+        assertTrue(response.containsInstances("auth-service:instance-3"), "Sender is missing it");
+        assertFalse(response.containsInstances("auth-service:instance-2"), "Just pushed by the sender");
+        assertFalse(response.getMembersList().isEmpty(), "Carries the responder's own membership entry");
+    }
+
+    @Test
+    void testFullStatePullIsPaged() {
+        // Arrange
+        Membership membership = new Membership(new NodeIdentityProvider(50051), 5000, 60000, 3, 8);
+        GossipServiceImpl paged = new GossipServiceImpl(registryStore, new LocalStateProvider(registryStore, 0), membership,
+            Mockito.mock(GossipClient.class), new PartitionRouter(membership, false, 128, 3),
+            new GossipMetrics(new SimpleMeterRegistry()), 100, 2);
+        for (int i = 0; i < 5; i++) {
+            registryStore.saveInstance("auth-service", "instance-" + i, "10.0.0.1", 8080);
+        }
+
+        // Act: follow the page tokens until the last page
+        Set<String> pulled = new HashSet<>();
+        int pages = 0;
+        String pageToken = "";
+        do {
+            TestStreamObserver<GossipResponse> observer = new TestStreamObserver<>();
+            paged.sync(GossipRequest.newBuilder()
+                    .setPull(true)
+                    .setFullState(true)
+                    .setPageToken(pageToken)
+                    .build(), observer);
+            GossipResponse response = observer.getResponse();
+            assertTrue(response.getInstancesCount() <= 2);
+            pulled.addAll(response.getInstancesMap().keySet());
+            pageToken = response.getNextPageToken();
+            pages++;
+        } while (!pageToken.isEmpty());
+
+        // Assert
+        assertEquals(3, pages);
+        assertEquals(5, pulled.size());
+    }
+
+    @Test
+    void testFullStatePagesCoverEveryServiceOnce() {
+        // Arrange: "auth" sorts before "auth-service", but "auth:" keys sort after "auth-service:" keys
+        Membership membership = new Membership(new NodeIdentityProvider(50051), 5000, 60000, 3, 8);
+        GossipServiceImpl paged = new GossipServiceImpl(registryStore, new LocalStateProvider(registryStore, 0), membership,
+            Mockito.mock(GossipClient.class), new PartitionRouter(membership, false, 128, 3),
+            new GossipMetrics(new SimpleMeterRegistry()), 100, 3);
+        for (String serviceName : List.of("auth", "auth-service", "billing")) {
+            for (int i = 0; i < 4; i++) {
+                registryStore.saveInstance(serviceName, "instance-" + i, "10.0.0.1", 8080);
+            }
+        }
+
+        // Act
+        List<String> pulled = new ArrayList<>();
+        String pageToken = "";
+        do {
+            TestStreamObserver<GossipResponse> observer = new TestStreamObserver<>();
+            paged.sync(GossipRequest.newBuilder()
+                    .setPull(true)
+                    .setFullState(true)
+                    .setPageToken(pageToken)
+                    .build(), observer);
+            pulled.addAll(observer.getResponse().getInstancesMap().keySet());
+            pageToken = observer.getResponse().getNextPageToken();
+        } while (!pageToken.isEmpty());
+
+        // Assert
+        assertEquals(12, pulled.size());
+        assertEquals(12, new HashSet<>(pulled).size(), "No entry is returned twice");
+    }
+
+    @Test
+    void testDeltaPullReturnsChangesSinceVersion() {
+        // Arrange
+        registryStore.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        long since = registryStore.currentVersion();
+        registryStore.saveInstance("auth-service", "instance-2", "10.0.0.2", 8080);
+        GossipRequest request = GossipRequest.newBuilder()
+                .setPull(true)
+                .setPullSinceVersion(since)
+                .build();
+        TestStreamObserver<GossipResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.sync(request, observer);
+
+        // Assert
+        GossipResponse response = observer.getResponse();
+        assertEquals(1, response.getInstancesCount());
+        assertTrue(response.containsInstances("auth-service:instance-2"));
+        assertEquals(registryStore.currentVersion(), response.getVersion());
+    }
+
+    @Test
+    void testSyncStreamMergesEachChunk() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        TestStreamObserver<GossipResponse> observer = new TestStreamObserver<>();
+        StreamObserver<GossipRequest> chunks = service.syncStream(observer);
+
+        // Act
+        chunks.onNext(GossipRequest.newBuilder()
+                .putInstances("auth-service:instance-1", instance("instance-1", now))
+                .putInstances("auth-service:instance-2", instance("instance-2", now))
+                .build());
+        assertEquals(2, registryStore.getInstances("auth-service").size(), "Merged before the stream ends");
+        chunks.onNext(GossipRequest.newBuilder()
+                .putInstances("billing-service:instance-3", instance("instance-3", now))
+                .build());
+        chunks.onCompleted();
+
+        // Assert
+        assertNull(observer.getError());
+        assertTrue(observer.isCompleted());
+        assertEquals("Applied 3 updates from 2 chunks", observer.getResponse().getMessage());
+        assertEquals(1, registryStore.getInstances("billing-service").size());
+    }
+
+    @Test
+    void testFetchReturnsOnlyTheRequestedLeaves() {
+        // Arrange
+        for (int i = 0; i < 20; i++) {
+            registryStore.saveInstance("service-" + i, "instance-1", "10.0.0.1", 8080);
+        }
+        int leaf = StateDigest.leafOf("service-3:instance-1", 16, 4);
+        FetchRequest request = FetchRequest.newBuilder()
+                .setServiceBuckets(16)
+                .setInstanceBuckets(4)
+                .addLeaves(leaf)
+                .build();
+        TestStreamObserver<FetchResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.fetch(request, observer);
+
+        // Assert
+        FetchResponse response = observer.getResponse();
+        assertNull(observer.getError());
+        assertTrue(response.containsInstances("service-3:instance-1"));
+        response.getInstancesMap().keySet()
+                .forEach(key -> assertEquals(leaf, StateDigest.leafOf(key, 16, 4), key + " is outside the leaf"));
+    }
+
+    @Test
+    void testDigestsWithinTheCacheWindowShareOneDump() {
+        // Arrange
+        Membership membership = new Membership(new NodeIdentityProvider(50051), 5000, 60000, 3, 8);
+        GossipServiceImpl cached = new GossipServiceImpl(registryStore, new LocalStateProvider(registryStore, 60_000),
+            membership, Mockito.mock(GossipClient.class), new PartitionRouter(membership, false, 128, 3),
+            new GossipMetrics(new SimpleMeterRegistry()), 100, 100);
+        registryStore.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        DigestRequest request = DigestRequest.newBuilder().setServiceBuckets(16).setInstanceBuckets(4).build();
+
+        // Act
+        TestStreamObserver<DigestResponse> first = new TestStreamObserver<>();
+        cached.digest(request, first);
+        registryStore.saveInstance("auth-service", "instance-2", "10.0.0.2", 8080);
+        TestStreamObserver<DigestResponse> second = new TestStreamObserver<>();
+        cached.digest(request, second);
+
+        // Assert
+        assertEquals(first.getResponse(), second.getResponse(), "Hashed from the same dump");
+    }
+
+    private static ServiceInstance instance(String instanceId, long lastUpdated) {
+        return ServiceInstance.newBuilder()
+                .setInstanceId(instanceId)
+                .setIp("10.0.0.9")
+                .setPort(8080)
+                .setLastUpdated(lastUpdated)
+                .setTtl(30)
+                .build();
+    }
+}
@@ -12,28 +12,34 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import com.github.adnant1.servicediscovery.TestStreamObserver;
-import com.github.adnant1.servicediscovery.redis.RedisRepository;
+import com.github.adnant1.servicediscovery.heartbeat.HeartbeatBatcher;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
 import com.github.adnant1.servicediscovery.registry.HeartbeatRequest;
 import com.github.adnant1.servicediscovery.registry.HeartbeatResponse;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
 
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 
 public class HeartbeatServiceTest {
     
-    private RedisRepository redisRepository;
+    private RegistryStore registryStore;
     private RegistryServiceImpl service;
 
     @BeforeEach
     public void setUp() {
-        this.redisRepository = Mockito.mock(RedisRepository.class);
-        this.service = new RegistryServiceImpl(redisRepository);
+        // Real default methods, so the async store calls reach the stubbed blocking ones
+        this.registryStore = Mockito.mock(RegistryStore.class, Mockito.CALLS_REAL_METHODS);
+        this.service = new RegistryServiceImpl(registryStore, new ChangeNotifier(100),
+            new HeartbeatBatcher(registryStore, 100, 1000),
+            Mockito.mock(RegistryForwarder.class), 100, 100, 1000);
     }
 
     @Test
     void testHeartbeatSuccess() {
         // Arrange
-        Mockito.when(redisRepository.refreshTtl("auth-service", "instance-1"))
+        Mockito.when(registryStore.refreshTtl("auth-service", "instance-1"))
                 .thenReturn(true);
 
         HeartbeatRequest request = HeartbeatRequest.newBuilder()
@@ -59,7 +65,7 @@ public class HeartbeatServiceTest {
     @Test
     void testHeartbeatInstanceNotFound() {
         // Arrange
-        Mockito.when(redisRepository.refreshTtl("auth-service", "missing-instance"))
+        Mockito.when(registryStore.refreshTtl("auth-service", "missing-instance"))
                 .thenReturn(false);
 
         HeartbeatRequest request = HeartbeatRequest.newBuilder()
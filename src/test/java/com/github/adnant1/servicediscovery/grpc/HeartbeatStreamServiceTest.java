@@ -0,0 +1,132 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.github.adnant1.servicediscovery.TestStreamObserver;
+import com.github.adnant1.servicediscovery.heartbeat.HeartbeatBatcher;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
+import com.github.adnant1.servicediscovery.registry.HeartbeatAck;
+import com.github.adnant1.servicediscovery.registry.HeartbeatRequest;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+
+public class HeartbeatStreamServiceTest {
+
+    private RegistryStore registryStore;
+    private HeartbeatBatcher heartbeatBatcher;
+    private RegistryServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        this.registryStore = Mockito.mock(RegistryStore.class);
+        this.heartbeatBatcher = new HeartbeatBatcher(registryStore, 100, 1000);
+        this.service = new RegistryServiceImpl(registryStore, new ChangeNotifier(100), heartbeatBatcher,
+            Mockito.mock(RegistryForwarder.class), 100, 100, 1000);
+    }
+
+    private static HeartbeatRequest heartbeat(String serviceName, String instanceId) {
+        return HeartbeatRequest.newBuilder()
+                .setServiceName(serviceName)
+                .setInstanceId(instanceId)
+                .build();
+    }
+
+    @Test
+    void testHeartbeatsAreAcknowledgedInOneBatch() {
+        // Arrange
+        Mockito.when(registryStore.refreshTtls(List.of("auth-service:instance-1", "auth-service:instance-2")))
+                .thenReturn(Set.of("auth-service:instance-1"));
+
+        TestStreamObserver<HeartbeatAck> observer = new TestStreamObserver<>();
+        StreamObserver<HeartbeatRequest> requests = service.heartbeatStream(observer);
+
+        // Act
+        requests.onNext(heartbeat("auth-service", "instance-1"));
+        requests.onNext(heartbeat("auth-service", "instance-2"));
+        requests.onNext(heartbeat("auth-service", "instance-1"));
+        heartbeatBatcher.flush();
+
+        // Assert
+        Mockito.verify(registryStore, Mockito.times(1)).refreshTtls(Mockito.anyList());
+
+        HeartbeatAck ack = observer.getResponse();
+        assertEquals(3, ack.getResultsCount());
+        assertTrue(ack.getResults(0).getSuccess());
+        assertFalse(ack.getResults(1).getSuccess());
+        assertTrue(ack.getResults(2).getSuccess());
+    }
+
+    @Test
+    void testStreamCompletesAfterPendingHeartbeats() {
+        // Arrange
+        Mockito.when(registryStore.refreshTtls(List.of("auth-service:instance-1")))
+                .thenReturn(Set.of("auth-service:instance-1"));
+
+        TestStreamObserver<HeartbeatAck> observer = new TestStreamObserver<>();
+        StreamObserver<HeartbeatRequest> requests = service.heartbeatStream(observer);
+
+        // Act
+        requests.onNext(heartbeat("auth-service", "instance-1"));
+        requests.onCompleted();
+        boolean completedBeforeFlush = observer.isCompleted();
+        heartbeatBatcher.flush();
+
+        // Assert
+        assertFalse(completedBeforeFlush);
+        assertTrue(observer.isCompleted());
+        assertNull(observer.getError());
+        assertEquals(1, observer.getResponse().getResultsCount());
+    }
+
+    @Test
+    void testFullQueueEndsStream() {
+        // Arrange
+        HeartbeatBatcher batcher = new HeartbeatBatcher(registryStore, 100, 1);
+        RegistryServiceImpl bounded = new RegistryServiceImpl(registryStore, new ChangeNotifier(100), batcher,
+            Mockito.mock(RegistryForwarder.class), 100, 100, 1000);
+
+        TestStreamObserver<HeartbeatAck> observer = new TestStreamObserver<>();
+        StreamObserver<HeartbeatRequest> requests = bounded.heartbeatStream(observer);
+
+        // Act
+        requests.onNext(heartbeat("auth-service", "instance-1"));
+        requests.onNext(heartbeat("auth-service", "instance-2"));
+
+        // Assert
+        assertInstanceOf(StatusRuntimeException.class, observer.getError());
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, ((StatusRuntimeException) observer.getError()).getStatus().getCode());
+    }
+
+    @Test
+    void testRedisFailureEndsStream() {
+        // Arrange
+        Mockito.when(registryStore.refreshTtls(Mockito.anyList()))
+                .thenThrow(new RuntimeException("Connection refused"));
+
+        TestStreamObserver<HeartbeatAck> observer = new TestStreamObserver<>();
+        StreamObserver<HeartbeatRequest> requests = service.heartbeatStream(observer);
+
+        // Act
+        requests.onNext(heartbeat("auth-service", "instance-1"));
+        heartbeatBatcher.flush();
+
+        // Assert
+        assertInstanceOf(StatusRuntimeException.class, observer.getError());
+        assertEquals(Status.Code.UNAVAILABLE, ((StatusRuntimeException) observer.getError()).getStatus().getCode());
+    }
+}
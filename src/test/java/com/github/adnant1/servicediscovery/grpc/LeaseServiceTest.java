@@ -0,0 +1,133 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.github.adnant1.servicediscovery.TestStreamObserver;
+import com.github.adnant1.servicediscovery.registry.GrantLeaseRequest;
+import com.github.adnant1.servicediscovery.registry.GrantLeaseResponse;
+import com.github.adnant1.servicediscovery.registry.KeepAliveLeaseRequest;
+import com.github.adnant1.servicediscovery.registry.KeepAliveLeaseResponse;
+import com.github.adnant1.servicediscovery.registry.RevokeLeaseRequest;
+import com.github.adnant1.servicediscovery.registry.RevokeLeaseResponse;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+/**
+ * Unit tests for the lease gRPC methods in LeaseServiceImpl.
+ */
+public class LeaseServiceTest {
+
+    private RegistryStore registryStore;
+    private LeaseServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        this.registryStore = Mockito.mock(RegistryStore.class);
+        this.service = new LeaseServiceImpl(registryStore, 300);
+    }
+
+    @Test
+    void testGrantLease() {
+        // Arrange
+        Mockito.when(registryStore.grantLease(60)).thenReturn("lease-1");
+        Mockito.when(registryStore.leaseTtlSeconds(60)).thenReturn(60L);
+
+        TestStreamObserver<GrantLeaseResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.grantLease(GrantLeaseRequest.newBuilder().setTtlSeconds(60).build(), observer);
+
+        // Assert
+        assertNull(observer.getError());
+        assertTrue(observer.isCompleted());
+        assertEquals("lease-1", observer.getResponse().getLeaseId());
+        assertEquals(60, observer.getResponse().getTtlSeconds());
+    }
+
+    @Test
+    void testGrantLeaseAboveMaximumTtl() {
+        // Arrange
+        TestStreamObserver<GrantLeaseResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.grantLease(GrantLeaseRequest.newBuilder().setTtlSeconds(301).build(), observer);
+
+        // Assert
+        assertNull(observer.getResponse());
+        assertInstanceOf(StatusRuntimeException.class, observer.getError());
+        assertEquals(Status.INVALID_ARGUMENT.getCode(), ((StatusRuntimeException) observer.getError()).getStatus().getCode());
+        Mockito.verifyNoInteractions(registryStore);
+    }
+
+    @Test
+    void testKeepAliveRenewsAttachedInstances() {
+        // Arrange
+        Mockito.when(registryStore.keepAliveLease("lease-1")).thenReturn(40L);
+
+        TestStreamObserver<KeepAliveLeaseResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.keepAliveLease(KeepAliveLeaseRequest.newBuilder().setLeaseId("lease-1").build(), observer);
+
+        // Assert
+        assertNull(observer.getError());
+        assertTrue(observer.getResponse().getSuccess());
+        assertEquals(40, observer.getResponse().getInstances());
+    }
+
+    @Test
+    void testKeepAliveUnknownLease() {
+        // Arrange
+        Mockito.when(registryStore.keepAliveLease("lease-1")).thenReturn(-1L);
+
+        TestStreamObserver<KeepAliveLeaseResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.keepAliveLease(KeepAliveLeaseRequest.newBuilder().setLeaseId("lease-1").build(), observer);
+
+        // Assert
+        assertNull(observer.getError());
+        assertFalse(observer.getResponse().getSuccess());
+        assertEquals("Lease not found.", observer.getResponse().getMessage());
+    }
+
+    @Test
+    void testRevokeLease() {
+        // Arrange
+        Mockito.when(registryStore.revokeLease("lease-1")).thenReturn(3);
+
+        TestStreamObserver<RevokeLeaseResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.revokeLease(RevokeLeaseRequest.newBuilder().setLeaseId("lease-1").build(), observer);
+
+        // Assert
+        assertNull(observer.getError());
+        assertTrue(observer.getResponse().getSuccess());
+        assertEquals(3, observer.getResponse().getInstances());
+    }
+
+    @Test
+    void testRevokeWithoutLeaseId() {
+        // Arrange
+        TestStreamObserver<RevokeLeaseResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.revokeLease(RevokeLeaseRequest.newBuilder().build(), observer);
+
+        // Assert
+        assertInstanceOf(StatusRuntimeException.class, observer.getError());
+        assertEquals(Status.INVALID_ARGUMENT.getCode(),
+            ((StatusRuntimeException) observer.getError()).getStatus().getCode());
+    }
+}
@@ -12,9 +12,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import com.github.adnant1.servicediscovery.TestStreamObserver;
-import com.github.adnant1.servicediscovery.redis.RedisRepository;
+import com.github.adnant1.servicediscovery.heartbeat.HeartbeatBatcher;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
 import com.github.adnant1.servicediscovery.registry.RegisterRequest;
 import com.github.adnant1.servicediscovery.registry.RegisterResponse;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
 
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
@@ -25,13 +28,16 @@ import io.grpc.StatusRuntimeException;
  */
 public class RegisterServiceTest {
     
-    private RedisRepository redisRepository;
+    private RegistryStore registryStore;
     private RegistryServiceImpl service;
 
     @BeforeEach
     public void setUp() {
-        this.redisRepository = Mockito.mock(RedisRepository.class);
-        this.service = new RegistryServiceImpl(redisRepository);
+        // Real default methods, so the async store calls reach the stubbed blocking ones
+        this.registryStore = Mockito.mock(RegistryStore.class, Mockito.CALLS_REAL_METHODS);
+        this.service = new RegistryServiceImpl(registryStore, new ChangeNotifier(100),
+            new HeartbeatBatcher(registryStore, 100, 1000),
+            Mockito.mock(RegistryForwarder.class), 100, 100, 1000);
     }
 
     @Test
@@ -44,7 +50,7 @@ public class RegisterServiceTest {
                 .setPort(8080)
                 .build();
         
-        Mockito.doNothing().when(redisRepository).saveInstance(
+        Mockito.doNothing().when(registryStore).saveInstance(
             Mockito.anyString(),
             Mockito.anyString(),
             Mockito.anyString(),
@@ -93,4 +99,55 @@ public class RegisterServiceTest {
         assertEquals(Status.INVALID_ARGUMENT.getCode(), statusEx.getStatus().getCode());
         assertTrue(statusEx.getStatus().getDescription().contains("Service name cannot be empty."));
     }
+
+    @Test
+    void testRegisterReservedServiceName() {
+        // Create: "registry" would collide with the registry:* index keys
+        RegisterRequest request = RegisterRequest.newBuilder()
+                .setServiceName("registry")
+                .setInstanceId("services")
+                .setIp("10.0.0.1")
+                .setPort(8080)
+                .build();
+
+        TestStreamObserver<RegisterResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.register(request, observer);
+
+        // Assert
+        assertNull(observer.getResponse(), "No response expected on invalid input");
+        assertInstanceOf(StatusRuntimeException.class, observer.getError());
+
+        StatusRuntimeException statusEx = (StatusRuntimeException) observer.getError();
+        assertEquals(Status.INVALID_ARGUMENT.getCode(), statusEx.getStatus().getCode());
+        Mockito.verifyNoInteractions(registryStore);
+    }
+
+    @Test
+    void testRegisterWithUnknownLease() {
+        // Create
+        RegisterRequest request = RegisterRequest.newBuilder()
+                .setServiceName("auth-service")
+                .setInstanceId("instance-1")
+                .setIp("10.0.0.1")
+                .setPort(8080)
+                .setLeaseId("missing-lease")
+                .build();
+
+        Mockito.when(registryStore.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080, "missing-lease"))
+            .thenReturn(false);
+
+        TestStreamObserver<RegisterResponse> observer = new TestStreamObserver<>();
+
+        // Act
+        service.register(request, observer);
+
+        // Assert
+        assertNull(observer.getResponse(), "No response expected for an unknown lease");
+        assertInstanceOf(StatusRuntimeException.class, observer.getError());
+
+        StatusRuntimeException statusEx = (StatusRuntimeException) observer.getError();
+        assertEquals(Status.NOT_FOUND.getCode(), statusEx.getStatus().getCode());
+    }
 }
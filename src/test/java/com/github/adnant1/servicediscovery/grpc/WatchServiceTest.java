@@ -0,0 +1,148 @@
+package com.github.adnant1.servicediscovery.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.github.adnant1.servicediscovery.heartbeat.HeartbeatBatcher;
+import com.github.adnant1.servicediscovery.partition.RegistryForwarder;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+import com.github.adnant1.servicediscovery.registry.WatchRequest;
+import com.github.adnant1.servicediscovery.store.RegistryStore;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+
+public class WatchServiceTest {
+
+    private RegistryStore registryStore;
+    private ChangeNotifier changeNotifier;
+    private RegistryServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        this.registryStore = Mockito.mock(RegistryStore.class, Mockito.CALLS_REAL_METHODS);
+        this.changeNotifier = new ChangeNotifier(100);
+        this.service = new RegistryServiceImpl(registryStore, changeNotifier,
+            new HeartbeatBatcher(registryStore, 100, 1000),
+            Mockito.mock(RegistryForwarder.class), 2, 100, 1000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ServerCallStreamObserver<WatchEvent> observer(boolean ready) {
+        ServerCallStreamObserver<WatchEvent> observer = Mockito.mock(ServerCallStreamObserver.class);
+        Mockito.when(observer.isReady()).thenReturn(ready);
+        return observer;
+    }
+
+    @Test
+    void testWatchSendsSnapshotThenLiveEvents() {
+        // Create
+        ServiceInstance instance = ServiceInstance.newBuilder()
+                .setInstanceId("instance-1")
+                .setIp("10.0.0.1")
+                .setPort(8080)
+                .build();
+
+        Mockito.when(registryStore.getInstances("auth-service"))
+            .thenReturn(List.of(instance));
+
+        WatchRequest request = WatchRequest.newBuilder()
+                .addServiceNames("auth-service")
+                .build();
+
+        ServerCallStreamObserver<WatchEvent> observer = observer(true);
+
+        // Act
+        service.watch(request, observer);
+        changeNotifier.publish(WatchEvent.Type.REMOVED, "auth-service", instance);
+
+        // Assert
+        ArgumentCaptor<WatchEvent> events = ArgumentCaptor.forClass(WatchEvent.class);
+        Mockito.verify(observer, Mockito.times(2)).onNext(events.capture());
+
+        WatchEvent snapshot = events.getAllValues().get(0);
+        assertTrue(snapshot.getSnapshot());
+        assertEquals(WatchEvent.Type.ADDED, snapshot.getType());
+        assertEquals("instance-1", snapshot.getInstance().getInstanceId());
+
+        WatchEvent removed = events.getAllValues().get(1);
+        assertFalse(removed.getSnapshot());
+        assertEquals(WatchEvent.Type.REMOVED, removed.getType());
+        assertEquals(changeNotifier.serviceRevision("auth-service"), removed.getRevision());
+    }
+
+    @Test
+    void testWatchWithoutServiceNames() {
+        // Create
+        WatchRequest request = WatchRequest.newBuilder().build();
+        ServerCallStreamObserver<WatchEvent> observer = observer(true);
+
+        // Act
+        service.watch(request, observer);
+
+        // Assert
+        ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+        Mockito.verify(observer).onError(error.capture());
+        assertEquals(Status.Code.INVALID_ARGUMENT, ((StatusRuntimeException) error.getValue()).getStatus().getCode());
+    }
+
+    @Test
+    void testSlowWatcherIsDisconnected() {
+        // Create
+        Mockito.when(registryStore.getInstances("auth-service"))
+            .thenReturn(List.of());
+
+        WatchRequest request = WatchRequest.newBuilder()
+                .addServiceNames("auth-service")
+                .build();
+
+        ServerCallStreamObserver<WatchEvent> observer = observer(false);
+
+        // Act
+        service.watch(request, observer);
+        for (int i = 0; i < 3; i++) {
+            changeNotifier.publish(WatchEvent.Type.ADDED, "auth-service",
+                ServiceInstance.newBuilder().setInstanceId("instance-" + i).build());
+        }
+
+        // Assert
+        ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+        Mockito.verify(observer).onError(error.capture());
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, ((StatusRuntimeException) error.getValue()).getStatus().getCode());
+        Mockito.verify(observer, Mockito.never()).onNext(Mockito.any());
+    }
+
+    @Test
+    void testWatchFailsWhenSnapshotReadFails() {
+        // Create
+        Mockito.when(registryStore.getInstancesAsync("auth-service"))
+            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("connection refused")));
+
+        WatchRequest request = WatchRequest.newBuilder()
+                .addServiceNames("auth-service")
+                .build();
+
+        ServerCallStreamObserver<WatchEvent> observer = observer(true);
+
+        // Act
+        service.watch(request, observer);
+
+        // Assert
+        ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+        Mockito.verify(observer).onError(error.capture());
+        assertEquals(Status.Code.UNAVAILABLE, ((StatusRuntimeException) error.getValue()).getStatus().getCode());
+        Mockito.verify(observer, Mockito.never()).onNext(Mockito.any());
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.adnant1.servicediscovery.partition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the consistent-hash ring.
+ */
+public class HashRingTest {
+
+    private static List<String> nodes(int count) {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add("node-" + i + ":50051");
+        }
+        return nodes;
+    }
+
+    @Test
+    void testOwnersAreDistinctAndStable() {
+        // Arrange
+        HashRing ring = new HashRing(nodes(5), 128, 3);
+        HashRing rebuilt = new HashRing(List.of("node-4:50051", "node-3:50051", "node-2:50051", "node-1:50051",
+            "node-0:50051"), 128, 3);
+
+        // Act
+        List<String> owners = ring.ownersOf("auth-service");
+
+        // Assert
+        assertEquals(3, owners.stream().distinct().count());
+        assertEquals(owners, rebuilt.ownersOf("auth-service"), "Node order does not matter");
+    }
+
+    @Test
+    void testReplicationFactorIsCappedByNodeCount() {
+        // Arrange
+        HashRing ring = new HashRing(nodes(2), 128, 3);
+
+        // Act & Assert
+        assertEquals(2, ring.ownersOf("auth-service").size());
+        assertTrue(new HashRing(List.of(), 128, 3).ownersOf("auth-service").isEmpty());
+    }
+
+    @Test
+    void testAddingANodeOnlyMovesItsShare() {
+        // Arrange
+        HashRing before = new HashRing(nodes(10), 128, 1);
+        HashRing after = new HashRing(nodes(11), 128, 1);
+
+        // Act
+        int moved = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String primary = after.ownersOf("service-" + i).get(0);
+            if (!primary.equals(before.ownersOf("service-" + i).get(0))) {
+                moved++;
+                assertEquals("node-10:50051", primary, "Services only move to the new node");
+            }
+        }
+
+        // Assert: about 1/11 of the services
+        assertTrue(moved > 500 && moved < 1400, "Moved " + moved);
+    }
+
+    @Test
+    void testServicesSpreadEvenly() {
+        // Arrange
+        HashRing ring = new HashRing(nodes(10), 128, 1);
+        Map<String, Integer> counts = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            counts.merge(ring.ownersOf("service-" + i).get(0), 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(10, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 600 && count < 1400, "Owns " + count));
+    }
+}
@@ -0,0 +1,219 @@
+package com.github.adnant1.servicediscovery.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.github.adnant1.servicediscovery.cache.DiscoveryCache;
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Tests merge_instances.lua through RedisRepository.mergeInstances against a real Redis.
+ * Only runs when REDIS_TEST_HOST is set (REDIS_TEST_PORT defaults to 6379), and flushes
+ * database 15 of that server before every test.
+ */
+@EnabledIfEnvironmentVariable(named = "REDIS_TEST_HOST", matches = ".+")
+public class RedisRepositoryMergeTest {
+
+    private static final int DATABASE = 15;
+    private static final int TTL_SECONDS = 30;
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisAsyncExecutor asyncExecutor;
+
+    private StringRedisTemplate redisTemplate;
+    private RedisRepository repository;
+
+    @BeforeAll
+    static void connect() {
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+            System.getenv("REDIS_TEST_HOST"), Integer.parseInt(System.getenv().getOrDefault("REDIS_TEST_PORT", "6379"))
+        );
+        config.setDatabase(DATABASE);
+        connectionFactory = new LettuceConnectionFactory(config);
+        connectionFactory.afterPropertiesSet();
+        asyncExecutor = new RedisAsyncExecutor(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        asyncExecutor.close();
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+
+        // Caching disabled, so every read reaches Redis
+        DiscoveryCache uncached = new DiscoveryCache(0, 0);
+        this.repository = new RedisRepository(redisTemplate, new RegistryScripts(redisTemplate),
+            new RegistryIndex(redisTemplate), asyncExecutor, uncached, new ChangeNotifier(100),
+            new SimpleMeterRegistry(), TTL_SECONDS, false);
+    }
+
+    @Test
+    void testMissingInstanceIsCreated() {
+        // Act
+        int changes = repository.mergeInstances(Map.of("auth-service:instance-1", instance("10.0.0.1", 1000, 30)));
+
+        // Assert
+        assertEquals(1, changes);
+        assertEquals("10.0.0.1", repository.getInstances("auth-service").get(0).getIp());
+        assertTrue(repository.serviceNames().contains("auth-service"));
+        assertEquals(repository.currentVersion(),
+            redisTemplate.opsForZSet().score(RegistryIndex.CHANGES_KEY, "auth-service:instance-1").longValue());
+    }
+
+    @Test
+    void testNewerCopyOverwritesLocalCopy() {
+        // Arrange
+        long localTs = saveLocal();
+        long version = repository.currentVersion();
+
+        // Act
+        int changes = repository.mergeInstances(Map.of("auth-service:instance-1", instance("10.0.0.9", localTs + 1, 30)));
+
+        // Assert
+        assertEquals(1, changes);
+        assertEquals("10.0.0.9", repository.getInstances("auth-service").get(0).getIp());
+        assertEquals(version + 1, repository.currentVersion());
+    }
+
+    @Test
+    void testOlderCopyIsIgnored() {
+        // Arrange
+        long localTs = saveLocal();
+        long version = repository.currentVersion();
+
+        // Act
+        int changes = repository.mergeInstances(Map.of("auth-service:instance-1", instance("10.0.0.9", localTs - 1, 300)));
+
+        // Assert
+        assertEquals(0, changes);
+        assertEquals("10.0.0.1", repository.getInstances("auth-service").get(0).getIp());
+        assertEquals(version, repository.currentVersion());
+        assertTrue(ttl() <= TTL_SECONDS, "An older copy does not move the expiry");
+    }
+
+    @Test
+    void testSameRegistrationExtendsTtlWithoutNewVersion() {
+        // Arrange
+        long localTs = saveLocal();
+        long version = repository.currentVersion();
+
+        // Act
+        int changes = repository.mergeInstances(Map.of("auth-service:instance-1", instance("10.0.0.1", localTs, 300)));
+
+        // Assert
+        assertEquals(0, changes);
+        assertTrue(ttl() > TTL_SECONDS, "Expiry moved to the peer's");
+        assertEquals(version, repository.currentVersion());
+    }
+
+    @Test
+    void testSameRegistrationNeverShortensTtl() {
+        // Arrange
+        long localTs = saveLocal();
+
+        // Act
+        repository.mergeInstances(Map.of("auth-service:instance-1", instance("10.0.0.1", localTs, 5)));
+
+        // Assert
+        assertTrue(ttl() > 5);
+    }
+
+    @Test
+    void testExpiredCopyDeletesLocalCopy() {
+        // Arrange
+        long localTs = saveLocal();
+
+        // Act
+        repository.mergeInstances(Map.of("auth-service:instance-1", instance("10.0.0.1", localTs, 0)));
+
+        // Assert
+        assertFalse(redisTemplate.hasKey("auth-service:instance-1"));
+        assertFalse(redisTemplate.opsForSet().isMember("service:auth-service", "auth-service:instance-1"));
+        assertFalse(repository.serviceNames().contains("auth-service"), "Last instance leaves the service index");
+        assertNull(redisTemplate.opsForZSet().score(RegistryIndex.CHANGES_KEY, "auth-service:instance-1"));
+    }
+
+    @Test
+    void testExpiredCopyDoesNotDeleteNewerLocalCopy() {
+        // Arrange
+        long localTs = saveLocal();
+
+        // Act
+        repository.mergeInstances(Map.of("auth-service:instance-1", instance("10.0.0.1", localTs - 1, 0)));
+
+        // Assert
+        assertEquals(1, repository.getInstances("auth-service").size(), "Registered again after the expired copy");
+    }
+
+    @Test
+    void testNewerCopyIsDetachedFromLease() {
+        // Arrange
+        String leaseId = repository.grantLease(60);
+        repository.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080, leaseId);
+        long localTs = timestamp();
+
+        // Act
+        repository.mergeInstances(Map.of("auth-service:instance-1", instance("10.0.0.9", localTs + 1, 30)));
+        int revoked = repository.revokeLease(leaseId);
+
+        // Assert
+        assertNull(redisTemplate.opsForHash().get("auth-service:instance-1", "lease"));
+        assertEquals(0, revoked);
+        assertEquals("10.0.0.9", repository.getInstances("auth-service").get(0).getIp(), "Outlives the lease");
+    }
+
+    /**
+     * Registers auth-service:instance-1 locally.
+     *
+     * @return its timestamp
+     */
+    private long saveLocal() {
+        repository.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        return timestamp();
+    }
+
+    private long timestamp() {
+        return Long.parseLong((String) redisTemplate.opsForHash().get("auth-service:instance-1", "timestamp"));
+    }
+
+    private long ttl() {
+        return redisTemplate.getExpire("auth-service:instance-1", TimeUnit.SECONDS);
+    }
+
+    private static ServiceInstance instance(String ip, long lastUpdated, long ttl) {
+        return ServiceInstance.newBuilder()
+                .setInstanceId("instance-1")
+                .setIp(ip)
+                .setPort(8080)
+                .setLastUpdated(lastUpdated)
+                .setTtl(ttl)
+                .build();
+    }
+}
@@ -0,0 +1,238 @@
+package com.github.adnant1.servicediscovery.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+import com.github.adnant1.servicediscovery.watch.ChangeNotifier;
+
+/**
+ * Unit tests for the in-process registry store, driven by a manual clock.
+ */
+public class InMemoryRegistryStoreTest {
+
+    private AtomicLong clock;
+    private List<WatchEvent> events;
+    private InMemoryRegistryStore store;
+
+    @BeforeEach
+    public void setUp() {
+        this.clock = new AtomicLong(1_000_000);
+        this.events = new ArrayList<>();
+
+        ChangeNotifier notifier = new ChangeNotifier(100);
+        notifier.subscribe(Set.of("auth-service"), 0, events::add);
+        this.store = new InMemoryRegistryStore(notifier, 30, 100, clock::get);
+    }
+
+    @Test
+    void testSaveAndGetInstances() {
+        // Act
+        store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        store.saveInstance("auth-service", "instance-1", "10.0.0.2", 8080);
+
+        // Assert
+        List<ServiceInstance> instances = store.getInstances("auth-service");
+        assertEquals(1, instances.size());
+        assertEquals("10.0.0.2", instances.get(0).getIp());
+        assertEquals(WatchEvent.Type.ADDED, events.get(0).getType());
+        assertEquals(WatchEvent.Type.UPDATED, events.get(1).getType());
+    }
+
+    @Test
+    void testExpiredInstancesAreRemoved() {
+        // Arrange
+        store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        store.saveInstance("auth-service", "instance-2", "10.0.0.2", 8080);
+
+        // Act
+        clock.addAndGet(20_000);
+        assertTrue(store.refreshTtl("auth-service", "instance-2"));
+        clock.addAndGet(20_000);
+        store.expire();
+
+        // Assert
+        List<ServiceInstance> instances = store.getInstances("auth-service");
+        assertEquals(1, instances.size());
+        assertEquals("instance-2", instances.get(0).getInstanceId());
+        assertEquals(1, store.instanceCount());
+        assertFalse(store.refreshTtl("auth-service", "instance-1"));
+        assertEquals(WatchEvent.Type.REMOVED, events.get(events.size() - 1).getType());
+    }
+
+    @Test
+    void testDumpChangesSinceReturnsLaterWrites() {
+        // Arrange
+        store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        long since = store.currentVersion();
+        store.saveInstance("auth-service", "instance-2", "10.0.0.2", 8080);
+        store.saveInstance("billing-service", "instance-3", "10.0.0.3", 8080);
+
+        // Act
+        StateDelta delta = store.dumpChangesSince(since, 100);
+
+        // Assert
+        assertEquals(Set.of("auth-service:instance-2", "billing-service:instance-3"), delta.instances().keySet());
+        assertEquals(store.currentVersion(), delta.lastVersion());
+    }
+
+    @Test
+    void testMergeKeepsNewerLocalCopy() {
+        // Arrange
+        store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+
+        ServiceInstance stale = ServiceInstance.newBuilder()
+                .setIp("10.0.0.9")
+                .setPort(8080)
+                .setLastUpdated(clock.get() - 1000)
+                .setTtl(30)
+                .build();
+        ServiceInstance fresh = stale.toBuilder().setLastUpdated(clock.get()).build();
+
+        // Act
+        int changed = store.mergeInstances(Map.of(
+            "auth-service:instance-1", stale,
+            "auth-service:instance-2", fresh
+        ));
+
+        // Assert
+        assertEquals(1, changed);
+        assertEquals(2, store.getInstances("auth-service").size());
+    }
+
+    @Test
+    void testMergeOfSameRegistrationExtendsExpiry() {
+        // Arrange: registered here, then heartbeated on the node the gossip comes from
+        store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        ServiceInstance refreshed = store.getInstances("auth-service").get(0).toBuilder().setTtl(30).build();
+        clock.addAndGet(20_000);
+        long version = store.currentVersion();
+
+        // Act
+        int changed = store.mergeInstances(Map.of("auth-service:instance-1", refreshed));
+        clock.addAndGet(20_000);
+        store.expire();
+
+        // Assert
+        assertEquals(0, changed);
+        assertEquals(version, store.currentVersion(), "Not a new write");
+        assertEquals(1, store.getInstances("auth-service").size());
+    }
+
+    @Test
+    void testExpiredCopyKeepsNewerRegistration() {
+        // Arrange
+        ServiceInstance expired = ServiceInstance.newBuilder()
+                .setIp("10.0.0.9")
+                .setPort(8080)
+                .setLastUpdated(clock.get() - 1000)
+                .setTtl(0)
+                .build();
+        store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        store.saveInstance("auth-service", "instance-2", "10.0.0.2", 8080);
+        clock.addAndGet(1000);
+        ServiceInstance expiredLater = expired.toBuilder().setLastUpdated(clock.get()).build();
+
+        // Act
+        store.mergeInstances(Map.of(
+            "auth-service:instance-1", expired,
+            "auth-service:instance-2", expiredLater
+        ));
+
+        // Assert
+        List<ServiceInstance> instances = store.getInstances("auth-service");
+        assertEquals(1, instances.size());
+        assertEquals("instance-1", instances.get(0).getInstanceId());
+    }
+
+    @Test
+    void testLeaseKeepsAttachedInstancesAlive() {
+        // Arrange
+        String leaseId = store.grantLease(10);
+        assertTrue(store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080, leaseId));
+        assertTrue(store.saveInstance("auth-service", "instance-2", "10.0.0.2", 8080, leaseId));
+
+        // Act
+        clock.addAndGet(8_000);
+        long renewed = store.keepAliveLease(leaseId);
+        clock.addAndGet(8_000);
+        store.expire();
+
+        // Assert
+        assertEquals(2, renewed);
+        assertEquals(2, store.getInstances("auth-service").size());
+        assertEquals(2, store.revokeLease(leaseId));
+        assertTrue(store.getInstances("auth-service").isEmpty());
+        assertFalse(store.saveInstance("auth-service", "instance-3", "10.0.0.3", 8080, leaseId));
+    }
+
+    @Test
+    void testHeartbeatDoesNotOutliveLease() {
+        // Arrange
+        String leaseId = store.grantLease(10);
+        assertTrue(store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080, leaseId));
+
+        // Act
+        clock.addAndGet(5_000);
+        boolean refreshed = store.refreshTtl("auth-service", "instance-1");
+        clock.addAndGet(6_000);
+        store.expire();
+
+        // Assert
+        assertTrue(refreshed);
+        assertTrue(store.getInstances("auth-service").isEmpty(), "Expires with the lease, not 30 s after the heartbeat");
+    }
+
+    @Test
+    void testNewerGossipedCopyIsDetachedFromLease() {
+        // Arrange
+        String leaseId = store.grantLease(10);
+        assertTrue(store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080, leaseId));
+        clock.addAndGet(1000);
+        ServiceInstance reregistered = ServiceInstance.newBuilder()
+                .setIp("10.0.0.2")
+                .setPort(8080)
+                .setLastUpdated(clock.get())
+                .setTtl(30)
+                .build();
+
+        // Act
+        store.mergeInstances(Map.of("auth-service:instance-1", reregistered));
+        int revoked = store.revokeLease(leaseId);
+
+        // Assert
+        assertEquals(0, revoked);
+        assertEquals("10.0.0.2", store.getInstances("auth-service").get(0).getIp());
+    }
+
+    @Test
+    void testHeartbeatIsLoggedOnceHalfTheTtlHasPassed() {
+        // Arrange
+        store.saveInstance("auth-service", "instance-1", "10.0.0.1", 8080);
+        long registered = store.currentVersion();
+
+        // Act
+        clock.addAndGet(5_000);
+        store.refreshTtl("auth-service", "instance-1");
+        long afterEarlyHeartbeat = store.currentVersion();
+        clock.addAndGet(11_000);
+        store.refreshTtl("auth-service", "instance-1");
+
+        // Assert
+        assertEquals(registered, afterEarlyHeartbeat, "Peers' copies still have more than half their TTL");
+        StateDelta delta = store.dumpChangesSince(registered, 100);
+        assertTrue(delta.instances().containsKey("auth-service:instance-1"));
+        assertEquals(30, delta.instances().get("auth-service:instance-1").getTtl());
+    }
+}
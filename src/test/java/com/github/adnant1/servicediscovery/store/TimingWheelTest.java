@@ -0,0 +1,90 @@
+package com.github.adnant1.servicediscovery.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the hierarchical timing wheel.
+ */
+public class TimingWheelTest {
+
+    @Test
+    void testKeyExpiresAtItsDeadline() {
+        // Arrange
+        TimingWheel<String> wheel = new TimingWheel<>(100, 0);
+        wheel.schedule("a", 250);
+
+        // Act
+        List<String> early = wheel.advance(200);
+        List<String> due = wheel.advance(300);
+
+        // Assert
+        assertTrue(early.isEmpty());
+        assertEquals(List.of("a"), due);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testRescheduleMovesDeadline() {
+        // Arrange
+        TimingWheel<String> wheel = new TimingWheel<>(100, 0);
+        wheel.schedule("a", 1_000);
+
+        // Act
+        wheel.schedule("a", 5_000);
+        List<String> original = wheel.advance(1_000);
+        List<String> moved = wheel.advance(5_000);
+
+        // Assert
+        assertTrue(original.isEmpty());
+        assertEquals(List.of("a"), moved);
+    }
+
+    @Test
+    void testCancelledKeyNeverExpires() {
+        // Arrange
+        TimingWheel<String> wheel = new TimingWheel<>(100, 0);
+        wheel.schedule("a", 1_000);
+
+        // Act
+        boolean cancelled = wheel.cancel("a");
+
+        // Assert
+        assertTrue(cancelled);
+        assertFalse(wheel.cancel("a"));
+        assertTrue(wheel.advance(2_000).isEmpty());
+    }
+
+    @Test
+    void testDeadlinesInHigherLevelsCascadeOnTime() {
+        // Arrange: 64 ticks per level 0 revolution, so these land in levels 1, 2 and 3
+        TimingWheel<String> wheel = new TimingWheel<>(10, 5);
+        long[] deadlines = {650, 41_000, 2_700_000};
+        for (long deadline : deadlines) {
+            wheel.schedule("at-" + deadline, deadline);
+        }
+
+        // Act & Assert
+        for (long deadline : deadlines) {
+            assertTrue(wheel.advance(deadline - 10).isEmpty());
+            assertEquals(List.of("at-" + deadline), wheel.advance(deadline));
+        }
+    }
+
+    @Test
+    void testDeadlineBeyondTopLevelStillExpires() {
+        // Arrange: four levels of 64 one-millisecond ticks cover about 4.6 hours
+        TimingWheel<String> wheel = new TimingWheel<>(1, 0);
+        long deadline = (1L << 24) + 17;
+        wheel.schedule("far", deadline);
+
+        // Act & Assert
+        assertTrue(wheel.advance(deadline - 1).isEmpty());
+        assertEquals(List.of("far"), wheel.advance(deadline));
+    }
+}
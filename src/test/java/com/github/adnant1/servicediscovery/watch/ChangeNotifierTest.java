@@ -0,0 +1,187 @@
+package com.github.adnant1.servicediscovery.watch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.adnant1.servicediscovery.registry.ServiceInstance;
+import com.github.adnant1.servicediscovery.registry.WatchEvent;
+
+/**
+ * Unit tests for the change notifier and its resumable history.
+ */
+public class ChangeNotifierTest {
+
+    private static ServiceInstance instance(String id) {
+        return ServiceInstance.newBuilder()
+                .setInstanceId(id)
+                .setIp("10.0.0.1")
+                .setPort(8080)
+                .build();
+    }
+
+    @Test
+    void testWatcherOnlyReceivesWatchedServices() {
+        // Arrange
+        ChangeNotifier notifier = new ChangeNotifier(100);
+        List<WatchEvent> received = new ArrayList<>();
+        notifier.subscribe(Set.of("auth-service"), 0, received::add);
+
+        // Act
+        notifier.publish(WatchEvent.Type.ADDED, "auth-service", instance("a"));
+        notifier.publish(WatchEvent.Type.ADDED, "billing-service", instance("b"));
+        notifier.publish(WatchEvent.Type.REMOVED, "auth-service", instance("a"));
+
+        // Assert
+        assertEquals(2, received.size());
+        assertEquals(WatchEvent.Type.ADDED, received.get(0).getType());
+        assertEquals(WatchEvent.Type.REMOVED, received.get(1).getType());
+        assertEquals(received.get(0).getRevision() + 2, received.get(1).getRevision());
+    }
+
+    @Test
+    void testResumeReplaysMissedEvents() {
+        // Arrange
+        ChangeNotifier notifier = new ChangeNotifier(100);
+        List<WatchEvent> published = new ArrayList<>();
+        notifier.listen(published::add);
+        notifier.publish(WatchEvent.Type.ADDED, "auth-service", instance("a"));
+        notifier.publish(WatchEvent.Type.ADDED, "auth-service", instance("b"));
+        notifier.publish(WatchEvent.Type.UPDATED, "auth-service", instance("a"));
+        List<WatchEvent> received = new ArrayList<>();
+
+        // Act
+        long snapshotRevision = notifier.subscribe(Set.of("auth-service"), published.get(0).getRevision(), received::add);
+
+        // Assert
+        assertEquals(-1, snapshotRevision);
+        assertEquals(2, received.size());
+        assertEquals(published.get(1).getRevision(), received.get(0).getRevision());
+        assertEquals(published.get(2).getRevision(), received.get(1).getRevision());
+    }
+
+    @Test
+    void testResumeBeyondHistoryRequiresSnapshot() {
+        // Arrange
+        ChangeNotifier notifier = new ChangeNotifier(2);
+        List<WatchEvent> published = new ArrayList<>();
+        notifier.listen(published::add);
+        for (int i = 0; i < 5; i++) {
+            notifier.publish(WatchEvent.Type.ADDED, "auth-service", instance("inst-" + i));
+        }
+        List<WatchEvent> received = new ArrayList<>();
+
+        // Act
+        long snapshotRevision = notifier.subscribe(Set.of("auth-service"), published.get(0).getRevision(), received::add);
+
+        // Assert
+        assertEquals(published.get(4).getRevision(), snapshotRevision);
+        assertEquals(0, received.size());
+    }
+
+    @Test
+    void testResumeFromAnotherNotifierRequiresSnapshot() {
+        // Arrange
+        ChangeNotifier before = new ChangeNotifier(100);
+        List<WatchEvent> published = new ArrayList<>();
+        before.listen(published::add);
+        for (int i = 0; i < 3; i++) {
+            before.publish(WatchEvent.Type.ADDED, "auth-service", instance("inst-" + i));
+        }
+
+        // A restarted node, which has since published more events than the watcher saw before
+        ChangeNotifier after = new ChangeNotifier(100);
+        for (int i = 0; i < 5; i++) {
+            after.publish(WatchEvent.Type.ADDED, "auth-service", instance("inst-" + i));
+        }
+        List<WatchEvent> received = new ArrayList<>();
+
+        // Act
+        long snapshotRevision = after.subscribe(Set.of("auth-service"), published.get(0).getRevision(), received::add);
+
+        // Assert
+        assertTrue(snapshotRevision > published.get(2).getRevision(), "Revisions after a restart are never reused");
+        assertEquals(0, received.size());
+    }
+
+    @Test
+    void testUnsubscribedWatcherStopsReceiving() {
+        // Arrange
+        ChangeNotifier notifier = new ChangeNotifier(100);
+        List<WatchEvent> received = new ArrayList<>();
+        ChangeNotifier.Watcher watcher = received::add;
+        notifier.subscribe(Set.of("auth-service"), 0, watcher);
+
+        // Act
+        notifier.unsubscribe(watcher);
+        notifier.publish(WatchEvent.Type.ADDED, "auth-service", instance("a"));
+
+        // Assert
+        assertEquals(0, received.size());
+    }
+
+    @Test
+    void testServiceRevisionOnlyMovesWithItsService() {
+        // Arrange
+        ChangeNotifier notifier = new ChangeNotifier(100);
+        long initial = notifier.serviceRevision("auth-service");
+
+        // Act
+        notifier.publish(WatchEvent.Type.ADDED, "auth-service", instance("a"));
+        long afterAdd = notifier.serviceRevision("auth-service");
+        notifier.publish(WatchEvent.Type.ADDED, "billing-service", instance("b"));
+
+        // Assert
+        assertTrue(initial > 0);
+        assertTrue(afterAdd > initial);
+        assertEquals(afterAdd, notifier.serviceRevision("auth-service"));
+        assertTrue(notifier.serviceRevision("billing-service") > afterAdd);
+    }
+
+    @Test
+    void testObserveRaisesRevisionOnlyWhenInstancesChange() {
+        // Arrange
+        ChangeNotifier notifier = new ChangeNotifier(100);
+        notifier.publish(WatchEvent.Type.ADDED, "auth-service", instance("a"));
+        long revision = notifier.serviceRevision("auth-service");
+
+        // Act
+        long first = notifier.observe("auth-service", revision, List.of(instance("a"), instance("b")));
+        long reordered = notifier.observe("auth-service", revision, List.of(instance("b"), instance("a")));
+        long expired = notifier.observe("auth-service", revision, List.of(instance("a")));
+        long stale = notifier.observe("auth-service", revision, List.of(instance("a"), instance("b")));
+
+        // Assert
+        assertEquals(revision, first);
+        assertEquals(revision, reordered);
+        assertTrue(expired > revision);
+        assertEquals(expired, notifier.serviceRevision("auth-service"));
+        assertEquals(revision, stale, "Read before the raise; the revision is not raised again");
+    }
+
+    @Test
+    void testObserveForgetsServicesWithoutInstances() {
+        // Arrange
+        ChangeNotifier notifier = new ChangeNotifier(100);
+        long base = notifier.serviceRevision("auth-service");
+        notifier.publish(WatchEvent.Type.ADDED, "auth-service", instance("a"));
+        long added = notifier.serviceRevision("auth-service");
+
+        // Act
+        long emptied = notifier.observe("auth-service", added, List.of());
+        long unknown = notifier.observe("no-such-service", notifier.serviceRevision("no-such-service"), List.of());
+        long reappeared = notifier.observe("auth-service", notifier.serviceRevision("auth-service"), List.of(instance("a")));
+
+        // Assert
+        assertEquals(base, emptied);
+        assertEquals(base, unknown);
+        assertTrue(reappeared > added, "Instances found at the base revision get a new one");
+        assertEquals(reappeared, notifier.serviceRevision("auth-service"));
+        assertEquals(base, notifier.serviceRevision("no-such-service"));
+    }
+}